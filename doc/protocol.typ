@@ -45,6 +45,53 @@ A client can disconnect at any time, but the server must be able to handle this
 
 All messages are case sensitive and must be sent using UTF-8 encoding.
 
+== Protocol versions
+
+Version 1 is the text format described in this document, every message is a line terminated by
+a line feed. Version 2 adds a compact binary framing, both formats are used on the same
+connection.
+
+=== Negotiation
+
+A client supporting version 2 sends the following right after connecting, before the `COLOR`
+message is expected:
+
+```
+HELLO <version>
+```
+
+Where `version` is the highest version supported by the client. The server answers with the
+highest version supported by both sides:
+
+```
+HELLO <version>
+```
+
+`HELLO` messages are always sent as text lines. A client that does not send `HELLO` only ever
+receives text lines. Once the server answered version 2, the server sends binary frames, and
+the client may send binary frames once it received the answer. Text lines remain valid in both
+directions, and a message that can't be represented as a binary frame (for example a move outside
+of the board) is sent as a text line.
+
+=== Binary frames
+
+A frame starts with a type byte, with the high bit set to distinguish it from a text line (text
+lines always start with an ASCII letter). The low bits hold the type identifier, followed by a
+payload whose size depends on the type. Squares are 6-bit indices `y * 8 + x`.
+
+#table(
+  columns: (auto, auto, auto, 1fr),
+  [*Message*], [*Type byte*], [*Payload*], [*Content*],
+  [`COLOR`], [`0x80`], [1 byte], [0 for `WHITE`, 1 for `BLACK`],
+  [`MOVE`], [`0x81`], [2 bytes], [big endian, origin square on bits 11-6, destination on bits 5-0, bits 15-12 are zero],
+  [`PROMOTION`], [`0x82`], [2 bytes], [piece ordinal, then the square of the piece],
+  [`REPLAY`], [`0x83`], [1 byte], [1 for `Yes`, 0 for `No`],
+  [`ERROR`], [`0x84`], [1 byte], [error code],
+)
+
+A move therefore takes 3 bytes on the wire, where the text line `MOVE 4 1 4 3` takes 13. A frame
+with an unknown type or an invalid payload is answered as an invalid message.
+
 == Messages
 
 === Color
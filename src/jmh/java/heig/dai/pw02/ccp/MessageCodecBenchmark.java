@@ -0,0 +1,90 @@
+package heig.dai.pw02.ccp;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Decoding and encoding of a MOVE line with the codec, compared with the string based message
+ * used before it. Run with {@code -prof gc} to get the bytes allocated per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MessageCodecBenchmark {
+
+    private final byte[] line = "MOVE 4 1 4 3\n".getBytes(StandardCharsets.US_ASCII);
+    private final ByteBuffer input = ByteBuffer.wrap(line);
+    private final ByteBuffer output = ByteBuffer.allocate(64);
+
+    @Benchmark
+    public void decodeLegacy(Blackhole blackhole) {
+        String received = new String(line, 0, line.length - 1, StandardCharsets.UTF_8);
+        int[] arguments = LegacyMessage.parse(received).getNumericArguments();
+        blackhole.consume(arguments[0] + arguments[3]);
+    }
+
+    @Benchmark
+    public void decodeCodec(Blackhole blackhole) {
+        Message message = MessageCodec.decode(input, 0, line.length - 1);
+        blackhole.consume(message.getInt(0) + message.getInt(3));
+    }
+
+    @Benchmark
+    public void encodeLegacy(Blackhole blackhole) {
+        LegacyMessage message = LegacyMessage.of(CCPMessage.MOVE, 4, 1, 4, 3);
+        output.clear();
+        output.put((message + "\n").getBytes(StandardCharsets.UTF_8));
+        blackhole.consume(output.position());
+    }
+
+    @Benchmark
+    public void encodeCodec(Blackhole blackhole) {
+        Message message = Message.move(4, 1, 4, 3);
+        output.clear();
+        MessageCodec.encode(message, output);
+        blackhole.consume(output.position());
+    }
+
+    /**
+     * The string based message as it was implemented before the codec.
+     */
+    private record LegacyMessage(CCPMessage type, String... arguments) {
+
+        int[] getNumericArguments() {
+            return Arrays.stream(arguments).mapToInt(Integer::parseInt).toArray();
+        }
+
+        @Override
+        public String toString() {
+            return "%s %s".formatted(type, String.join(" ", arguments));
+        }
+
+        static LegacyMessage parse(String socketMessage) {
+            String[] parts = socketMessage.split(" ");
+            CCPMessage type = CCPMessage.valueOf(parts[0]);
+            return new LegacyMessage(type, Arrays.copyOfRange(parts, 1, parts.length));
+        }
+
+        static LegacyMessage of(CCPMessage type, int... arguments) {
+            return new LegacyMessage(
+                    type, Arrays.stream(arguments).mapToObj(String::valueOf).toArray(String[]::new)
+            );
+        }
+    }
+}
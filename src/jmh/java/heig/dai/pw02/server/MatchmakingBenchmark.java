@@ -0,0 +1,101 @@
+package heig.dai.pw02.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Players paired per second by many threads accepting connections at once, with the matchmaker
+ * and with the synchronized queue the pool used before it. Every operation enqueues one player in
+ * one of the queues, every other operation forms a pair.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class MatchmakingBenchmark {
+
+    @Param({"1", "4"})
+    private int queueCount;
+
+    private final LongAdder pairs = new LongAdder();
+    private final List<String> queueNames = new ArrayList<>();
+    private Matchmaker<Object> matchmaker;
+    private LegacyQueue[] legacyQueues;
+
+    @Setup
+    public void createQueues() {
+        legacyQueues = new LegacyQueue[queueCount];
+        for (int i = 0; i < queueCount; i++) {
+            queueNames.add("queue-" + i);
+            legacyQueues[i] = new LegacyQueue();
+        }
+        matchmaker = new Matchmaker<>(queueNames, (waiting, arriving) -> pairs.increment());
+    }
+
+    /**
+     * The queue joined by the players of a single accepting thread.
+     */
+    @State(Scope.Thread)
+    public static class Acceptor {
+        private final Object player = new Object();
+        private int next;
+
+        int nextQueue(int queueCount) {
+            next = next + 1 == queueCount ? 0 : next + 1;
+            return next;
+        }
+    }
+
+    @Benchmark
+    public Matchmaker.Ticket<Object> matchmaker(Acceptor acceptor) {
+        return matchmaker.enqueue(queueNames.get(acceptor.nextQueue(queueCount)), acceptor.player);
+    }
+
+    @Benchmark
+    public void legacy(Acceptor acceptor) {
+        legacyQueues[acceptor.nextQueue(queueCount)].enqueue(acceptor.player);
+    }
+
+    /**
+     * The pairing of the pool before the matchmaker: a lock around a concurrent queue, whose size
+     * is computed by walking the queue.
+     */
+    private final class LegacyQueue {
+        private final Queue<Object> queue = new ConcurrentLinkedQueue<>();
+
+        void enqueue(Object player) {
+            Object waiting = null;
+            synchronized (queue) {
+                queue.add(player);
+                if (queue.size() >= 2) {
+                    waiting = queue.poll();
+                    queue.poll();
+                }
+            }
+
+            if (null != waiting) {
+                pairs.increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package heig.dai.pw02.socket;
+
+import ch.qos.logback.classic.Logger;
+import heig.dai.pw02.ccp.Message;
+import heig.dai.pw02.ccp.MessageCodec;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Moves relayed per second over a loopback connection with the text and the binary framing. Each
+ * invocation sends a batch of moves and then reads them back on the other end of the connection.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FramingThroughputBenchmark {
+
+    private static final int BATCH = 256;
+
+    @Param({"text", "binary"})
+    private String framing;
+
+    private ServerSocket serverSocket;
+    private SocketManager sender;
+    private SocketManager receiver;
+    private final Message[] moves = new Message[BATCH];
+
+    @Setup(Level.Trial)
+    public void connect() throws IOException {
+        // Logging every message would dominate the measurement
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME))
+                .setLevel(ch.qos.logback.classic.Level.WARN);
+        serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        sender = new SocketManager(
+                new Socket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort())
+        );
+        receiver = new SocketManager(serverSocket.accept());
+        for (int i = 0; i < BATCH; i++) {
+            moves[i] = Message.move(i % 8, (i / 8) % 8, (i + 3) % 8, (i / 3) % 8);
+        }
+
+        if ("binary".equals(framing)) {
+            // Each side handles the HELLO while reading the next move
+            sender.requestVersion(MessageCodec.BINARY_VERSION);
+            sender.send(moves[0]);
+            receiver.read();
+            receiver.send(moves[0]);
+            sender.read();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void disconnect() throws IOException {
+        sender.close();
+        receiver.close();
+        serverSocket.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void relayMoves(Blackhole blackhole) {
+        for (Message move : moves) {
+            sender.send(move);
+        }
+        for (int i = 0; i < BATCH; i++) {
+            blackhole.consume(receiver.read().getInt(0));
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package heig.poo.chess.engine;
+
+import heig.poo.chess.ChessView.UserChoice;
+import heig.poo.chess.PlayerColor;
+import heig.poo.chess.engine.util.Board;
+import heig.poo.chess.views.HeadlessView;
+
+/**
+ * Game played without a view, giving the benchmarks access to its board. Moves are written in
+ * coordinate notation, {@code "e2e4"}, and promotions always choose a queen.
+ */
+class BenchmarkGame extends GameManager {
+
+    /**
+     * The Opera Game, Morphy against the Duke of Brunswick and Count Isouard, 1858: captures, a
+     * castling on each side available and a checkmate in 33 plies.
+     */
+    static final String[] OPERA_GAME = {
+            "e2e4", "e7e5", "g1f3", "d7d6", "d2d4", "c8g4", "d4e5", "g4f3", "d1f3", "d6e5",
+            "f1c4", "g8f6", "f3b3", "d8e7", "b1c3", "c7c6", "c1g5", "b7b5", "c3b5", "c6b5",
+            "c4b5", "b8d7", "e1c1", "a8d8", "d1d7", "d8d7", "h1d1", "e7e6", "b5d7", "f6d7",
+            "b3b8", "d7b8", "d1d8"
+    };
+    // Length of the Opera Game, as a constant to be used in annotations
+    static final int OPERA_GAME_PLIES = 33;
+    // Plies of the Opera Game before the white king castles, both castlings being available
+    static final int PLIES_BEFORE_CASTLING = 22;
+
+    BenchmarkGame() {
+        start(new HeadlessView());
+    }
+
+    /**
+     * Play the first moves of a game.
+     *
+     * @param moves The moves of the game.
+     * @param plies The number of moves to play.
+     * @throws IllegalStateException If one of the moves is illegal.
+     */
+    void play(String[] moves, int plies) {
+        for (int i = 0; i < plies; i++) {
+            if (!move(moves[i])) {
+                throw new IllegalStateException("Illegal move " + moves[i]);
+            }
+        }
+    }
+
+    Board getBoard() {
+        return board;
+    }
+
+    PlayerColor getPlayerToMove() {
+        return playerTurn();
+    }
+
+    @Override
+    protected UserChoice askUserToPlayAgain(String header, String question, UserChoice[] choices) {
+        return null;
+    }
+}
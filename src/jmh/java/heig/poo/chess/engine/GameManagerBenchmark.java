@@ -0,0 +1,61 @@
+package heig.poo.chess.engine;
+
+import heig.poo.chess.engine.bitboard.MoveList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time taken by the game manager to play a move, checks included, and by the end of game
+ * detections it runs after every move. The moves are those of the Opera Game, replayed from a new
+ * game, so that a move operation includes a share of the reset of the board. The detections run
+ * on its middle game.
+ * <p>
+ * A stalemate is detected when the player to move has no legal move, the {@code stalemate}
+ * operation generates them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GameManagerBenchmark {
+
+    private final BenchmarkGame game = new BenchmarkGame();
+    private final BenchmarkGame middleGame = new BenchmarkGame();
+    private final MoveList moves = new MoveList();
+
+    @Setup
+    public void playOpening() {
+        middleGame.play(BenchmarkGame.OPERA_GAME, BenchmarkGame.PLIES_BEFORE_CASTLING);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchmarkGame.OPERA_GAME_PLIES)
+    public long move() {
+        game.newGame();
+        game.play(BenchmarkGame.OPERA_GAME, BenchmarkGame.OPERA_GAME_PLIES);
+        return game.getPositionKey();
+    }
+
+    @Benchmark
+    public boolean insufficientMaterial() {
+        return middleGame.isInsufficientMaterial();
+    }
+
+    @Benchmark
+    public boolean stalemate() {
+        return middleGame.generateLegalMoves(moves).isEmpty();
+    }
+}
@@ -0,0 +1,97 @@
+package heig.poo.chess.engine;
+
+import heig.poo.chess.engine.piece.ChessPiece;
+import heig.poo.chess.engine.piece.King;
+import heig.poo.chess.engine.util.Board;
+import heig.poo.chess.engine.util.Direction;
+import heig.poo.chess.engine.util.Point;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time taken by the rules of the pieces, in the middle game of the Opera Game where the white
+ * king can castle on both sides. An operation asks every white piece, or the king alone, whether
+ * it can move to each square of the board, or finds the direction of every offset between two
+ * squares.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PieceRulesBenchmark {
+
+    // Offsets between two squares along each axis, from -7 to 7
+    private static final int OFFSETS = 2 * Board.BOARD_SIZE - 1;
+
+    private Board board;
+    private List<ChessPiece> pieces;
+    private King king;
+    private final Point[] squares = new Point[Board.BOARD_SIZE * Board.BOARD_SIZE];
+
+    @Setup
+    public void playOpening() {
+        BenchmarkGame game = new BenchmarkGame();
+        game.play(BenchmarkGame.OPERA_GAME, BenchmarkGame.PLIES_BEFORE_CASTLING);
+        board = game.getBoard();
+        pieces = board.getAllPieces(game.getPlayerToMove());
+        king = board.getKing(game.getPlayerToMove());
+        for (int i = 0; i < squares.length; i++) {
+            squares[i] = new Point(i % Board.BOARD_SIZE, i / Board.BOARD_SIZE);
+        }
+    }
+
+    @Benchmark
+    public int canMoveTo() {
+        int destinations = 0;
+        for (ChessPiece piece : pieces) {
+            for (Point square : squares) {
+                if (piece.canMoveTo(board, square)) {
+                    destinations++;
+                }
+            }
+        }
+
+        return destinations;
+    }
+
+    @Benchmark
+    public int kingCanMoveTo() {
+        int destinations = 0;
+        for (Point square : squares) {
+            if (king.canMoveTo(board, square)) {
+                destinations++;
+            }
+        }
+
+        return destinations;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OFFSETS * OFFSETS)
+    public int offSetOf() {
+        int directions = 0;
+        for (int x = 1 - Board.BOARD_SIZE; x < Board.BOARD_SIZE; x++) {
+            for (int y = 1 - Board.BOARD_SIZE; y < Board.BOARD_SIZE; y++) {
+                if (Direction.exists(Direction.offSetOf(x, y))) {
+                    directions++;
+                }
+            }
+        }
+
+        return directions;
+    }
+}
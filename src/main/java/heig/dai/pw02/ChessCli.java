@@ -2,7 +2,9 @@ package heig.dai.pw02;
 
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
+import heig.dai.pw02.command.BenchClientCommand;
 import heig.dai.pw02.command.ClientCommand;
+import heig.dai.pw02.command.PerftCommand;
 import heig.dai.pw02.command.ServerCommand;
 import org.slf4j.LoggerFactory;
 import picocli.CommandLine;
@@ -26,6 +28,8 @@ import picocli.CommandLine.ScopeType;
         subcommands = {
                 HelpCommand.class,
                 ClientCommand.class,
+                BenchClientCommand.class,
+                PerftCommand.class,
                 ServerCommand.class,
         }
 )
@@ -1,6 +1,8 @@
 package heig.dai.pw02.ccp;
 
+import heig.dai.pw02.socket.MessageTransport;
 import heig.dai.pw02.socket.SocketManager;
+import heig.dai.pw02.socket.WriteStatistics;
 import heig.poo.chess.PieceType;
 import heig.poo.chess.engine.piece.ChessPiece;
 import heig.poo.chess.engine.util.Board;
@@ -8,20 +10,61 @@ import heig.poo.chess.engine.util.ChessString;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Base handler of a CCP connection. A single reader per connection receives the messages sent by
+ * the peer and completes the waiters registered for their type. Messages received while nobody
+ * is waiting are kept until the next await.
+ */
 @Slf4j
 public abstract class CCPHandler {
 
-    private final SocketManager socketManager;
+    private static final Executor DEFAULT_READER_EXECUTOR = createReaderExecutor();
+
+    private final MessageTransport socketManager;
 
     // We need this to put promotions on hold until we send the move message
     private final AtomicReference<Message> pendingPromotion = new AtomicReference<>();
 
+    // Received messages and pending awaits, both guarded by the inbox
+    private final Queue<Message> inbox = new ArrayDeque<>();
+    private final Map<CCPMessage, Queue<CompletableFuture<Message>>> waiters =
+            new EnumMap<>(CCPMessage.class);
+    private Message disconnection;
+    private final CompletableFuture<Message> disconnected = new CompletableFuture<>();
+
     public CCPHandler(Socket socketManager) {
-        this.socketManager = new SocketManager(socketManager);
+        this(new SocketManager(socketManager));
+    }
+
+    public CCPHandler(Socket socketManager, Executor readerExecutor) {
+        this(new SocketManager(socketManager), readerExecutor);
+    }
+
+    public CCPHandler(MessageTransport transport) {
+        this(transport, DEFAULT_READER_EXECUTOR);
+    }
+
+    /**
+     * Create a handler reading the transport with the given executor. When the transport blocks
+     * while reading, the executor must be able to dedicate a thread to the connection.
+     *
+     * @param transport      the transport of the connection
+     * @param readerExecutor the executor running the reader of the connection
+     */
+    public CCPHandler(MessageTransport transport, Executor readerExecutor) {
+        this.socketManager = transport;
+        transport.listen(this::dispatch, readerExecutor);
     }
 
     public void disconnect() {
@@ -32,26 +75,139 @@ public abstract class CCPHandler {
         }
     }
 
+    /**
+     * Announce the highest protocol version supported by this side of the connection.
+     *
+     * @param version the highest protocol version supported
+     */
+    protected void requestVersion(int version) {
+        socketManager.requestVersion(version);
+    }
+
     protected void sendMessage(Message message) {
         log.trace("Sending message of type {}", message.getType());
         socketManager.send(message);
     }
 
+    /**
+     * Buffer a message until the next {@link #flush()}, so that the messages of a single game
+     * event reach the peer in one write.
+     *
+     * @param message the message to buffer
+     */
+    protected void writeMessage(Message message) {
+        log.trace("Buffering message of type {}", message.getType());
+        socketManager.write(message);
+    }
+
+    /**
+     * Send the buffered messages to the peer.
+     */
+    public final void flush() {
+        socketManager.flush();
+    }
+
+    public final WriteStatistics getWriteStatistics() {
+        return socketManager.getWriteStatistics();
+    }
+
+    /**
+     * Wait for the next message of the given type. The future completes with the message once
+     * received, or with an error message if the peer sent an invalid message or got disconnected.
+     * The future is completed by the reader of the connection, its dependent actions must not
+     * block.
+     *
+     * @param type the expected type
+     * @return the future message
+     */
     protected CompletableFuture<Message> awaitMessage(CCPMessage type) {
         log.trace("Waiting for message of type {}", type);
-        return CompletableFuture.supplyAsync(() -> {
-            Message message = socketManager.read();
-            if (message == null) {
-                log.warn("A client got disconnected");
-                System.exit(2);
+        CompletableFuture<Message> future = new CompletableFuture<>();
+        Message message;
+        synchronized (inbox) {
+            message = inbox.poll();
+            if (null == message) {
+                message = disconnection;
+            }
+            if (null == message) {
+                waiters.computeIfAbsent(type, t -> new ArrayDeque<>()).add(future);
+                return future;
             }
-            if (message.getType().equals(CCPMessage.ERROR)) {
-                return message;
+        }
+
+        future.complete(resolve(message, type));
+        return future;
+    }
+
+    /**
+     * Get a future completed with the DISCONNECTED error once the peer got disconnected, whether or
+     * not a message is awaited. Its dependent actions run on the reader of the connection and must
+     * not block.
+     *
+     * @return the future disconnection
+     */
+    public final CompletableFuture<Message> whenDisconnected() {
+        return disconnected.copy();
+    }
+
+    /**
+     * Route a message received from the peer. The message completes the oldest waiter of its type.
+     * If only waiters of other types are pending, the first of them gets an INVALID_MESSAGE
+     * error. When nobody waits, the message is kept for the next await. A disconnection
+     * completes every waiter, current and future.
+     *
+     * @param message the received message
+     */
+    private void dispatch(Message message) {
+        if (message.isError(CCPError.DISCONNECTED)) {
+            Queue<CompletableFuture<Message>> pending = new ArrayDeque<>();
+            synchronized (inbox) {
+                disconnection = message;
+                waiters.values().forEach(pending::addAll);
+                waiters.clear();
+            }
+            pending.forEach(future -> future.complete(message));
+            disconnected.complete(message);
+            return;
+        }
+
+        CompletableFuture<Message> future = null;
+        CCPMessage expected = message.getType();
+        synchronized (inbox) {
+            Queue<CompletableFuture<Message>> sameType = waiters.get(message.getType());
+            if (null != sameType && !sameType.isEmpty()) {
+                future = sameType.poll();
             } else {
-                return checkMessage(message, type);
+                for (CCPMessage type : CCPMessage.values()) {
+                    Queue<CompletableFuture<Message>> otherType = waiters.get(type);
+                    if (null != otherType && !otherType.isEmpty()) {
+                        expected = type;
+                        future = otherType.poll();
+                        break;
+                    }
+                }
+            }
 
+            if (null == future) {
+                inbox.add(message);
+                return;
             }
-        });
+        }
+
+        future.complete(resolve(message, expected));
+    }
+
+    private Message resolve(Message message, CCPMessage type) {
+        if (message.getType().equals(CCPMessage.ERROR)) {
+            return message;
+        }
+
+        try {
+            return checkMessage(message, type);
+        } catch (RuntimeException e) {
+            // Non-numeric arguments or out of range ordinals
+            return createErrorMessage(CCPError.INVALID_MESSAGE);
+        }
     }
 
     public final CompletableFuture<Message> awaitMove() {
@@ -66,12 +222,16 @@ public abstract class CCPHandler {
         return awaitMessage(CCPMessage.REPLAY);
     }
 
+    /**
+     * Send a move, along with the pending promotion if any, in a single write.
+     */
     public final void sendMove(int fromX, int fromY, int toX, int toY) {
-        sendMessage(Message.of(CCPMessage.MOVE, fromX, fromY, toX, toY));
-        if (pendingPromotion.get() != null) {
-            sendMessage(pendingPromotion.get());
-            pendingPromotion.set(null);
+        writeMessage(Message.move(fromX, fromY, toX, toY));
+        Message promotion = pendingPromotion.getAndSet(null);
+        if (promotion != null) {
+            writeMessage(promotion);
         }
+        flush();
     }
 
     /**
@@ -80,11 +240,18 @@ public abstract class CCPHandler {
      * @param piece the piece to promote to
      */
     public final void sendPromotion(ChessPiece piece) {
-        pendingPromotion.set(Message.of(
-                CCPMessage.PROMOTION,
-                piece.getPieceType().ordinal(),
-                piece.getX(), piece.getY()
-        ));
+        sendPromotion(piece.getPieceType(), piece.getX(), piece.getY());
+    }
+
+    /**
+     * Send a promotion to the other player, but only once the move has been sent.
+     *
+     * @param type the type of the piece to promote to
+     * @param x    the x coordinate of the promoted pawn
+     * @param y    the y coordinate of the promoted pawn
+     */
+    public final void sendPromotion(PieceType type, int x, int y) {
+        pendingPromotion.set(Message.of(CCPMessage.PROMOTION, type.ordinal(), x, y));
     }
 
     public final void sendReplay(String replay) {
@@ -92,7 +259,7 @@ public abstract class CCPHandler {
     }
 
     public Message createErrorMessage(CCPError error) {
-        Message toReturn = Message.of(CCPMessage.ERROR, error.ordinal());
+        Message toReturn = Message.error(error);
         log.error("{} - {}", toReturn, error.toString());
         return toReturn;
     }
@@ -107,42 +274,49 @@ public abstract class CCPHandler {
      */
     private Message checkMessage(Message message, CCPMessage type) {
         CCPMessage messageType = message.getType();
-        String[] argumentsString = message.getArguments();
         if (!messageType.equals(type)) {
             return createErrorMessage(CCPError.INVALID_MESSAGE);
         }
 
-        if (argumentsString.length != type.nbrArguments()) {
+        if (message.getArgumentCount() != type.nbrArguments()) {
             return createErrorMessage(CCPError.INVALID_NBR_ARGUMENTS);
         }
 
         if (messageType.equals(CCPMessage.PROMOTION)) {
-            int[] arguments = message.getNumericArguments();
-            if (!PieceType.values()[arguments[0]].equals(PieceType.QUEEN)
-                    && !PieceType.values()[arguments[0]].equals(PieceType.ROOK)
-                    && !PieceType.values()[arguments[0]].equals(PieceType.BISHOP)
-                    && !PieceType.values()[arguments[0]].equals(PieceType.KNIGHT)) {
+            PieceType pieceType = PieceType.values()[message.getInt(0)];
+            if (!pieceType.equals(PieceType.QUEEN)
+                    && !pieceType.equals(PieceType.ROOK)
+                    && !pieceType.equals(PieceType.BISHOP)
+                    && !pieceType.equals(PieceType.KNIGHT)) {
                 return createErrorMessage(CCPError.INVALID_PROMOTION);
             }
         }
 
         if (messageType.equals(CCPMessage.REPLAY)
-                && !(argumentsString[0].equals(ChessString.YES) || argumentsString[0].equals(ChessString.NO))) {
+                && !(message.getText().equals(ChessString.YES) || message.getText().equals(ChessString.NO))) {
             return createErrorMessage(CCPError.INVALID_REPLAY);
         }
 
         if (messageType.equals(CCPMessage.MOVE)) {
-            int[] arguments = message.getNumericArguments();
-            for (int argument : arguments) {
-                if (argument < 0 || argument > Board.BOARD_SIZE - 1) {
+            for (int i = 0; i < type.nbrArguments(); i++) {
+                if (message.getInt(i) < 0 || message.getInt(i) > Board.BOARD_SIZE - 1) {
                     return createErrorMessage(CCPError.INVALID_MOVE);
                 }
             }
-            if (arguments[0] == arguments[2] && arguments[1] == arguments[3]) {
+            if (message.getInt(0) == message.getInt(2) && message.getInt(1) == message.getInt(3)) {
                 return createErrorMessage(CCPError.INVALID_MOVE);
             }
         }
 
         return message;
     }
+
+    private static Executor createReaderExecutor() {
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "ccp-reader-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
 }
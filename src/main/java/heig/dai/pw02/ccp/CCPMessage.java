@@ -1,20 +1,35 @@
 package heig.dai.pw02.ccp;
 
+/**
+ * The types of CCP messages. The ordinal of a type is its identifier in the binary framing, new
+ * types must be appended.
+ */
 public enum CCPMessage {
-    COLOR(1),
-    MOVE(4),
-    PROMOTION(3),
-    REPLAY(1),
-    ERROR(1);
+    COLOR(1, false),
+    MOVE(4, true),
+    PROMOTION(3, true),
+    REPLAY(1, false),
+    ERROR(1, true),
+    HELLO(1, true);
 
     private final int nbrArguments;
+    private final boolean numeric;
 
-    CCPMessage(int nbrArguments) {
+    CCPMessage(int nbrArguments, boolean numeric) {
         this.nbrArguments = nbrArguments;
+        this.numeric = numeric;
     }
 
     public int nbrArguments() {
         return nbrArguments;
     }
 
+    /**
+     * @return true if the arguments of this message are integers, false if it has a textual
+     * argument
+     */
+    public boolean isNumeric() {
+        return numeric;
+    }
+
 }
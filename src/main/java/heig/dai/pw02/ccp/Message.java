@@ -2,29 +2,81 @@ package heig.dai.pw02.ccp;
 
 import heig.poo.chess.engine.util.Assertions;
 
-import java.util.Arrays;
+import java.util.Objects;
 
 import lombok.Getter;
 
-@Getter
+/**
+ * A message of the CCP protocol. The arguments of numeric messages are stored as primitives,
+ * parsed once when the message is decoded, so reading them never allocates. Only the argument of
+ * the textual messages (COLOR and REPLAY) is kept as a string.
+ * <p>
+ * Messages are immutable, and the error messages are shared instances.
+ */
 public final class Message {
 
-    private static final String DELIMITER = " ";
+    /**
+     * The maximum number of arguments kept by a message. Decoded messages carrying more arguments
+     * only keep the first ones but still report how many were received.
+     */
+    public static final int MAX_ARGUMENTS = 4;
+
+    private static final Message[] ERRORS = new Message[CCPError.values().length];
 
+    static {
+        for (CCPError error : CCPError.values()) {
+            ERRORS[error.ordinal()] = new Message(
+                    CCPMessage.ERROR, 1, error.ordinal(), 0, 0, 0, null
+            );
+        }
+    }
+
+    @Getter
     private final CCPMessage type;
-    private final String[] arguments;
+    @Getter
+    private final int argumentCount;
+    private final int first;
+    private final int second;
+    private final int third;
+    private final int fourth;
+    private final String text;
 
-    private Message(CCPMessage type, String... arguments) {
+    Message(CCPMessage type, int argumentCount, int first, int second, int third, int fourth,
+            String text) {
         this.type = type;
-        this.arguments = arguments;
+        this.argumentCount = argumentCount;
+        this.first = first;
+        this.second = second;
+        this.third = third;
+        this.fourth = fourth;
+        this.text = text;
     }
 
-    @Override
-    public String toString() {
-        return "%s %s".formatted(
-                type,
-                String.join(DELIMITER, arguments)
-        );
+    /**
+     * Get a numeric argument of the message.
+     *
+     * @param index the index of the argument
+     * @return the value of the argument
+     * @throws IllegalStateException if the message has a textual argument
+     */
+    public int getInt(int index) {
+        if (!type.isNumeric()) {
+            throw new IllegalStateException(type + " has no numeric arguments");
+        }
+
+        return switch (Objects.checkIndex(index, Math.min(argumentCount, MAX_ARGUMENTS))) {
+            case 0 -> first;
+            case 1 -> second;
+            case 2 -> third;
+            default -> fourth;
+        };
+    }
+
+    /**
+     * @return the textual argument of a COLOR or REPLAY message, null for numeric messages
+     */
+    public String getText() {
+        return text;
     }
 
     /**
@@ -33,23 +85,99 @@ public final class Message {
      * @return the arguments of the message parsed as integers
      */
     public int[] getNumericArguments() {
-        return Arrays.stream(arguments).mapToInt(Integer::parseInt).toArray();
+        int[] arguments = new int[Math.min(argumentCount, MAX_ARGUMENTS)];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = getInt(i);
+        }
+        return arguments;
+    }
+
+    /**
+     * @return the arguments of the message in their textual form
+     */
+    public String[] getArguments() {
+        if (!type.isNumeric()) {
+            return null == text ? new String[0] : new String[]{text};
+        }
+
+        String[] arguments = new String[Math.min(argumentCount, MAX_ARGUMENTS)];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = String.valueOf(getInt(i));
+        }
+        return arguments;
+    }
+
+    /**
+     * Check if this message is an error of the given kind.
+     *
+     * @param error the error kind
+     * @return true if the message is an error of the given kind, false otherwise
+     */
+    public boolean isError(CCPError error) {
+        return type == CCPMessage.ERROR && argumentCount == 1 && first == error.ordinal();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(type.name());
+        if (type.isNumeric()) {
+            for (int i = 0; i < Math.min(argumentCount, MAX_ARGUMENTS); i++) {
+                builder.append(' ').append(getInt(i));
+            }
+        } else if (null != text) {
+            builder.append(' ').append(text);
+        }
+        return builder.toString();
     }
 
     public static Message parse(String socketMessage) {
-        String[] parts = socketMessage.split(DELIMITER);
-        CCPMessage type = CCPMessage.valueOf(parts[0]);
-        String[] arguments = Arrays.copyOfRange(parts, 1, parts.length);
-        return new Message(type, arguments);
+        return MessageCodec.decode(socketMessage);
     }
 
     public static Message of(CCPMessage type, String... arguments) {
         Assertions.assertTrue(type.nbrArguments() == arguments.length, "Wrong number of arguments");
-        return new Message(type, arguments);
+        if (type.isNumeric()) {
+            int[] values = new int[arguments.length];
+            for (int i = 0; i < arguments.length; i++) {
+                values[i] = Integer.parseInt(arguments[i]);
+            }
+            return of(type, values);
+        }
+
+        return new Message(type, 1, 0, 0, 0, 0, arguments[0]);
     }
 
     public static Message of(CCPMessage type, int... arguments) {
-        String[] stringArguments = Arrays.stream(arguments).mapToObj(String::valueOf).toArray(String[]::new);
-        return of(type, stringArguments);
+        Assertions.assertTrue(type.nbrArguments() == arguments.length, "Wrong number of arguments");
+        Assertions.assertTrue(type.isNumeric(), "Not a numeric message");
+        if (type == CCPMessage.ERROR) {
+            return ERRORS[arguments[0]];
+        }
+
+        return new Message(
+                type, arguments.length,
+                arguments.length > 0 ? arguments[0] : 0,
+                arguments.length > 1 ? arguments[1] : 0,
+                arguments.length > 2 ? arguments[2] : 0,
+                arguments.length > 3 ? arguments[3] : 0,
+                null
+        );
+    }
+
+    /**
+     * Create a MOVE message without going through the varargs array.
+     */
+    public static Message move(int fromX, int fromY, int toX, int toY) {
+        return new Message(CCPMessage.MOVE, 4, fromX, fromY, toX, toY, null);
+    }
+
+    /**
+     * Get the shared ERROR message of the given kind.
+     *
+     * @param error the error kind
+     * @return the error message
+     */
+    public static Message error(CCPError error) {
+        return ERRORS[error.ordinal()];
     }
 }
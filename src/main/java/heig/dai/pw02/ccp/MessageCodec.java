@@ -0,0 +1,442 @@
+package heig.dai.pw02.ccp;
+
+import heig.poo.chess.PlayerColor;
+import heig.poo.chess.engine.util.ChessString;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Codec of the CCP wire formats: the textual format, one ASCII line per message, and the binary
+ * framing of version 2, where a frame is a type byte with its high bit set followed by a fixed
+ * size payload. Frames are self-describing, a receiver always accepts both formats.
+ * <p>
+ * Lines are decoded straight from the bytes of a buffer: the type is resolved by comparing the
+ * first token against the pre-encoded type names and numeric arguments are parsed digit by digit,
+ * so decoding a numeric message only allocates the message itself. Known textual arguments
+ * (colors, replay answers) resolve to shared strings. Encoding writes the message into the output
+ * buffer without building any intermediate string.
+ */
+public final class MessageCodec {
+
+    public static final int TEXT_VERSION = 1;
+    public static final int BINARY_VERSION = 2;
+
+    public static final byte LINE_FEED = '\n';
+    private static final int BINARY_FLAG = 0x80;
+    private static final int SQUARE_BITS = 6;
+    private static final int SQUARE_MASK = (1 << SQUARE_BITS) - 1;
+    private static final int BOARD_SIZE = 8;
+    private static final byte CARRIAGE_RETURN = '\r';
+    private static final byte SPACE = ' ';
+    private static final byte MINUS = '-';
+    // Longer integers are not part of the protocol and could overflow
+    private static final int MAX_DIGITS = 9;
+
+    private static final CCPMessage[] TYPES = CCPMessage.values();
+    private static final CCPError[] ERRORS = CCPError.values();
+    private static final PlayerColor[] COLORS = PlayerColor.values();
+    private static final byte[][] TYPE_NAMES = new byte[TYPES.length][];
+    private static final String[] KNOWN_TEXTS = {
+            PlayerColor.WHITE.name(), PlayerColor.BLACK.name(), ChessString.YES, ChessString.NO
+    };
+    private static final byte[][] KNOWN_TEXT_BYTES = new byte[KNOWN_TEXTS.length][];
+
+    static {
+        for (CCPMessage type : TYPES) {
+            TYPE_NAMES[type.ordinal()] = type.name().getBytes(StandardCharsets.US_ASCII);
+        }
+        for (int i = 0; i < KNOWN_TEXTS.length; i++) {
+            KNOWN_TEXT_BYTES[i] = KNOWN_TEXTS[i].getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private MessageCodec() {
+    }
+
+    /**
+     * Find the end of the next line in the buffer.
+     *
+     * @param buffer the buffer
+     * @param from   the absolute index to start searching from
+     * @param to     the absolute index to stop searching at, exclusive
+     * @return the absolute index of the line feed, -1 if the line is not complete
+     */
+    public static int indexOfLineEnd(ByteBuffer buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == LINE_FEED) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get the length of the next frame in the buffer, text line or binary frame.
+     *
+     * @param buffer the buffer
+     * @param start  the absolute index of the first byte of the frame
+     * @param limit  the absolute index of the end of the received bytes, exclusive
+     * @return the length of the frame, line feed included, -1 if the frame is not complete
+     */
+    public static int frameLength(ByteBuffer buffer, int start, int limit) {
+        if (start >= limit) {
+            return -1;
+        }
+
+        int first = buffer.get(start) & 0xFF;
+        if ((first & BINARY_FLAG) == 0) {
+            int lineEnd = indexOfLineEnd(buffer, start, limit);
+            return lineEnd < 0 ? -1 : lineEnd + 1 - start;
+        }
+
+        int ordinal = first & ~BINARY_FLAG;
+        // NOTE: an unknown type is a single byte frame, rejected when decoded
+        int length = ordinal < TYPES.length ? 1 + payloadLength(TYPES[ordinal]) : 1;
+        return start + length <= limit ? length : -1;
+    }
+
+    /**
+     * Decode a frame of the buffer, as delimited by {@link #frameLength(ByteBuffer, int, int)}.
+     * The position of the buffer is left untouched.
+     *
+     * @param buffer the buffer holding the frame
+     * @param start  the absolute index of the first byte of the frame
+     * @param length the length of the frame
+     * @return the decoded message
+     * @throws IllegalArgumentException if the frame is not a valid message
+     */
+    public static Message decodeFrame(ByteBuffer buffer, int start, int length) {
+        if ((buffer.get(start) & BINARY_FLAG) == 0) {
+            return decode(buffer, start, start + length - 1);
+        }
+        return decodeBinary(buffer, start);
+    }
+
+    /**
+     * Decode a line of the buffer. The position of the buffer is left untouched.
+     *
+     * @param buffer the buffer holding the line
+     * @param start  the absolute index of the first byte of the line
+     * @param end    the absolute index of the line feed ending the line, or of the end of the line
+     * @return the decoded message
+     * @throws IllegalArgumentException if the line is not a valid message
+     */
+    public static Message decode(ByteBuffer buffer, int start, int end) {
+        if (end > start && buffer.get(end - 1) == CARRIAGE_RETURN) {
+            end--;
+        }
+
+        int tokenEnd = indexOf(buffer, SPACE, start, end);
+        CCPMessage type = resolveType(buffer, start, tokenEnd);
+
+        int count = 0;
+        int first = 0;
+        int second = 0;
+        int third = 0;
+        int fourth = 0;
+        String text = null;
+        int i = tokenEnd;
+        while (true) {
+            while (i < end && buffer.get(i) == SPACE) {
+                i++;
+            }
+            if (i == end) {
+                break;
+            }
+
+            int tokenStart = i;
+            i = indexOf(buffer, SPACE, i, end);
+            if (!type.isNumeric()) {
+                if (count == 0) {
+                    text = decodeText(buffer, tokenStart, i);
+                }
+            } else {
+                int value = parseInt(buffer, tokenStart, i);
+                switch (count) {
+                    case 0 -> first = value;
+                    case 1 -> second = value;
+                    case 2 -> third = value;
+                    case 3 -> fourth = value;
+                    default -> {
+                        // NOTE: extra arguments are validated but only counted
+                    }
+                }
+            }
+            count++;
+        }
+
+        if (type == CCPMessage.ERROR && count == 1 && first >= 0 && first < ERRORS.length) {
+            return Message.error(ERRORS[first]);
+        }
+
+        return new Message(type, count, first, second, third, fourth, text);
+    }
+
+    /**
+     * Decode a line held in a string.
+     *
+     * @param line the line, without the line feed
+     * @return the decoded message
+     * @throws IllegalArgumentException if the line is not a valid message
+     */
+    public static Message decode(String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        return decode(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+
+    /**
+     * Get an upper bound of the number of bytes written by {@link #encode(Message, ByteBuffer)}.
+     *
+     * @param message the message to encode
+     * @return the maximum encoded length of the message, line feed included
+     */
+    public static int maxEncodedLength(Message message) {
+        int length = TYPE_NAMES[message.getType().ordinal()].length + 1;
+        if (message.getType().isNumeric()) {
+            // A space, a sign and up to ten digits per argument
+            return length + Math.min(message.getArgumentCount(), Message.MAX_ARGUMENTS) * 12;
+        }
+
+        String text = message.getText();
+        return null == text ? length : length + 1 + text.length() * 3;
+    }
+
+    /**
+     * Encode a message at the position of the buffer, which is advanced past the frame. Messages
+     * that can't be represented in the binary framing, and HELLO messages, are always encoded as
+     * text. The buffer must have at least {@link #maxEncodedLength(Message)} bytes remaining.
+     *
+     * @param message the message to encode
+     * @param out     the output buffer
+     * @param binary  true to use the binary framing when possible
+     */
+    public static void encode(Message message, ByteBuffer out, boolean binary) {
+        if (binary && isBinaryEncodable(message)) {
+            encodeBinary(message, out);
+        } else {
+            encode(message, out);
+        }
+    }
+
+    /**
+     * Encode a message as a line at the position of the buffer, which is advanced past the line
+     * feed. The buffer must have at least {@link #maxEncodedLength(Message)} bytes remaining.
+     *
+     * @param message the message to encode
+     * @param out     the output buffer
+     */
+    public static void encode(Message message, ByteBuffer out) {
+        CCPMessage type = message.getType();
+        out.put(TYPE_NAMES[type.ordinal()]);
+        if (type.isNumeric()) {
+            for (int i = 0; i < Math.min(message.getArgumentCount(), Message.MAX_ARGUMENTS); i++) {
+                out.put(SPACE);
+                encodeInt(message.getInt(i), out);
+            }
+        } else if (null != message.getText()) {
+            out.put(SPACE);
+            encodeText(message.getText(), out);
+        }
+        out.put(LINE_FEED);
+    }
+
+    private static int payloadLength(CCPMessage type) {
+        return switch (type) {
+            case MOVE, PROMOTION -> 2;
+            case COLOR, REPLAY, ERROR, HELLO -> 1;
+        };
+    }
+
+    private static Message decodeBinary(ByteBuffer buffer, int start) {
+        int ordinal = buffer.get(start) & ~BINARY_FLAG & 0xFF;
+        if (ordinal >= TYPES.length) {
+            throw new IllegalArgumentException("Unknown binary message type " + ordinal);
+        }
+
+        int first = buffer.get(start + 1) & 0xFF;
+        return switch (TYPES[ordinal]) {
+            case MOVE -> {
+                int squares = first << Byte.SIZE | buffer.get(start + 2) & 0xFF;
+                if (squares >> 2 * SQUARE_BITS != 0) {
+                    throw new IllegalArgumentException("Invalid binary move");
+                }
+                int from = squares >> SQUARE_BITS;
+                int to = squares & SQUARE_MASK;
+                yield Message.move(
+                        from % BOARD_SIZE, from / BOARD_SIZE, to % BOARD_SIZE, to / BOARD_SIZE
+                );
+            }
+            case PROMOTION -> {
+                int square = buffer.get(start + 2) & 0xFF;
+                if (square > SQUARE_MASK) {
+                    throw new IllegalArgumentException("Invalid binary promotion");
+                }
+                yield new Message(
+                        CCPMessage.PROMOTION, 3, first, square % BOARD_SIZE, square / BOARD_SIZE, 0,
+                        null
+                );
+            }
+            case COLOR -> {
+                if (first >= COLORS.length) {
+                    throw new IllegalArgumentException("Invalid binary color");
+                }
+                yield new Message(CCPMessage.COLOR, 1, 0, 0, 0, 0, COLORS[first].name());
+            }
+            case REPLAY -> {
+                if (first > 1) {
+                    throw new IllegalArgumentException("Invalid binary replay");
+                }
+                String answer = first == 1 ? ChessString.YES : ChessString.NO;
+                yield new Message(CCPMessage.REPLAY, 1, 0, 0, 0, 0, answer);
+            }
+            case ERROR -> first < ERRORS.length
+                    ? Message.error(ERRORS[first])
+                    : new Message(CCPMessage.ERROR, 1, first, 0, 0, 0, null);
+            case HELLO -> new Message(CCPMessage.HELLO, 1, first, 0, 0, 0, null);
+        };
+    }
+
+    private static boolean isBinaryEncodable(Message message) {
+        CCPMessage type = message.getType();
+        if (message.getArgumentCount() != type.nbrArguments()) {
+            return false;
+        }
+
+        return switch (type) {
+            case MOVE -> isCoordinate(message.getInt(0)) && isCoordinate(message.getInt(1))
+                    && isCoordinate(message.getInt(2)) && isCoordinate(message.getInt(3));
+            case PROMOTION -> isByte(message.getInt(0))
+                    && isCoordinate(message.getInt(1)) && isCoordinate(message.getInt(2));
+            case COLOR -> PlayerColor.WHITE.name().equals(message.getText())
+                    || PlayerColor.BLACK.name().equals(message.getText());
+            case REPLAY -> ChessString.YES.equals(message.getText())
+                    || ChessString.NO.equals(message.getText());
+            case ERROR -> isByte(message.getInt(0));
+            // The negotiation is always readable by text only peers
+            case HELLO -> false;
+        };
+    }
+
+    private static void encodeBinary(Message message, ByteBuffer out) {
+        CCPMessage type = message.getType();
+        out.put((byte) (BINARY_FLAG | type.ordinal()));
+        switch (type) {
+            case MOVE -> {
+                int from = square(message.getInt(0), message.getInt(1));
+                int to = square(message.getInt(2), message.getInt(3));
+                out.putShort((short) (from << SQUARE_BITS | to));
+            }
+            case PROMOTION -> {
+                out.put((byte) message.getInt(0));
+                out.put((byte) square(message.getInt(1), message.getInt(2)));
+            }
+            case COLOR -> out.put((byte) PlayerColor.valueOf(message.getText()).ordinal());
+            case REPLAY -> out.put((byte) (ChessString.YES.equals(message.getText()) ? 1 : 0));
+            case ERROR, HELLO -> out.put((byte) message.getInt(0));
+        }
+    }
+
+    private static int square(int x, int y) {
+        return y * BOARD_SIZE + x;
+    }
+
+    private static boolean isCoordinate(int value) {
+        return value >= 0 && value < BOARD_SIZE;
+    }
+
+    private static boolean isByte(int value) {
+        return value >= 0 && value <= 0xFF;
+    }
+
+    private static CCPMessage resolveType(ByteBuffer buffer, int start, int end) {
+        for (CCPMessage type : TYPES) {
+            if (matches(buffer, start, end, TYPE_NAMES[type.ordinal()])) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Unknown message type");
+    }
+
+    private static String decodeText(ByteBuffer buffer, int start, int end) {
+        for (int i = 0; i < KNOWN_TEXTS.length; i++) {
+            if (matches(buffer, start, end, KNOWN_TEXT_BYTES[i])) {
+                return KNOWN_TEXTS[i];
+            }
+        }
+
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int parseInt(ByteBuffer buffer, int start, int end) {
+        boolean negative = buffer.get(start) == MINUS;
+        int i = negative ? start + 1 : start;
+        if (i == end || end - i > MAX_DIGITS) {
+            throw new NumberFormatException("Invalid numeric argument");
+        }
+
+        int value = 0;
+        for (; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Invalid numeric argument");
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    private static void encodeInt(int value, ByteBuffer out) {
+        long remaining = value;
+        if (remaining < 0) {
+            out.put(MINUS);
+            remaining = -remaining;
+        }
+
+        int digits = 1;
+        for (long bound = 10; bound <= remaining; bound *= 10) {
+            digits++;
+        }
+
+        int end = out.position() + digits;
+        for (int i = end - 1; i >= out.position(); i--) {
+            out.put(i, (byte) ('0' + remaining % 10));
+            remaining /= 10;
+        }
+        out.position(end);
+    }
+
+    private static void encodeText(String text, ByteBuffer out) {
+        for (int i = 0; i < KNOWN_TEXTS.length; i++) {
+            if (KNOWN_TEXTS[i].equals(text)) {
+                out.put(KNOWN_TEXT_BYTES[i]);
+                return;
+            }
+        }
+        out.put(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static boolean matches(ByteBuffer buffer, int start, int end, byte[] expected) {
+        if (end - start != expected.length) {
+            return false;
+        }
+
+        for (int i = 0; i < expected.length; i++) {
+            if (buffer.get(start + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(ByteBuffer buffer, byte value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == value) {
+                return i;
+            }
+        }
+        return to;
+    }
+}
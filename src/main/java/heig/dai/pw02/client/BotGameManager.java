@@ -0,0 +1,90 @@
+package heig.dai.pw02.client;
+
+import heig.poo.chess.ChessView.UserChoice;
+import heig.poo.chess.PieceType;
+import heig.poo.chess.PlayerColor;
+import heig.poo.chess.engine.GameManager;
+import heig.poo.chess.engine.bitboard.Bitboards;
+import heig.poo.chess.engine.bitboard.Move;
+import heig.poo.chess.engine.bitboard.MoveList;
+import heig.poo.chess.engine.piece.ChessPiece;
+import heig.poo.chess.views.HeadlessView;
+import java.util.Random;
+
+/**
+ * Headless game manager playing random legal moves, used to generate load on a server. The moves
+ * are validated by the rules of the game manager, nothing is displayed.
+ */
+public final class BotGameManager extends GameManager {
+
+    private final Random random;
+    private final MoveList legalMoves = new MoveList();
+    private ChessPiece lastPromotion;
+
+    public BotGameManager(Random random) {
+        this.random = random;
+        start(new HeadlessView(random));
+    }
+
+    /**
+     * Pick one of the legal moves of the player to move, uniformly at random.
+     *
+     * @return the move as {@code {fromX, fromY, toX, toY}}, or null if no move is possible
+     */
+    public int[] pickRandomMove() {
+        int move = 0;
+        int candidates = 0;
+        generateLegalMoves(legalMoves);
+        for (int i = 0; i < legalMoves.size(); i++) {
+            int candidate = legalMoves.get(i);
+            // Reservoir sampling, every legal move has the same chance to be kept. The piece
+            // chosen by a promotion is picked later, so a promotion is counted once
+            PieceType promotion = Move.promotionOf(candidate);
+            if ((null == promotion || promotion == PieceType.QUEEN)
+                    && random.nextInt(++candidates) == 0) {
+                move = candidate;
+            }
+        }
+
+        if (candidates == 0) {
+            return null;
+        }
+
+        int from = Move.from(move);
+        int to = Move.to(move);
+        return new int[]{
+                Bitboards.xOf(from), Bitboards.yOf(from), Bitboards.xOf(to), Bitboards.yOf(to)
+        };
+    }
+
+    /**
+     * Get the piece chosen by the last move of a pawn reaching the last rank, and forget it.
+     *
+     * @return the chosen piece, null if the last move was not a promotion
+     */
+    public ChessPiece takePromotion() {
+        ChessPiece promotion = lastPromotion;
+        lastPromotion = null;
+        return promotion;
+    }
+
+    public PlayerColor getPlayerTurn() {
+        return playerTurn();
+    }
+
+    public boolean isGameOver() {
+        return isEndGame();
+    }
+
+    @Override
+    protected ChessPiece askUserForPromotion(String header, String question, ChessPiece[] options) {
+        lastPromotion = options[random.nextInt(options.length)];
+        return lastPromotion;
+    }
+
+    @Override
+    protected UserChoice askUserToPlayAgain(String header, String question, UserChoice[] choices) {
+        // NOTE: the replay is negotiated with the server by the load generator
+        return null;
+    }
+}
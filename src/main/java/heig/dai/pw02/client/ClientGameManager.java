@@ -1,17 +1,19 @@
 package heig.dai.pw02.client;
 
 import heig.dai.pw02.ccp.CCPError;
-import heig.dai.pw02.ccp.CCPMessage;
 import heig.dai.pw02.ccp.Message;
 import heig.poo.chess.ChessView;
 import heig.poo.chess.ChessView.UserChoice;
 import heig.poo.chess.PieceType;
 import heig.poo.chess.PlayerColor;
 import heig.poo.chess.engine.GameManager;
+import heig.poo.chess.engine.GameStatus;
 import heig.poo.chess.engine.piece.ChessPiece;
 import heig.poo.chess.engine.util.ChessString;
 import heig.poo.chess.views.gui.GUIView;
 import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
@@ -19,6 +21,12 @@ public class ClientGameManager extends GameManager {
 
     private final ServerHandler server;
     private final PlayerColor myColor;
+    // Remote moves may wait for a promotion, they can't run on the reader of the connection
+    private final Executor remoteMoveExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "remote-move");
+        thread.setDaemon(true);
+        return thread;
+    });
     private boolean boardIsBlocked = false;
 
     public ClientGameManager(ServerHandler server) {
@@ -46,17 +54,15 @@ public class ClientGameManager extends GameManager {
      * Function used to listen to the server and make the move sent by the server.
      */
     private void listenMove() {
-        server.awaitMove().thenAccept(message -> {
-            int[] parsedArgs = message.getNumericArguments();
-            if (message.getType().equals(CCPMessage.ERROR)
-                    && CCPError.values()[message.getNumericArguments()[0]].equals(CCPError.DISCONNECTED)) {
+        server.awaitMove().thenAcceptAsync(message -> {
+            if (message.isError(CCPError.DISCONNECTED)) {
                 chessView.displayMessage("The other player disconnected. YOU WON!");
                 server.disconnect();
                 return;
             }
             
-            remoteMove(parsedArgs[0], parsedArgs[1], parsedArgs[2], parsedArgs[3]);
-        });
+            remoteMove(message.getInt(0), message.getInt(1), message.getInt(2), message.getInt(3));
+        }, remoteMoveExecutor);
     }
 
     /**
@@ -99,6 +105,15 @@ public class ClientGameManager extends GameManager {
         return false;
     }
 
+    @Override
+    public long legalDestinations(int x, int y) {
+        if (boardIsBlocked || playerTurn() != myColor) {
+            return 0;
+        }
+
+        return super.legalDestinations(x, y);
+    }
+
     /**
      * Ask the user for a promotion. In the case of a remote game, we send the choice to the server.
      *
@@ -122,10 +137,9 @@ public class ClientGameManager extends GameManager {
 
         log.debug("Waiting for the other player to choose a promotion");
         Message message = server.awaitPromotion().join();
-        int[] parsedArgs = message.getNumericArguments();
-        PieceType pieceType = PieceType.values()[parsedArgs[0]];
+        PieceType pieceType = PieceType.values()[message.getInt(0)];
         for (ChessPiece piece : options) {
-            if (piece.getPieceType() == pieceType && piece.getX() == parsedArgs[1] && piece.getY() == parsedArgs[2]) {
+            if (piece.getPieceType() == pieceType && piece.getX() == message.getInt(1) && piece.getY() == message.getInt(2)) {
                 return piece;
             }
         }
@@ -155,7 +169,7 @@ public class ClientGameManager extends GameManager {
     }
 
     @Override
-    protected void postGameActions(boolean checkMate, boolean pat, boolean impossibleOfCheckMate) {
+    protected void postGameActions(GameStatus status) {
         // NOTE: Handled asynchronously when receiving the request from the server
     }
 
@@ -164,7 +178,7 @@ public class ClientGameManager extends GameManager {
         boardIsBlocked = true;
         chessView.displayMessage("Waiting for the other player to choose");
         Message otherPlayerReplay = server.awaitReplay().join();
-        String replay = otherPlayerReplay.getArguments()[0];
+        String replay = otherPlayerReplay.getText();
         if (replay.equals(ChessString.NO)) {
             System.exit(0);
         }
@@ -0,0 +1,353 @@
+package heig.dai.pw02.client;
+
+import heig.dai.pw02.ccp.CCPError;
+import heig.dai.pw02.ccp.CCPMessage;
+import heig.dai.pw02.ccp.Message;
+import heig.dai.pw02.metrics.Histogram;
+import heig.poo.chess.PlayerColor;
+import heig.poo.chess.engine.piece.ChessPiece;
+import heig.poo.chess.engine.util.ChessString;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Load generator playing random legal games against a server. Connections are opened two by two,
+ * and both connections of a pair play against each other: a single thread plays both sides, so the
+ * time taken by the server to relay a move from a player to the other is measured with one clock.
+ * <p>
+ * A pair keeps playing games, with a rematch after each one, until the end of the run. A game
+ * that reaches the move limit is abandoned, both connections are closed and a new pair is opened.
+ * The server must not serve other clients during the run, otherwise the connections of a pair
+ * could be paired with someone else.
+ */
+@Slf4j
+public final class LoadGenerator {
+
+    private static final long TIMEOUT_SECONDS = 10;
+    // Wait before connecting again once a pair could not be connected, not to spin on a refusal
+    private static final long CONNECT_BACKOFF_MILLIS = 100;
+    // Both connections of a pair must reach the server one after the other to be paired together
+    private static final Object CONNECT_LOCK = new Object();
+
+    private final String host;
+    private final int port;
+    private final int connections;
+    private final int maxPlies;
+    private final boolean binary;
+    private final long seed;
+
+    private final Histogram relayLatency = new Histogram();
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder finishedGames = new LongAdder();
+    private final LongAdder abandonedGames = new LongAdder();
+    private final LongAdder failedGames = new LongAdder();
+
+    /**
+     * Create a load generator.
+     *
+     * @param host        the host of the server
+     * @param port        the port of the server
+     * @param connections the number of concurrent connections, rounded down to an even number
+     * @param maxPlies    the number of moves after which a game is abandoned
+     * @param binary      whether to offer the binary framing to the server
+     * @param seed        the seed of the random moves
+     */
+    public LoadGenerator(String host, int port, int connections, int maxPlies, boolean binary,
+                         long seed) {
+        if (connections < 2) {
+            throw new IllegalArgumentException("At least two connections are required");
+        }
+
+        this.host = host;
+        this.port = port;
+        this.connections = connections - connections % 2;
+        this.maxPlies = maxPlies;
+        this.binary = binary;
+        this.seed = seed;
+    }
+
+    /**
+     * Play games until the given duration elapsed, then wait for the games being played.
+     *
+     * @param durationSeconds the duration of the run in seconds
+     * @return the report of the run
+     * @throws InterruptedException if interrupted while waiting for the games
+     */
+    public Report run(long durationSeconds) throws InterruptedException {
+        int pairs = connections / 2;
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(pairs, runnable -> {
+            Thread thread = new Thread(runnable, "bench-pair-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(durationSeconds);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int i = 0; i < pairs; i++) {
+            Random random = new Random(seed + i);
+            tasks.add(executor.submit(() -> playUntil(deadline, random)));
+        }
+
+        for (Future<?> task : tasks) {
+            try {
+                task.get();
+            } catch (ExecutionException e) {
+                log.error("A pair of connections stopped", e.getCause());
+            }
+        }
+        executor.shutdown();
+
+        return new Report(
+                System.nanoTime() - start, connections, finishedGames.sum(),
+                abandonedGames.sum(), failedGames.sum(), moves.sum(), relayLatency
+        );
+    }
+
+    /**
+     * Play games on new pairs of connections until the deadline. A failing game, or a pair that
+     * could not be connected, is counted as failed and the next pair is connected.
+     */
+    private void playUntil(long deadline, Random random) {
+        while (System.nanoTime() < deadline && !Thread.currentThread().isInterrupted()) {
+            Pair pair;
+            try {
+                pair = connect();
+            } catch (RuntimeException e) {
+                log.warn("Could not connect a pair: {}", e.getMessage());
+                failedGames.increment();
+                backOff();
+                continue;
+            }
+
+            try (pair) {
+                playGames(pair, deadline, random);
+            } catch (RuntimeException e) {
+                // NOTE: the rules throw IllegalArgumentException on an inconsistent board
+                log.warn("A game failed: {}", e.getMessage());
+                failedGames.increment();
+            }
+        }
+    }
+
+    private static void backOff() {
+        try {
+            Thread.sleep(CONNECT_BACKOFF_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Pair connect() {
+        ServerHandler white;
+        ServerHandler black;
+        synchronized (CONNECT_LOCK) {
+            white = new ServerHandler(openSocket());
+            black = new ServerHandler(openSocket());
+        }
+
+        Pair pair = new Pair(white, black);
+        try {
+            if (binary) {
+                white.requestBinaryFraming();
+                black.requestBinaryFraming();
+            }
+            if (await(white.awaitColor()) != PlayerColor.WHITE
+                    || await(black.awaitColor()) != PlayerColor.BLACK) {
+                throw new IllegalStateException(
+                        "The server paired the connections with other clients"
+                );
+            }
+            return pair;
+        } catch (RuntimeException e) {
+            pair.close();
+            throw e;
+        }
+    }
+
+    private Socket openSocket() {
+        try {
+            return new Socket(host, port);
+        } catch (IOException e) {
+            log.error("Error while connecting to the server");
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void playGames(Pair pair, long deadline, Random random) {
+        BotGameManager game = new BotGameManager(random);
+        while (true) {
+            int plies = 0;
+            while (!game.isGameOver()) {
+                if (plies++ == maxPlies) {
+                    abandonedGames.increment();
+                    return;
+                }
+                playMove(pair, game);
+            }
+            finishedGames.increment();
+
+            String replay = System.nanoTime() < deadline ? ChessString.YES : ChessString.NO;
+            pair.white.sendReplay(replay);
+            pair.black.sendReplay(replay);
+            Message whiteAnswer = await(pair.white.awaitReplay());
+            Message blackAnswer = await(pair.black.awaitReplay());
+            if (!ChessString.YES.equals(whiteAnswer.getText())
+                    || !ChessString.YES.equals(blackAnswer.getText())) {
+                return;
+            }
+            game.newGame();
+        }
+    }
+
+    /**
+     * Play a random move for the player to move, and check that the server relays it to the
+     * opponent.
+     */
+    private void playMove(Pair pair, BotGameManager game) {
+        PlayerColor color = game.getPlayerTurn();
+        ServerHandler player = pair.get(color);
+        ServerHandler opponent = pair.get(color.opposite());
+        int[] move = game.pickRandomMove();
+        if (null == move || !game.move(move[0], move[1], move[2], move[3])) {
+            throw new GameFailedException("No move was found for " + color);
+        }
+
+        ChessPiece promotion = game.takePromotion();
+        if (null != promotion) {
+            player.sendPromotion(promotion);
+        }
+        long sent = System.nanoTime();
+        player.sendMove(move[0], move[1], move[2], move[3]);
+        Message received = await(opponent.awaitMove());
+        relayLatency.record(System.nanoTime() - sent);
+        moves.increment();
+        expect(Message.move(move[0], move[1], move[2], move[3]), received);
+
+        if (null != promotion) {
+            expect(Message.of(
+                    CCPMessage.PROMOTION, promotion.getPieceType().ordinal(),
+                    promotion.getX(), promotion.getY()
+            ), await(opponent.awaitPromotion()));
+        }
+    }
+
+    private static void expect(Message expected, Message received) {
+        if (received.isError(CCPError.DISCONNECTED)) {
+            throw new GameFailedException("The server closed the connection");
+        }
+        if (!expected.toString().equals(received.toString())) {
+            throw new GameFailedException("Sent " + expected + " but received " + received);
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            throw new GameFailedException("No answer from the server");
+        } catch (ExecutionException e) {
+            throw new GameFailedException(e.getCause().toString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GameFailedException("Interrupted");
+        }
+    }
+
+    /**
+     * Results of a run.
+     *
+     * @param elapsedNanos   the duration of the run
+     * @param connections    the number of concurrent connections
+     * @param finishedGames  the number of games played until their end
+     * @param abandonedGames the number of games abandoned at the move limit
+     * @param failedGames    the number of games that failed
+     * @param moves          the number of moves relayed by the server
+     * @param relayLatency   the time taken by the server to relay each move, in nanoseconds
+     */
+    public record Report(
+            long elapsedNanos,
+            int connections,
+            long finishedGames,
+            long abandonedGames,
+            long failedGames,
+            long moves,
+            Histogram relayLatency
+    ) {
+
+        public double gamesPerSecond() {
+            return perSecond(finishedGames + abandonedGames);
+        }
+
+        public double movesPerSecond() {
+            return perSecond(moves);
+        }
+
+        private double perSecond(long count) {
+            return count * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "%d connections for %.1f s%n"
+                            + "Games: %d finished, %d abandoned, %d failed, %.1f games/s%n"
+                            + "Moves: %d, %.0f moves/s%n"
+                            + "Move relay latency: p50 %.3f ms, p99 %.3f ms, p999 %.3f ms,"
+                            + " max %.3f ms",
+                    connections, elapsedNanos / 1e9,
+                    finishedGames, abandonedGames, failedGames, gamesPerSecond(),
+                    moves, movesPerSecond(),
+                    millis(relayLatency.getPercentile(0.5)), millis(relayLatency.getPercentile(0.99)),
+                    millis(relayLatency.getPercentile(0.999)), millis(relayLatency.getMax())
+            );
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1e6;
+        }
+    }
+
+    private record Pair(ServerHandler white, ServerHandler black) implements Closeable {
+
+        ServerHandler get(PlayerColor color) {
+            return color == PlayerColor.WHITE ? white : black;
+        }
+
+        @Override
+        public void close() {
+            for (ServerHandler player : new ServerHandler[]{white, black}) {
+                try {
+                    player.disconnect();
+                } catch (UncheckedIOException e) {
+                    log.debug("Error while closing a connection", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Thrown when the server does not relay a game as expected.
+     */
+    private static final class GameFailedException extends RuntimeException {
+        GameFailedException(String message) {
+            super(message);
+        }
+    }
+}
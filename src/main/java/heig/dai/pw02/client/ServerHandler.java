@@ -2,10 +2,12 @@ package heig.dai.pw02.client;
 
 import heig.dai.pw02.ccp.CCPHandler;
 import heig.dai.pw02.ccp.CCPMessage;
+import heig.dai.pw02.ccp.MessageCodec;
 import heig.poo.chess.PlayerColor;
 
 import java.net.Socket;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 public class ServerHandler extends CCPHandler {
 
@@ -13,9 +15,21 @@ public class ServerHandler extends CCPHandler {
         super(playerConnection);
     }
 
+    public ServerHandler(Socket playerConnection, Executor readerExecutor) {
+        super(playerConnection, readerExecutor);
+    }
+
+    /**
+     * Offer the binary framing to the server. Only servers understanding HELLO can answer it,
+     * older servers fail on the unknown message and end the game.
+     */
+    public void requestBinaryFraming() {
+        requestVersion(MessageCodec.BINARY_VERSION);
+    }
+
     public CompletableFuture<PlayerColor> awaitColor() {
         return awaitMessage(CCPMessage.COLOR).thenApply(
-                message -> PlayerColor.valueOf(message.getArguments()[0])
+                message -> PlayerColor.valueOf(message.getText())
         );
     }
 }
\ No newline at end of file
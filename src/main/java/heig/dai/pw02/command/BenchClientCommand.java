@@ -0,0 +1,81 @@
+package heig.dai.pw02.command;
+
+import heig.dai.pw02.client.LoadGenerator;
+
+import java.util.concurrent.Callable;
+
+import lombok.extern.slf4j.Slf4j;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+/**
+ * Command to put a server under load with headless clients playing random games
+ *
+ * @author Loïc Herman
+ * @author Massimo Steffani
+ */
+@Slf4j
+@Command(
+        name = "bench-client",
+        description = "Play random games on many connections and report the server throughput"
+)
+public class BenchClientCommand implements Callable<Integer> {
+
+    @Option(
+            names = {"-H", "--host"},
+            description = "server host IP address",
+            defaultValue = "127.0.0.1"
+    )
+    private String ipAddress;
+
+    @Option(
+            names = {"-p", "--port"},
+            description = "server port",
+            defaultValue = "6343"
+    )
+    private int port;
+
+    @Option(
+            names = {"-c", "--connections"},
+            description = "number of concurrent connections, two per game",
+            defaultValue = "100"
+    )
+    private int connections;
+
+    @Option(
+            names = {"-d", "--duration"},
+            description = "duration of the run in seconds",
+            defaultValue = "10"
+    )
+    private long duration;
+
+    @Option(
+            names = "--max-plies",
+            description = "number of moves after which a game is abandoned",
+            defaultValue = "400"
+    )
+    private int maxPlies;
+
+    @Option(
+            names = "--seed",
+            description = "seed of the random moves",
+            defaultValue = "42"
+    )
+    private long seed;
+
+    @Option(
+            names = {"--binary"},
+            description = "offer the compact binary framing to the server"
+    )
+    private boolean binary;
+
+    @Override
+    public Integer call() throws InterruptedException {
+        log.info("Playing on {} connections for {} s", connections, duration);
+        LoadGenerator.Report report = new LoadGenerator(
+                ipAddress, port, connections, maxPlies, binary, seed
+        ).run(duration);
+        System.out.println(report);
+        return report.failedGames() == 0 ? 0 : 1;
+    }
+}
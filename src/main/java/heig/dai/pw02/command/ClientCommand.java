@@ -38,11 +38,22 @@ public class ClientCommand implements Runnable {
     )
     private int port;
 
+    @Option(
+            names = {"--binary"},
+            description = "offer the compact binary framing to the server, "
+                    + "which must understand HELLO"
+    )
+    private boolean binary;
+
     @Override
     public void run() {
         Socket socket = openSocket(ipAddress, port);
         log.info("Connected to server, waiting for game to start...");
-        new ClientGameManager(new ServerHandler(socket)).start();
+        ServerHandler server = new ServerHandler(socket);
+        if (binary) {
+            server.requestBinaryFraming();
+        }
+        new ClientGameManager(server).start();
     }
 
     private Socket openSocket(String server, int port) {
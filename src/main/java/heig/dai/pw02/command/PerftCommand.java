@@ -0,0 +1,146 @@
+package heig.dai.pw02.command;
+
+import heig.poo.chess.engine.bitboard.Fen;
+import heig.poo.chess.engine.bitboard.Perft;
+import heig.poo.chess.engine.bitboard.Position;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.slf4j.Slf4j;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+/**
+ * Command to count the leaf nodes of the tree of legal moves of a position, checked against the
+ * published counts of well-known positions
+ *
+ * @author Loïc Herman
+ * @author Massimo Steffani
+ */
+@Slf4j
+@Command(
+        name = "perft",
+        description = "Count the positions reached by the legal moves down to a given depth"
+)
+public class PerftCommand implements Callable<Integer> {
+
+    // Counts published on https://www.chessprogramming.org/Perft_Results, from depth 1
+    private static final Map<String, long[]> PUBLISHED_COUNTS = Map.of(
+            Fen.START_POSITION,
+            new long[]{20, 400, 8_902, 197_281, 4_865_609, 119_060_324},
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            new long[]{48, 2_039, 97_862, 4_085_603, 193_690_690},
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            new long[]{14, 191, 2_812, 43_238, 674_624, 11_030_083, 178_633_661},
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            new long[]{6, 264, 9_467, 422_333, 15_833_292},
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+            new long[]{44, 1_486, 62_379, 2_103_487, 89_941_194},
+            "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+            new long[]{46, 2_079, 89_890, 3_894_594, 164_075_551}
+    );
+
+    @Option(
+            names = {"-d", "--depth"},
+            description = "depth of the tree of moves",
+            defaultValue = "5"
+    )
+    private int depth;
+
+    @Option(
+            names = {"-f", "--fen"},
+            description = "position to start from, in the Forsyth-Edwards Notation",
+            defaultValue = Fen.START_POSITION
+    )
+    private String fen;
+
+    @Option(
+            names = "--divide",
+            description = "print the count below each legal move of the position"
+    )
+    private boolean divide;
+
+    @Option(
+            names = {"-t", "--threads"},
+            description = "number of threads counting the legal moves of the position in parallel",
+            defaultValue = "1"
+    )
+    private int threads;
+
+    @Override
+    public Integer call() {
+        if (depth < 1 || threads < 1) {
+            log.error("The depth and the number of threads must be positive");
+            return 2;
+        }
+
+        Position position;
+        try {
+            position = Fen.parse(fen);
+        } catch (IllegalArgumentException e) {
+            log.error(e.getMessage());
+            return 2;
+        }
+
+        log.info("Counting to depth {} on {} thread(s)", depth, threads);
+        long start = System.nanoTime();
+        List<Perft.Division> divisions = count(position);
+        long elapsed = Math.max(1, System.nanoTime() - start);
+
+        long nodes = 0;
+        for (Perft.Division division : divisions) {
+            if (divide) {
+                System.out.println(division);
+            }
+            nodes += division.nodes();
+        }
+        System.out.printf(
+                "Nodes: %d in %d ms, %d nodes/s%n",
+                nodes,
+                TimeUnit.NANOSECONDS.toMillis(elapsed),
+                nodes * TimeUnit.SECONDS.toNanos(1) / elapsed
+        );
+
+        return checkPublishedCount(position, nodes) ? 0 : 1;
+    }
+
+    private List<Perft.Division> count(Position position) {
+        if (threads == 1) {
+            return new Perft(depth).divide(position, depth);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return Perft.divide(position, depth, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Compare the count with the published one, when the position is a well-known one.
+     *
+     * @return False if the counts differ, true otherwise.
+     */
+    private boolean checkPublishedCount(Position position, long nodes) {
+        for (Map.Entry<String, long[]> published : PUBLISHED_COUNTS.entrySet()) {
+            long[] counts = published.getValue();
+            if (depth > counts.length || !Fen.parse(published.getKey()).equals(position)) {
+                continue;
+            }
+
+            long expected = counts[depth - 1];
+            if (expected != nodes) {
+                System.out.printf("Mismatch: %d nodes published%n", expected);
+                return false;
+            }
+            System.out.println("Matches the published count");
+        }
+
+        return true;
+    }
+}
@@ -1,9 +1,20 @@
 package heig.dai.pw02.command;
 
+import heig.dai.pw02.metrics.Metrics;
+import heig.dai.pw02.metrics.MetricsServer;
+import heig.dai.pw02.server.GameStore;
+import heig.dai.pw02.server.ServerGameManager;
 import heig.dai.pw02.server.ServerGamePool;
+import heig.dai.pw02.socket.NioEventLoopGroup;
+import heig.dai.pw02.socket.WriteStatistics;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
 import java.util.concurrent.Callable;
 
 import lombok.extern.slf4j.Slf4j;
@@ -30,10 +41,123 @@ public class ServerCommand implements Callable<Integer> {
     )
     private int port;
 
+    @Option(
+            names = {"-g", "--max-games"},
+            description = "maximum number of games played concurrently, 0 for unbounded",
+            defaultValue = "0"
+    )
+    private int maxGames;
+
+    @Option(
+            names = "--nio",
+            description = "serve the players from non-blocking selector threads"
+    )
+    private boolean nio;
+
+    @Option(
+            names = "--io-threads",
+            description = "number of selector threads used with --nio, defaults to the number of CPUs"
+    )
+    private int ioThreads = Runtime.getRuntime().availableProcessors();
+
+    @Option(
+            names = "--metrics-port",
+            description = "port of the local Prometheus metrics endpoint, disabled by default",
+            defaultValue = "0"
+    )
+    private int metricsPort;
+
+    @Option(
+            names = "--park-after",
+            description = "seconds a player may stay idle before their game is parked, "
+                    + "0 to never park games",
+            defaultValue = "0"
+    )
+    private int parkAfter;
+
+    @Option(
+            names = "--hot-games",
+            description = "maximum number of parked games kept in memory",
+            defaultValue = "1000"
+    )
+    private int hotGames;
+
+    @Option(
+            names = "--cold-games",
+            description = "maximum number of parked games written outside the heap",
+            defaultValue = "10000"
+    )
+    private int coldGames;
+
+    @Option(
+            names = "--park-file",
+            description = "file mapped to hold the cold games, a direct buffer by default"
+    )
+    private Path parkFile;
+
     @Override
     public Integer call() {
-        ServerGamePool pool = new ServerGamePool();
         log.info("Starting server on port {}", port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> log.info(
+                "Sent {} messages in {} writes, {} system calls saved by coalescing",
+                WriteStatistics.getTotalMessages(), WriteStatistics.getTotalWrites(),
+                WriteStatistics.getTotalSavedWrites()
+        )));
+        try (var store = createStore();
+             var pool = new ServerGamePool(maxGames, List.of(ServerGamePool.DEFAULT_QUEUE), store);
+             var metrics = startMetrics(pool, store)) {
+            if (nio) {
+                acceptChannels(pool);
+            } else {
+                acceptSockets(pool);
+            }
+        } catch (IOException e) {
+            log.error("Error while creating server socket", e);
+            return 1;
+        }
+
+        return 0;
+    }
+
+    /**
+     * Start the metrics endpoint if enabled.
+     *
+     * @return the endpoint, null if disabled
+     */
+    private MetricsServer startMetrics(ServerGamePool pool, GameStore<?> store)
+            throws IOException {
+        if (metricsPort <= 0) {
+            return null;
+        }
+
+        pool.registerMetrics(Metrics.REGISTRY);
+        if (null != store) {
+            store.registerMetrics(Metrics.REGISTRY);
+        }
+        return new MetricsServer(Metrics.REGISTRY, metricsPort);
+    }
+
+    /**
+     * Create the store of the idle games if parking is enabled.
+     *
+     * @return the store, null if disabled
+     */
+    private GameStore<ServerGameManager> createStore() {
+        if (parkAfter <= 0) {
+            return null;
+        }
+
+        log.info(
+                "Parking games idle for {} s, {} hot and {} cold games at most",
+                parkAfter, hotGames, coldGames
+        );
+        return new GameStore<>(
+                Duration.ofSeconds(parkAfter), hotGames, coldGames,
+                GameStore.DEFAULT_MAX_MOVES, parkFile
+        );
+    }
+
+    private void acceptSockets(ServerGamePool pool) throws IOException {
         try (var serverSocket = new ServerSocket(port)) {
             while (!serverSocket.isClosed()) {
                 try {
@@ -44,11 +168,23 @@ public class ServerCommand implements Callable<Integer> {
                     log.error("Error while accepting connection", e);
                 }
             }
-        } catch (IOException e) {
-            log.error("Error while creating server socket", e);
-            return 1;
         }
+    }
 
-        return 0;
+    private void acceptChannels(ServerGamePool pool) throws IOException {
+        log.info("Serving players from {} selector threads", ioThreads);
+        try (var eventLoops = new NioEventLoopGroup(ioThreads);
+             var serverChannel = ServerSocketChannel.open()) {
+            serverChannel.bind(new InetSocketAddress(port));
+            while (serverChannel.isOpen()) {
+                try {
+                    var clientChannel = serverChannel.accept();
+                    log.info("New connection from {}", clientChannel.getRemoteAddress());
+                    pool.handleIncomingPlayer(eventLoops.register(clientChannel));
+                } catch (IOException e) {
+                    log.error("Error while accepting connection", e);
+                }
+            }
+        }
     }
 }
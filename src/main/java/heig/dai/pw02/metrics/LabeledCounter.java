@@ -0,0 +1,39 @@
+package heig.dai.pw02.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonic counters labeled by the constants of an enum, such as the message types. Each
+ * constant has its own counter, looked up by ordinal, so incrementing never allocates.
+ *
+ * @param <E> the type of the labels
+ */
+public final class LabeledCounter<E extends Enum<E>> {
+
+    private final E[] labels;
+    private final LongAdder[] values;
+
+    LabeledCounter(Class<E> type) {
+        this.labels = type.getEnumConstants();
+        this.values = new LongAdder[labels.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = new LongAdder();
+        }
+    }
+
+    public void increment(E label) {
+        values[label.ordinal()].increment();
+    }
+
+    public void add(E label, long amount) {
+        values[label.ordinal()].add(amount);
+    }
+
+    public long get(E label) {
+        return values[label.ordinal()].sum();
+    }
+
+    E[] getLabels() {
+        return labels;
+    }
+}
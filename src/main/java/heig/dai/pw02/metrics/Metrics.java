@@ -0,0 +1,37 @@
+package heig.dai.pw02.metrics;
+
+import heig.dai.pw02.ccp.CCPMessage;
+
+/**
+ * The process wide metrics of the server, updated from its hot paths.
+ */
+public final class Metrics {
+
+    public static final MetricsRegistry REGISTRY = new MetricsRegistry();
+
+    public static final Counter CONNECTIONS_ACCEPTED = REGISTRY.counter(
+            "ccp_connections_accepted_total", "Player connections accepted by the server"
+    );
+    public static final LabeledCounter<CCPMessage> MESSAGES_RECEIVED = REGISTRY.counter(
+            "ccp_messages_received_total", "Messages received, by type", "type", CCPMessage.class
+    );
+    public static final LabeledCounter<CCPMessage> MESSAGES_SENT = REGISTRY.counter(
+            "ccp_messages_sent_total", "Messages sent, by type", "type", CCPMessage.class
+    );
+    public static final Counter BYTES_RECEIVED = REGISTRY.counter(
+            "ccp_bytes_received_total", "Bytes read from the connections"
+    );
+    public static final Counter BYTES_SENT = REGISTRY.counter(
+            "ccp_bytes_sent_total", "Bytes written to the connections"
+    );
+    public static final Histogram MOVE_VALIDATION = REGISTRY.latency(
+            "ccp_move_validation_seconds", "Time taken by the rules to validate and play a move"
+    );
+    public static final Histogram MOVE_RELAY = REGISTRY.latency(
+            "ccp_move_relay_seconds",
+            "Time from receiving a move to sending it to the opponent, validation included"
+    );
+
+    private Metrics() {
+    }
+}
@@ -0,0 +1,124 @@
+package heig.dai.pw02.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Named metrics rendered in the Prometheus text exposition format. Metrics are recorded by the
+ * hot paths without allocating, only rendering them allocates.
+ */
+public final class MetricsRegistry {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    // Renderers of the metrics, by name, in registration order
+    private final Map<String, Metric> metrics = new LinkedHashMap<>();
+
+    /**
+     * Register a counter.
+     *
+     * @param name the name of the metric, ending with {@code _total}
+     * @param help the description of the metric
+     * @return the counter
+     */
+    public Counter counter(String name, String help) {
+        Counter counter = new Counter();
+        register(name, help, "counter", out -> sample(out, name, null, null, counter.get()));
+        return counter;
+    }
+
+    /**
+     * Register counters labeled by the constants of an enum.
+     *
+     * @param name  the name of the metric, ending with {@code _total}
+     * @param help  the description of the metric
+     * @param label the name of the label
+     * @param type  the enum of the label values
+     * @param <E>   the type of the label values
+     * @return the labeled counters
+     */
+    public <E extends Enum<E>> LabeledCounter<E> counter(String name, String help, String label,
+                                                         Class<E> type) {
+        LabeledCounter<E> counter = new LabeledCounter<>(type);
+        register(name, help, "counter", out -> {
+            for (E value : counter.getLabels()) {
+                sample(out, name, label, value.name(), counter.get(value));
+            }
+        });
+        return counter;
+    }
+
+    /**
+     * Register a gauge, read each time the metrics are rendered. A gauge registered under the name
+     * of another one replaces it.
+     *
+     * @param name  the name of the metric
+     * @param help  the description of the metric
+     * @param value the current value of the gauge
+     */
+    public void gauge(String name, String help, LongSupplier value) {
+        register(name, help, "gauge", out -> sample(out, name, null, null, value.getAsLong()));
+    }
+
+    /**
+     * Register a histogram of durations recorded in nanoseconds, rendered as a summary in seconds
+     * with its main quantiles.
+     *
+     * @param name the name of the metric, ending with {@code _seconds}
+     * @param help the description of the metric
+     * @return the histogram
+     */
+    public Histogram latency(String name, String help) {
+        Histogram histogram = new Histogram();
+        register(name, help, "summary", out -> {
+            for (double quantile : QUANTILES) {
+                sample(out, name, "quantile", Double.toString(quantile),
+                        histogram.getPercentile(quantile) / NANOS_PER_SECOND);
+            }
+            sample(out, name + "_sum", null, null, histogram.getSum() / NANOS_PER_SECOND);
+            sample(out, name + "_count", null, null, histogram.getCount());
+        });
+        return histogram;
+    }
+
+    /**
+     * Render every metric in the Prometheus text exposition format.
+     *
+     * @return the rendered metrics
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder();
+        synchronized (metrics) {
+            metrics.values().forEach(metric -> metric.writeTo(out));
+        }
+        return out.toString();
+    }
+
+    private void register(String name, String help, String type, Metric samples) {
+        Metric metric = out -> {
+            out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+            samples.writeTo(out);
+        };
+        synchronized (metrics) {
+            metrics.put(name, metric);
+        }
+    }
+
+    private static void sample(StringBuilder out, String name, String label, String labelValue,
+                               Object value) {
+        out.append(name);
+        if (null != label) {
+            out.append('{').append(label).append("=\"").append(labelValue).append("\"}");
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    @FunctionalInterface
+    private interface Metric {
+        void writeTo(StringBuilder out);
+    }
+}
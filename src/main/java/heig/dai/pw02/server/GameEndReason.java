@@ -0,0 +1,19 @@
+package heig.dai.pw02.server;
+
+/**
+ * Why a game hosted by the server ended.
+ */
+public enum GameEndReason {
+    /**
+     * The game is over and at least one player declined to play again.
+     */
+    REPLAY_DECLINED,
+    /**
+     * A player got disconnected, the opponent was notified.
+     */
+    PLAYER_DISCONNECTED,
+    /**
+     * The game failed unexpectedly.
+     */
+    FAILED
+}
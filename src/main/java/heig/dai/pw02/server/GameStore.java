@@ -0,0 +1,231 @@
+package heig.dai.pw02.server;
+
+import heig.dai.pw02.metrics.MetricsRegistry;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Store of the games whose player to move stayed idle, so that they keep none of their objects
+ * once cold.
+ * <p>
+ * The last parked games stay hot: they are kept as they are, in least recently parked order. Past
+ * the limit of hot games, the least recently parked ones are written in fixed-size slots outside
+ * the heap, either in a direct buffer or in a file mapped in memory, and their objects are
+ * dropped. A cold game is rebuilt from its slot, see {@link RecordedGame}, when it is taken back.
+ * Games too long for a slot, or parked while every slot is used, stay hot.
+ *
+ * @param <G> the type of the parked games
+ */
+@Slf4j
+public final class GameStore<G extends RecordedGame> implements Closeable {
+
+    /**
+     * The number of moves fitting in a slot when none is given.
+     */
+    public static final int DEFAULT_MAX_MOVES = 500;
+
+    private final Duration idleTime;
+    private final int maxHotGames;
+    private final int slotBytes;
+    private final ByteBuffer slots;
+    private final FileChannel file;
+    private final int[] freeSlots;
+    private int freeSlotCount;
+    // Hot games, the least recently parked first
+    private final LinkedHashMap<Long, G> hotGames = new LinkedHashMap<>();
+    // Slots of the cold games
+    private final Map<Long, Integer> coldGames = new HashMap<>();
+    private long nextId;
+
+    /**
+     * Create a store keeping its cold games in a direct buffer.
+     *
+     * @param idleTime    the time a player may stay idle before their game is parked
+     * @param maxHotGames the maximum number of hot games
+     * @param capacity    the maximum number of cold games
+     */
+    public GameStore(Duration idleTime, int maxHotGames, int capacity) {
+        this(idleTime, maxHotGames, capacity, DEFAULT_MAX_MOVES, null);
+    }
+
+    /**
+     * Create a store keeping its cold games in a direct buffer, or in a file mapped in memory.
+     * The file only holds the games parked while the store is open, it is overwritten and deleted
+     * once the store is closed.
+     *
+     * @param idleTime    the time a player may stay idle before their game is parked
+     * @param maxHotGames the maximum number of hot games
+     * @param capacity    the maximum number of cold games
+     * @param maxMoves    the maximum number of moves of a cold game
+     * @param path        the path of the file, null to use a direct buffer
+     * @throws IllegalArgumentException if the slots of the cold games exceed 2 GB
+     * @throws UncheckedIOException     if the file could not be mapped
+     */
+    public GameStore(Duration idleTime, int maxHotGames, int capacity, int maxMoves, Path path) {
+        if (maxHotGames < 0 || capacity < 0 || maxMoves < 0) {
+            throw new IllegalArgumentException("The limits of the store must not be negative");
+        }
+        this.idleTime = idleTime;
+        this.maxHotGames = maxHotGames;
+        this.slotBytes = RecordedGame.HEADER_BYTES + maxMoves * Short.BYTES;
+        long size = (long) capacity * slotBytes;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The slots of the cold games exceed 2 GB");
+        }
+
+        if (null == path) {
+            this.file = null;
+            this.slots = ByteBuffer.allocateDirect((int) size);
+        } else {
+            try {
+                this.file = FileChannel.open(
+                        path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE,
+                        StandardOpenOption.DELETE_ON_CLOSE
+                );
+                this.slots = file.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not map the store of the games", e);
+            }
+        }
+
+        this.freeSlots = new int[capacity];
+        for (int i = 0; i < capacity; i++) {
+            freeSlots[freeSlotCount++] = capacity - 1 - i;
+        }
+    }
+
+    /**
+     * Get the time a player may stay idle before their game is parked.
+     *
+     * @return the idle time
+     */
+    public Duration getIdleTime() {
+        return idleTime;
+    }
+
+    /**
+     * Park a game until {@link #unpark(long, Supplier)} takes it back. The least recently parked
+     * games are made cold if there are too many hot games.
+     *
+     * @param game the game
+     * @return the identifier of the parked game
+     */
+    public synchronized long park(G game) {
+        long id = nextId++;
+        hotGames.put(id, game);
+        evictColdGames();
+        return id;
+    }
+
+    /**
+     * Take back a parked game, rebuilding it if it is cold.
+     *
+     * @param id      the identifier of the game
+     * @param factory creates the game rebuilt from the moves of a cold game
+     * @return the game
+     * @throws IllegalArgumentException if no game is parked with the identifier
+     * @throws IllegalStateException    if the cold game could not be rebuilt
+     */
+    public G unpark(long id, Supplier<G> factory) {
+        ByteBuffer record;
+        synchronized (this) {
+            G game = hotGames.remove(id);
+            if (null != game) {
+                return game;
+            }
+
+            Integer slot = coldGames.remove(id);
+            if (null == slot) {
+                throw new IllegalArgumentException("No game parked as " + id);
+            }
+            // Copied so that the slot can be reused while the game is rebuilt
+            record = ByteBuffer.allocate(slotBytes).put(slots.slice(slot * slotBytes, slotBytes));
+            freeSlots[freeSlotCount++] = slot;
+        }
+
+        G game = factory.get();
+        game.readFrom(record.flip());
+        return game;
+    }
+
+    /**
+     * Get the number of parked games kept as they are.
+     *
+     * @return the number of hot games
+     */
+    public synchronized int getHotGames() {
+        return hotGames.size();
+    }
+
+    /**
+     * Get the number of parked games written outside the heap.
+     *
+     * @return the number of cold games
+     */
+    public synchronized int getColdGames() {
+        return coldGames.size();
+    }
+
+    /**
+     * Expose the number of hot and cold games of this store.
+     *
+     * @param registry the registry of the metrics
+     */
+    public void registerMetrics(MetricsRegistry registry) {
+        registry.gauge("ccp_games_parked_hot", "Parked games kept in memory", this::getHotGames);
+        registry.gauge(
+                "ccp_games_parked_cold", "Parked games written outside the heap", this::getColdGames
+        );
+    }
+
+    @Override
+    public void close() {
+        if (null == file) {
+            return;
+        }
+
+        try {
+            file.close();
+        } catch (IOException e) {
+            log.debug("Error while closing the store of the games", e);
+        }
+    }
+
+    /**
+     * Write the least recently parked games in free slots until the hot games are within their
+     * limit, skipping the games too long for a slot.
+     */
+    private void evictColdGames() {
+        Iterator<Map.Entry<Long, G>> games = hotGames.entrySet().iterator();
+        while (hotGames.size() > maxHotGames && freeSlotCount > 0 && games.hasNext()) {
+            Map.Entry<Long, G> entry = games.next();
+            G game = entry.getValue();
+            if (game.getRecordSize() > slotBytes) {
+                continue;
+            }
+
+            int slot = freeSlots[--freeSlotCount];
+            game.writeTo(slots.slice(slot * slotBytes, slotBytes));
+            coldGames.put(entry.getKey(), slot);
+            games.remove();
+        }
+
+        if (hotGames.size() > maxHotGames) {
+            log.debug("{} hot games could not be made cold", hotGames.size() - maxHotGames);
+        }
+    }
+}
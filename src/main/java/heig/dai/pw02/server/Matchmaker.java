@@ -0,0 +1,120 @@
+package heig.dai.pw02.server;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Lock-free matchmaking over several named queues, such as time controls or rating bands.
+ * <p>
+ * Players are paired as soon as they are enqueued, so a queue never holds more than one waiting
+ * player: each queue is a single atomic slot. Enqueuing either parks the player in the empty slot
+ * or takes the waiting player out of it, with one compare-and-set in the common case. A player
+ * leaving the queue clears the slot the same way, without scanning anything.
+ *
+ * @param <P> the type of the players
+ */
+public final class Matchmaker<P> {
+
+    private final Map<String, AtomicReference<Ticket<P>>> queues;
+    private final BiConsumer<P, P> onMatch;
+
+    /**
+     * Create a matchmaker with the given queues.
+     *
+     * @param queues  the names of the queues
+     * @param onMatch called with the waiting player and the arriving player when they are paired,
+     *                on the thread enqueuing the arriving player
+     */
+    public Matchmaker(Collection<String> queues, BiConsumer<P, P> onMatch) {
+        if (queues.isEmpty()) {
+            throw new IllegalArgumentException("At least one queue is required");
+        }
+
+        this.queues = queues.stream().distinct().collect(Collectors.toUnmodifiableMap(
+                name -> name, name -> new AtomicReference<>()
+        ));
+        this.onMatch = onMatch;
+    }
+
+    /**
+     * Enqueue a player. If another player is waiting in the queue, both are paired right away and
+     * the match callback is called before returning.
+     *
+     * @param queue  the name of the queue
+     * @param player the player
+     * @return the ticket of the player, used to leave the queue
+     * @throws IllegalArgumentException if the queue does not exist
+     */
+    public Ticket<P> enqueue(String queue, P player) {
+        AtomicReference<Ticket<P>> slot = queues.get(queue);
+        if (null == slot) {
+            throw new IllegalArgumentException("Unknown queue " + queue);
+        }
+
+        Ticket<P> ticket = new Ticket<>(slot, player);
+        while (true) {
+            Ticket<P> waiting = slot.get();
+            if (null == waiting) {
+                if (slot.compareAndSet(null, ticket)) {
+                    return ticket;
+                }
+            } else if (slot.compareAndSet(waiting, null)) {
+                onMatch.accept(waiting.player, player);
+                return ticket;
+            }
+        }
+    }
+
+    /**
+     * Get the number of players waiting for an opponent, in all queues.
+     *
+     * @return the number of waiting players
+     */
+    public int getWaitingPlayers() {
+        int waiting = 0;
+        for (AtomicReference<Ticket<P>> slot : queues.values()) {
+            if (null != slot.get()) {
+                waiting++;
+            }
+        }
+        return waiting;
+    }
+
+    /**
+     * Check if a player waits for an opponent in the given queue.
+     *
+     * @param queue the name of the queue
+     * @return true if a player is waiting, false otherwise
+     */
+    public boolean isWaiting(String queue) {
+        AtomicReference<Ticket<P>> slot = queues.get(queue);
+        return null != slot && null != slot.get();
+    }
+
+    /**
+     * The place of a player in a queue.
+     *
+     * @param <P> the type of the players
+     */
+    public static final class Ticket<P> {
+        private final AtomicReference<Ticket<P>> slot;
+        private final P player;
+
+        private Ticket(AtomicReference<Ticket<P>> slot, P player) {
+            this.slot = slot;
+            this.player = player;
+        }
+
+        /**
+         * Leave the queue, if the player is still waiting.
+         *
+         * @return true if the player left the queue, false if they were already paired
+         */
+        public boolean cancel() {
+            return slot.compareAndSet(this, null);
+        }
+    }
+}
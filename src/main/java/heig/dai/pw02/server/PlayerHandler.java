@@ -4,9 +4,11 @@ import heig.dai.pw02.ccp.CCPError;
 import heig.dai.pw02.ccp.CCPHandler;
 import heig.dai.pw02.ccp.CCPMessage;
 import heig.dai.pw02.ccp.Message;
+import heig.dai.pw02.socket.MessageTransport;
 import heig.poo.chess.PlayerColor;
 
 import java.net.Socket;
+import java.util.concurrent.Executor;
 
 public final class PlayerHandler extends CCPHandler {
 
@@ -14,6 +16,14 @@ public final class PlayerHandler extends CCPHandler {
         super(playerConnection);
     }
 
+    public PlayerHandler(MessageTransport playerConnection) {
+        super(playerConnection);
+    }
+
+    public PlayerHandler(MessageTransport playerConnection, Executor readerExecutor) {
+        super(playerConnection, readerExecutor);
+    }
+
     public void sendColor(PlayerColor color) {
         sendMessage(Message.of(CCPMessage.COLOR, color.name()));
     }
@@ -2,6 +2,11 @@ package heig.dai.pw02.server;
 
 import heig.poo.chess.PlayerColor;
 
+import java.io.UncheckedIOException;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
 public record PlayerPair(
         PlayerHandler white,
         PlayerHandler black
@@ -18,4 +23,17 @@ public record PlayerPair(
         white.sendColor(PlayerColor.WHITE);
         black.sendColor(PlayerColor.BLACK);
     }
+
+    /**
+     * Close the connections of both players, which also ends their readers.
+     */
+    public void disconnect() {
+        for (PlayerHandler player : new PlayerHandler[]{white, black}) {
+            try {
+                player.disconnect();
+            } catch (UncheckedIOException e) {
+                log.debug("Error while closing a player connection", e);
+            }
+        }
+    }
 }
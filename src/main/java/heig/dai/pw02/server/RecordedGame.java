@@ -0,0 +1,138 @@
+package heig.dai.pw02.server;
+
+import heig.poo.chess.PieceType;
+import heig.poo.chess.engine.ChessGame;
+import heig.poo.chess.engine.MoveResult;
+import heig.poo.chess.engine.util.Board;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Game keeping the moves played since it started, so that it can be written in a few bytes and
+ * rebuilt later by playing them again. Every move is a short holding its starting square in the
+ * bits 0 to 5, its destination in the bits 6 to 11 and the piece chosen by a promotion in the
+ * bits 12 to 14, the square x, y being y * 8 + x.
+ * <p>
+ * The written form is the key of the position, to check the rebuilt game, followed by the number
+ * of moves and the moves.
+ */
+public class RecordedGame extends ChessGame {
+
+    // Key of the position and number of moves
+    static final int HEADER_BYTES = Long.BYTES + Short.BYTES;
+
+    private static final int SQUARE_BITS = 6;
+    private static final int SQUARE_MASK = (1 << SQUARE_BITS) - 1;
+    private static final int PROMOTION_SHIFT = 2 * SQUARE_BITS;
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int MAX_MOVES = 0xFFFF;
+    private static final short[] NO_MOVES = {};
+    private static final PieceType[] PIECE_TYPES = PieceType.values();
+
+    private short[] moves = NO_MOVES;
+    private int moveCount;
+
+    @Override
+    public void newGame() {
+        super.newGame();
+        moveCount = 0;
+    }
+
+    @Override
+    public int play(int fromX, int fromY, int toX, int toY) {
+        int result = super.play(fromX, fromY, toX, toY);
+        if (MoveResult.isLegal(result)) {
+            record(square(fromX, fromY) | square(toX, toY) << SQUARE_BITS);
+        }
+
+        return result;
+    }
+
+    @Override
+    public int promote(PieceType type) {
+        int result = super.promote(type);
+        if (MoveResult.isLegal(result)) {
+            moves[moveCount - 1] |= (short) ((type.ordinal() + 1) << PROMOTION_SHIFT);
+        }
+
+        return result;
+    }
+
+    /**
+     * Get the number of moves played since the game started.
+     *
+     * @return the number of moves
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    /**
+     * Get the number of bytes written by {@link #writeTo(ByteBuffer)}.
+     *
+     * @return the size of the written game
+     */
+    public int getRecordSize() {
+        return HEADER_BYTES + moveCount * Short.BYTES;
+    }
+
+    /**
+     * Write the game at the position of the buffer.
+     *
+     * @param buffer the buffer, with at least {@link #getRecordSize()} remaining bytes
+     */
+    public void writeTo(ByteBuffer buffer) {
+        buffer.putLong(getPositionKey());
+        buffer.putShort((short) moveCount);
+        for (int i = 0; i < moveCount; i++) {
+            buffer.putShort(moves[i]);
+        }
+    }
+
+    /**
+     * Start a new game and play the moves of a game written by {@link #writeTo(ByteBuffer)}.
+     *
+     * @param buffer the buffer, at the position of the written game
+     * @throws IllegalStateException if the written moves do not rebuild the written position
+     */
+    public void readFrom(ByteBuffer buffer) {
+        newGame();
+        long key = buffer.getLong();
+        int count = Short.toUnsignedInt(buffer.getShort());
+        for (int i = 0; i < count; i++) {
+            int move = buffer.getShort();
+            int from = move & SQUARE_MASK, to = move >>> SQUARE_BITS & SQUARE_MASK;
+            int promotion = move >>> PROMOTION_SHIFT & 0b111;
+            int result = play(
+                    from % Board.BOARD_SIZE, from / Board.BOARD_SIZE,
+                    to % Board.BOARD_SIZE, to / Board.BOARD_SIZE
+            );
+            if (0 != promotion && MoveResult.isPromotionNeeded(result)) {
+                result = promote(PIECE_TYPES[promotion - 1]);
+            }
+            if (!MoveResult.isLegal(result)) {
+                throw new IllegalStateException("Illegal move " + i + " in the recorded game");
+            }
+        }
+
+        if (key != getPositionKey()) {
+            throw new IllegalStateException("The recorded moves do not reach their position");
+        }
+    }
+
+    private void record(int move) {
+        if (moveCount == moves.length) {
+            if (moveCount == MAX_MOVES) {
+                throw new IllegalStateException("Too many moves to record");
+            }
+            int capacity = Math.min(MAX_MOVES, Math.max(INITIAL_CAPACITY, moveCount * 2));
+            moves = Arrays.copyOf(moves, capacity);
+        }
+        moves[moveCount++] = (short) move;
+    }
+
+    private static int square(int x, int y) {
+        return y * Board.BOARD_SIZE + x;
+    }
+}
@@ -3,115 +3,260 @@ package heig.dai.pw02.server;
 import heig.dai.pw02.ccp.CCPError;
 import heig.dai.pw02.ccp.CCPMessage;
 import heig.dai.pw02.ccp.Message;
-import heig.poo.chess.ChessView;
-import heig.poo.chess.ChessView.UserChoice;
+import heig.dai.pw02.metrics.Metrics;
 import heig.poo.chess.PieceType;
 import heig.poo.chess.PlayerColor;
-import heig.poo.chess.engine.GameManager;
+import heig.poo.chess.engine.MoveResult;
 import heig.poo.chess.engine.piece.ChessPiece;
 import heig.poo.chess.engine.util.ChessString;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Game relayed between two remote players. The moves are checked by the rules of the game, which
+ * keep no view: nothing is displayed or formatted on the server.
+ * <p>
+ * When given a {@link GameStore}, a game whose player to move stays idle for longer than the idle
+ * time of the store is parked in it and releases its thread. The game is taken back from the
+ * store, and rebuilt if it went cold, on the executor once the move of the player arrives.
+ */
 @Slf4j
-public final class ServerGameManager extends GameManager {
+public final class ServerGameManager extends RecordedGame {
+
+    private static final PieceType[] PIECE_TYPES = PieceType.values();
 
     private final PlayerPair players;
+    private final GameStore<ServerGameManager> store;
+    private final Executor executor;
 
+    /**
+     * Create a game holding its thread until it is over.
+     *
+     * @param players the players
+     */
     public ServerGameManager(PlayerPair players) {
-        super();
-        this.players = players;
-        this.players.sendColors();
+        this(players, null, null);
     }
 
     /**
-     * Helper to start a game since this manager has a hard-coded view.
+     * Create a game parked in the store while its player to move is idle.
+     *
+     * @param players  the players
+     * @param store    the store of the idle games, null to never park the game
+     * @param executor the executor resuming the parked game
      */
-    public void start() {
-        start(null);
+    public ServerGameManager(PlayerPair players, GameStore<ServerGameManager> store,
+                             Executor executor) {
+        super();
+        this.players = players;
+        this.store = store;
+        this.executor = executor;
     }
 
-    @Override
-    public void start(ChessView view) {
-        // the server console view is a very restrictive view that will never make moves
-        super.start(new ServerConsoleView(this));
-        listenToPlayer();
+    /**
+     * Play a game between the players. The connections of the players are left open once the game
+     * is over. Without a store, returns once the game is over, otherwise returns as soon as the
+     * game is parked.
+     *
+     * @return completed with why the game ended
+     */
+    public CompletableFuture<GameEndReason> start() {
+        log.info("Starting game...");
+        players.sendColors();
+        CompletableFuture<GameEndReason> ended = new CompletableFuture<>();
+        listenToPlayer(ended);
+        return ended;
     }
 
     public void remoteMove(int fromX, int fromY, int toX, int toY) {
-        PlayerColor colorMoving = board.getPiece(fromX, fromY).getPlayerColor();
-        if (super.move(fromX, fromY, toX, toY)) {
+        PlayerColor colorMoving = playerTurn();
+        long start = System.nanoTime();
+        int result = play(fromX, fromY, toX, toY);
+        Metrics.MOVE_VALIDATION.record(System.nanoTime() - start);
+        if (MoveResult.isPromotionNeeded(result)) {
+            awaitPromotion();
+        }
+        if (MoveResult.isLegal(result)) {
             log.info("{} has moved", colorMoving);
-            log.debug("Move sent to player {}", playerTurn());
             log.debug("Waiting for player {} to move", playerTurn());
-            ((ServerConsoleView) chessView).printBoard();
         } else {
             log.warn("{} sent an invalid move", colorMoving);
         }
     }
 
-    private void listenToPlayer() {
+    private void listenToPlayer(CompletableFuture<GameEndReason> ended) {
         while (true) {
-            PlayerColor currentTurn = playerTurn();
-            PlayerHandler player = players.get(currentTurn);
-            PlayerHandler otherPlayer = players.get(currentTurn.opposite());
-            Message message = player.awaitMove().join();
-            if(message.getType().equals(CCPMessage.ERROR)
-                    && CCPError.values()[message.getNumericArguments()[0]].equals(CCPError.DISCONNECTED)) {
-                otherPlayer.sendError(CCPError.DISCONNECTED);
-                System.exit(0);
+            CompletableFuture<Message> nextMove = players.get(playerTurn()).awaitMove();
+            Message message = awaitMove(nextMove);
+            if (null == message) {
+                log.debug("{} is idle, parking the game", playerTurn());
+                resumeOnMove(store.park(this), nextMove, ended, players, store, executor);
+                return;
             }
-            int[] parsedArgs = message.getNumericArguments();
-            remoteMove(parsedArgs[0], parsedArgs[1], parsedArgs[2], parsedArgs[3]);
 
-            otherPlayer.sendMove(parsedArgs[0], parsedArgs[1], parsedArgs[2], parsedArgs[3]);
+            GameEndReason reason = onMove(message);
+            if (null != reason) {
+                ended.complete(reason);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Wait for the move of the player to move.
+     *
+     * @return the move, null if the player stayed idle for longer than the store allows
+     */
+    private Message awaitMove(CompletableFuture<Message> nextMove) {
+        if (null == store) {
+            return nextMove.join();
+        }
 
-            if (isEndGame()) {
-                askUsersToPlayAgain();
+        try {
+            return nextMove.get(store.getIdleTime().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            return null;
+        } catch (InterruptedException e) {
+            // NOTE: interrupted by the pool shutting down, wait like a game that is never parked
+            Thread.currentThread().interrupt();
+            return nextMove.join();
+        } catch (ExecutionException e) {
+            throw new CompletionException(e.getCause());
+        }
+    }
+
+    /**
+     * Take the parked game back from the store once the move arrives, and resume it on the
+     * executor. Static so that the parked game is only referenced by the store.
+     */
+    private static void resumeOnMove(long id, CompletableFuture<Message> nextMove,
+                                     CompletableFuture<GameEndReason> ended, PlayerPair players,
+                                     GameStore<ServerGameManager> store, Executor executor) {
+        nextMove.thenAcceptAsync(message -> {
+            try {
+                ServerGameManager game = store.unpark(
+                        id, () -> new ServerGameManager(players, store, executor)
+                );
+                GameEndReason reason = game.onMove(message);
+                if (null == reason) {
+                    game.listenToPlayer(ended);
+                } else {
+                    ended.complete(reason);
+                }
+            } catch (RuntimeException e) {
+                ended.completeExceptionally(e);
             }
+        }, executor);
+    }
+
+    /**
+     * Play the move of the player to move and relay it to the other player.
+     *
+     * @param message the message received from the player to move
+     * @return why the game ended, or null if it goes on
+     */
+    private GameEndReason onMove(Message message) {
+        PlayerColor currentTurn = playerTurn();
+        PlayerHandler otherPlayer = players.get(currentTurn.opposite());
+        long received = System.nanoTime();
+        if (message.isError(CCPError.DISCONNECTED)) {
+            return playerDisconnected(currentTurn);
+        }
+        if (message.getType().equals(CCPMessage.ERROR)) {
+            log.warn("{} sent an invalid message", currentTurn);
+            return null;
+        }
+        int fromX = message.getInt(0);
+        int fromY = message.getInt(1);
+        int toX = message.getInt(2);
+        int toY = message.getInt(3);
+        try {
+            remoteMove(fromX, fromY, toX, toY);
+        } catch (PlayerDisconnectedException e) {
+            return playerDisconnected(currentTurn);
         }
+
+        otherPlayer.sendMove(fromX, fromY, toX, toY);
+        Metrics.MOVE_RELAY.record(System.nanoTime() - received);
+
+        return isEndGame() ? askUsersToPlayAgain() : null;
     }
 
-    @Override
-    protected ChessPiece askUserForPromotion(String header, String question, ChessPiece[] options) {
-        Message message = players.get(playerTurn()).awaitPromotion().join();
-        int[] parsedArgs = message.getNumericArguments();
-        for (ChessPiece piece : options) {
-            if (piece.getPieceType() == PieceType.values()[parsedArgs[0]]
-                    && piece.getX() == parsedArgs[1]
-                    && piece.getY() == parsedArgs[2]) {
-                players.get(playerTurn().opposite()).sendPromotion(piece);
-                return piece;
+    private GameEndReason playerDisconnected(PlayerColor color) {
+        log.info("{} got disconnected, ending the game", color);
+        players.get(color.opposite()).sendError(CCPError.DISCONNECTED);
+        return GameEndReason.PLAYER_DISCONNECTED;
+    }
+
+    /**
+     * Complete the move of the pawn that reached the last rank with the promotion chosen by its
+     * player, and relay the promotion to the other player. Invalid promotions are ignored.
+     */
+    private void awaitPromotion() {
+        ChessPiece pawn = getPendingPromotion();
+        PlayerColor color = pawn.getPlayerColor();
+        while (true) {
+            Message message = players.get(color).awaitPromotion().join();
+            if (message.isError(CCPError.DISCONNECTED)) {
+                // NOTE: unwinds the move being played, the game is over anyway
+                throw new PlayerDisconnectedException();
+            }
+            if (message.getType().equals(CCPMessage.PROMOTION) && isPieceType(message.getInt(0))
+                    && pawn.getX() == message.getInt(1) && pawn.getY() == message.getInt(2)) {
+                PieceType type = PIECE_TYPES[message.getInt(0)];
+                if (MoveResult.isLegal(promote(type))) {
+                    players.get(color.opposite()).sendPromotion(type, pawn.getX(), pawn.getY());
+                    return;
+                }
             }
+            log.warn("{} sent an invalid promotion", color);
         }
-        return null;
     }
 
-    private void askUsersToPlayAgain() {
+    /**
+     * Ask both players if they want to play again, and restart the game if they both do.
+     *
+     * @return why the game ended, or null if a new game started
+     */
+    private GameEndReason askUsersToPlayAgain() {
         var whitePlayer = players.white();
         var blackPlayer = players.black();
 
         // Await the replay message from both players
         var whiteAnswer = whitePlayer.awaitReplay();
         var blackAnswer = blackPlayer.awaitReplay();
-        String whiteResponse = whiteAnswer.join().getArguments()[0];
-        String blackResponse = blackAnswer.join().getArguments()[0];
+        Message whiteResponse = whiteAnswer.join();
+        Message blackResponse = blackAnswer.join();
 
-        if (whiteResponse.equals(ChessString.YES) && blackResponse.equals(ChessString.YES)) {
+        if (ChessString.YES.equals(whiteResponse.getText())
+                && ChessString.YES.equals(blackResponse.getText())) {
             whitePlayer.sendReplay(ChessString.YES);
             blackPlayer.sendReplay(ChessString.YES);
-            restartGame();
-        } else {
-            whitePlayer.sendReplay(ChessString.NO);
-            blackPlayer.sendReplay(ChessString.NO);
-            System.exit(0);
+            newGame();
+            return null;
         }
+
+        whitePlayer.sendReplay(ChessString.NO);
+        blackPlayer.sendReplay(ChessString.NO);
+        boolean disconnected = whiteResponse.isError(CCPError.DISCONNECTED)
+                || blackResponse.isError(CCPError.DISCONNECTED);
+        return disconnected ? GameEndReason.PLAYER_DISCONNECTED : GameEndReason.REPLAY_DECLINED;
+    }
+
+    private static boolean isPieceType(int type) {
+        return 0 <= type && type < PIECE_TYPES.length;
     }
 
-    @Override
-    protected UserChoice askUserToPlayAgain(String header, String question, UserChoice[] options) {
-        // NOTE: In order to avoid the blocking of the server, we don't ask the user to play again.
-        //       We send the move to the client and then ask the clients if they want to play again
-        //       with askUsersToPlayAgain().
-        return null;
+    /**
+     * Thrown when a player got disconnected while the server was waiting on them in the middle of
+     * a move.
+     */
+    private static final class PlayerDisconnectedException extends RuntimeException {
     }
 }
@@ -1,31 +1,288 @@
 package heig.dai.pw02.server;
 
+import heig.dai.pw02.metrics.Metrics;
+import heig.dai.pw02.metrics.MetricsRegistry;
+import heig.dai.pw02.socket.MessageTransport;
+import heig.dai.pw02.socket.SocketManager;
+
+import java.io.Closeable;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
 import java.net.Socket;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
 
 /**
  * The server game poll handles incoming player connections and creates games.
+ * <p>
+ * Every paired game is scheduled on its own thread of the game executor, so the thread accepting
+ * connections never blocks on a running game and a single server can host many games at once.
+ * The connections of the players are read by a dedicated reader executor.
+ * <p>
+ * Players wait for an opponent in the queues of a lock-free {@link Matchmaker}, and are paired
+ * with the next player entering the same queue. A player disconnecting while waiting leaves the
+ * queue right away.
+ * <p>
+ * A game ending, for any reason, only tears down that game: both connections are closed, which
+ * ends their readers, and the game thread is released. The other games keep running.
+ * <p>
+ * Given a {@link GameStore}, the games whose player to move stays idle are parked in the store and
+ * release their thread until the move arrives, see {@link ServerGameManager}. Parked games still
+ * count as active games.
  */
-public final class ServerGamePool {
+@Slf4j
+public final class ServerGamePool implements Closeable {
 
-    private final Queue<PlayerHandler> playerQueue = new ConcurrentLinkedQueue<>();
+    /**
+     * The queue joined by the players when none is given.
+     */
+    public static final String DEFAULT_QUEUE = "default";
 
+    private final Matchmaker<PlayerHandler> matchmaker;
+    private final AtomicInteger activeGames = new AtomicInteger();
+    private final ExecutorService gameExecutor;
+    private final ExecutorService readerExecutor = createExecutor("reader", 0);
+    private final Function<PlayerPair, CompletionStage<GameEndReason>> gameRunner;
+    private final Map<GameEndReason, LongAdder> endedGames = new EnumMap<>(GameEndReason.class);
+
+    /**
+     * Create a pool that runs an unbounded number of concurrent games.
+     */
     public ServerGamePool() {
+        this(0);
+    }
+
+    /**
+     * Create a pool that runs at most the given number of concurrent games. Pairs formed while
+     * the limit is reached wait for a running game to end before starting.
+     *
+     * @param maxConcurrentGames the maximum number of concurrent games, 0 for unbounded
+     */
+    public ServerGamePool(int maxConcurrentGames) {
+        this(maxConcurrentGames, List.of(DEFAULT_QUEUE));
+    }
+
+    /**
+     * Create a pool pairing the players within the given queues.
+     *
+     * @param maxConcurrentGames the maximum number of concurrent games, 0 for unbounded
+     * @param queues             the names of the matchmaking queues
+     */
+    public ServerGamePool(int maxConcurrentGames, Collection<String> queues) {
+        this(maxConcurrentGames, queues, null);
+    }
+
+    /**
+     * Create a pool pairing the players within the given queues, and parking the idle games in the
+     * given store. The maximum number of concurrent games only bounds the games not parked.
+     *
+     * @param maxConcurrentGames the maximum number of concurrent games, 0 for unbounded
+     * @param queues             the names of the matchmaking queues
+     * @param store              the store of the idle games, null to never park a game
+     */
+    public ServerGamePool(int maxConcurrentGames, Collection<String> queues,
+                          GameStore<ServerGameManager> store) {
+        this(createExecutor("game", maxConcurrentGames), queues, store);
+    }
+
+    private ServerGamePool(ExecutorService gameExecutor, Collection<String> queues,
+                           GameStore<ServerGameManager> store) {
+        this(gameExecutor, queues,
+                pair -> new ServerGameManager(pair, store, gameExecutor).start());
+    }
+
+    ServerGamePool(ExecutorService gameExecutor, Function<PlayerPair, GameEndReason> gameRunner) {
+        this(gameExecutor, gameRunner, List.of(DEFAULT_QUEUE));
+    }
+
+    ServerGamePool(ExecutorService gameExecutor, Function<PlayerPair, GameEndReason> gameRunner,
+                   Collection<String> queues) {
+        this(gameExecutor, queues,
+                pair -> CompletableFuture.completedFuture(gameRunner.apply(pair)));
+    }
+
+    private ServerGamePool(ExecutorService gameExecutor, Collection<String> queues,
+                           Function<PlayerPair, CompletionStage<GameEndReason>> gameRunner) {
+        this.gameExecutor = gameExecutor;
+        this.gameRunner = gameRunner;
+        this.matchmaker = new Matchmaker<>(
+                queues, (waiting, arriving) -> scheduleGame(new PlayerPair(waiting, arriving))
+        );
+        for (GameEndReason reason : GameEndReason.values()) {
+            endedGames.put(reason, new LongAdder());
+        }
     }
 
     /**
-     * Handle an incoming player connection.
+     * Handle an incoming player connection. This method never waits for a game to complete, the
+     * game is started on the game executor as soon as two players are waiting.
      *
      * @param playerConnection The player connection.
      */
-    public synchronized void handleIncomingPlayer(Socket playerConnection) {
-        PlayerHandler playerHandler = new PlayerHandler(playerConnection);
-        playerQueue.add(playerHandler);
-        if (playerQueue.size() >= 2) {
-            var pair = new PlayerPair(playerQueue.poll(), playerQueue.poll());
-            var gameManager = new ServerGameManager(pair);
-            gameManager.start();
+    public void handleIncomingPlayer(Socket playerConnection) {
+        handleIncomingPlayer(new SocketManager(playerConnection));
+    }
+
+    /**
+     * Handle an incoming player connection using the given transport.
+     *
+     * @param playerConnection The transport of the player connection.
+     */
+    public void handleIncomingPlayer(MessageTransport playerConnection) {
+        handleIncomingPlayer(playerConnection, DEFAULT_QUEUE);
+    }
+
+    /**
+     * Handle an incoming player connection, pairing the player within the given queue. The player
+     * waiting the longest in the queue plays white.
+     *
+     * @param playerConnection The transport of the player connection.
+     * @param queue            The name of the matchmaking queue.
+     * @throws IllegalArgumentException if the queue does not exist, the connection is then closed
+     */
+    public void handleIncomingPlayer(MessageTransport playerConnection, String queue) {
+        Metrics.CONNECTIONS_ACCEPTED.increment();
+        PlayerHandler playerHandler = new PlayerHandler(playerConnection, readerExecutor);
+        Matchmaker.Ticket<PlayerHandler> ticket;
+        try {
+            ticket = matchmaker.enqueue(queue, playerHandler);
+        } catch (IllegalArgumentException e) {
+            disconnect(playerHandler);
+            throw e;
+        }
+
+        playerHandler.whenDisconnected().thenRun(() -> {
+            if (ticket.cancel()) {
+                log.info("A player left the {} queue before being paired", queue);
+                disconnect(playerHandler);
+            }
+        });
+    }
+
+    /**
+     * Get the number of games currently being played.
+     *
+     * @return the number of active games
+     */
+    public int getActiveGames() {
+        return activeGames.get();
+    }
+
+    /**
+     * Get the number of players waiting for an opponent.
+     *
+     * @return the number of queued players
+     */
+    public int getQueuedPlayers() {
+        return matchmaker.getWaitingPlayers();
+    }
+
+    /**
+     * Get the number of games that ended for the given reason.
+     *
+     * @param reason the reason
+     * @return the number of ended games
+     */
+    public long getEndedGames(GameEndReason reason) {
+        return endedGames.get(reason).sum();
+    }
+
+    /**
+     * Expose the number of queued players and of active games of this pool.
+     *
+     * @param registry the registry of the metrics
+     */
+    public void registerMetrics(MetricsRegistry registry) {
+        registry.gauge(
+                "ccp_players_queued", "Players waiting for an opponent", this::getQueuedPlayers
+        );
+        registry.gauge("ccp_games_active", "Games being played", this::getActiveGames);
+    }
+
+    @Override
+    public void close() {
+        gameExecutor.shutdownNow();
+        readerExecutor.shutdownNow();
+    }
+
+    private void scheduleGame(PlayerPair pair) {
+        gameExecutor.execute(() -> {
+            int active = activeGames.incrementAndGet();
+            log.info("Starting a new game, {} active games", active);
+            CompletionStage<GameEndReason> ended;
+            try {
+                ended = gameRunner.apply(pair);
+            } catch (RuntimeException e) {
+                ended = CompletableFuture.failedFuture(e);
+            }
+            ended.whenComplete((reason, failure) -> {
+                if (null != failure) {
+                    log.error("A game ended unexpectedly", failure);
+                }
+                endGame(pair, null == failure ? reason : GameEndReason.FAILED);
+            });
+        });
+    }
+
+    private void endGame(PlayerPair pair, GameEndReason reason) {
+        pair.disconnect();
+        endedGames.get(reason).increment();
+        int remaining = activeGames.decrementAndGet();
+        log.info(
+                "Game ended ({}), {} active games, sent to white: {}, to black: {}",
+                reason, remaining,
+                pair.white().getWriteStatistics(), pair.black().getWriteStatistics()
+        );
+    }
+
+    private static void disconnect(PlayerHandler player) {
+        try {
+            player.disconnect();
+        } catch (UncheckedIOException e) {
+            log.debug("Error while closing a player connection", e);
+        }
+    }
+
+    /**
+     * Create an executor running games or connection readers. When unbounded, tasks run on virtual
+     * threads if the running JVM supports them (JDK 21+), otherwise on a cached pool of daemon
+     * threads.
+     *
+     * @param name       the name of the threads
+     * @param maxThreads the maximum number of threads, 0 for unbounded
+     * @return the executor
+     */
+    private static ExecutorService createExecutor(String name, int maxThreads) {
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+
+        if (maxThreads > 0) {
+            return Executors.newFixedThreadPool(maxThreads, threadFactory);
+        }
+
+        try {
+            // NOTE: looked up reflectively as the project still targets Java 17
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            log.debug("Running {} tasks on virtual threads", name);
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            log.debug("Virtual threads unavailable, running {} tasks on platform threads", name);
+            return Executors.newCachedThreadPool(threadFactory);
         }
     }
-}
\ No newline at end of file
+}
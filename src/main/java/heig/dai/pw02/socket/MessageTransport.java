@@ -0,0 +1,68 @@
+package heig.dai.pw02.socket;
+
+import heig.dai.pw02.ccp.Message;
+
+import java.io.Closeable;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * A bidirectional channel exchanging CCP messages with a remote peer.
+ */
+public interface MessageTransport extends Closeable {
+
+    /**
+     * Send a message to the remote peer right away, along with the messages written before it.
+     *
+     * @param message the message to send
+     */
+    default void send(Message message) {
+        write(message);
+        flush();
+    }
+
+    /**
+     * Add a message to the output buffer without sending it. The buffered messages are sent
+     * together, in a single write when possible, on the next flush.
+     *
+     * @param message the message to write
+     */
+    void write(Message message);
+
+    /**
+     * Send the buffered messages to the remote peer.
+     */
+    void flush();
+
+    /**
+     * @return the statistics of the writes of this transport
+     */
+    WriteStatistics getWriteStatistics();
+
+    /**
+     * Announce the highest protocol version supported to the remote peer. HELLO messages are
+     * handled by the transport itself: the output switches to the binary framing once both peers
+     * agreed on version 2, and a HELLO received from the peer is answered without being delivered.
+     *
+     * @param version the highest protocol version supported
+     */
+    void requestVersion(int version);
+
+    /**
+     * Start delivering the messages sent by the remote peer to the listener, in the order they are
+     * received. A malformed message is delivered as an INVALID_MESSAGE error, and the last message
+     * delivered is a DISCONNECTED error once the peer got disconnected. The listener must not
+     * block, as it may be called from a thread shared with other connections.
+     *
+     * @param listener       the listener receiving the messages
+     * @param readerExecutor the executor running the reader loop, if the transport needs one
+     */
+    void listen(Consumer<Message> listener, Executor readerExecutor);
+
+    /**
+     * Check if the transport is closed.
+     *
+     * @return true if the transport is closed, false otherwise
+     */
+    boolean isClosed();
+}
@@ -0,0 +1,141 @@
+package heig.dai.pw02.socket;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A single thread multiplexing the I/O of many non-blocking connections through a selector.
+ * Connections are registered from any thread, all reads and deferred writes then happen on the
+ * loop thread.
+ */
+@Slf4j
+public final class NioEventLoop implements Closeable {
+
+    private final Selector selector;
+    private final Thread thread;
+    private final Queue<Runnable> pendingTasks = new ConcurrentLinkedQueue<>();
+    // Shared by the connections of the loop, which only keep the bytes of incomplete frames
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(NioSocketManager.READ_BUFFER_SIZE);
+
+    public NioEventLoop(String name) {
+        try {
+            this.selector = Selector.open();
+        } catch (IOException e) {
+            log.error("Error while opening selector");
+            throw new UncheckedIOException(e);
+        }
+
+        this.thread = new Thread(this::loop, name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Register a connected channel on this loop and create its transport.
+     *
+     * @param channel the connected channel
+     * @return the transport exchanging messages on the channel
+     */
+    public NioSocketManager register(SocketChannel channel) {
+        CompletableFuture<NioSocketManager> registration = new CompletableFuture<>();
+        execute(() -> {
+            try {
+                channel.configureBlocking(false);
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                NioSocketManager manager = new NioSocketManager(this, channel, key);
+                key.attach(manager);
+                registration.complete(manager);
+            } catch (IOException e) {
+                registration.completeExceptionally(new UncheckedIOException(e));
+            }
+        });
+        return registration.join();
+    }
+
+    /**
+     * Run a task on the loop thread.
+     *
+     * @param task the task to run
+     */
+    void execute(Runnable task) {
+        pendingTasks.add(task);
+        selector.wakeup();
+    }
+
+    /**
+     * Change the operations a connection is waiting for. Can be called from any thread.
+     *
+     * @param key the selection key of the connection
+     * @param ops the new interest set
+     */
+    void setInterest(SelectionKey key, int ops) {
+        if (Thread.currentThread() == thread) {
+            updateInterest(key, ops);
+        } else {
+            execute(() -> updateInterest(key, ops));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        selector.close();
+    }
+
+    private void loop() {
+        try {
+            while (selector.isOpen()) {
+                selector.select();
+                runPendingTasks();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handle(key);
+                }
+            }
+        } catch (ClosedSelectorException e) {
+            log.debug("Event loop {} closed", thread.getName());
+        } catch (IOException e) {
+            log.error("Event loop {} failed", thread.getName(), e);
+        }
+    }
+
+    private void handle(SelectionKey key) {
+        NioSocketManager manager = (NioSocketManager) key.attachment();
+        if (!key.isValid()) {
+            return;
+        }
+
+        if (key.isReadable()) {
+            manager.onReadable(readBuffer);
+        }
+
+        if (key.isValid() && key.isWritable()) {
+            manager.onWritable();
+        }
+    }
+
+    private void runPendingTasks() {
+        Runnable task;
+        while ((task = pendingTasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private static void updateInterest(SelectionKey key, int ops) {
+        if (key.isValid()) {
+            key.interestOps(ops);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package heig.dai.pw02.socket;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A fixed set of event loops sharing the connections registered on the group in a round-robin
+ * fashion.
+ */
+public final class NioEventLoopGroup implements Closeable {
+
+    private final NioEventLoop[] eventLoops;
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * Create a group of event loops.
+     *
+     * @param threads the number of event loops, each one running on its own thread
+     */
+    public NioEventLoopGroup(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one event loop is required");
+        }
+
+        eventLoops = new NioEventLoop[threads];
+        for (int i = 0; i < threads; i++) {
+            eventLoops[i] = new NioEventLoop("nio-" + (i + 1));
+        }
+    }
+
+    /**
+     * Register a connected channel on the next event loop of the group.
+     *
+     * @param channel the connected channel
+     * @return the transport exchanging messages on the channel
+     */
+    public NioSocketManager register(SocketChannel channel) {
+        int index = Math.floorMod(next.getAndIncrement(), eventLoops.length);
+        return eventLoops[index].register(channel);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (NioEventLoop eventLoop : eventLoops) {
+            eventLoop.close();
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package heig.dai.pw02.socket;
+
+import heig.dai.pw02.ccp.CCPError;
+import heig.dai.pw02.ccp.CCPMessage;
+import heig.dai.pw02.ccp.Message;
+import heig.dai.pw02.ccp.MessageCodec;
+import heig.dai.pw02.metrics.Metrics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Non-blocking transport of a single connection driven by a {@link NioEventLoop}. Incoming bytes
+ * are framed and decoded directly in the read buffer of the event loop and the messages are
+ * handed to the owner of the connection from the event loop thread, no thread is dedicated to
+ * reading the connection. The connection only keeps the bytes of a frame not fully received.
+ * Outgoing messages are buffered until flushed, then written straight away when the socket
+ * accepts them, the remainder is written by the event loop once the socket becomes writable.
+ */
+@Slf4j
+public final class NioSocketManager implements MessageTransport {
+
+    private static final int MAX_LINE_LENGTH = 2048;
+    // The longest incomplete line and the bytes read after it
+    static final int READ_BUFFER_SIZE = 2 * MAX_LINE_LENGTH;
+    // The messages of a move and its promotion, grown when the socket is slower than the game
+    private static final int WRITE_BUFFER_SIZE = 128;
+
+    private final NioEventLoop eventLoop;
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final Object writeLock = new Object();
+    private final Object readLock = new Object();
+    private final ProtocolNegotiation negotiation = new ProtocolNegotiation();
+    private final WriteStatistics writeStatistics = new WriteStatistics();
+    private final QueuedMessages queuedMessages = new QueuedMessages();
+    // Messages received before a listener was attached to the connection
+    private final Queue<Message> pendingMessages = new ArrayDeque<>();
+    private Consumer<Message> listener;
+
+    // Bytes of the frame not fully received yet, null if none
+    private ByteBuffer partialFrame;
+    private ByteBuffer writeBuffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+    private boolean writePending = false;
+    private volatile boolean closed = false;
+
+    NioSocketManager(NioEventLoop eventLoop, SocketChannel channel, SelectionKey key) {
+        this.eventLoop = eventLoop;
+        this.channel = channel;
+        this.key = key;
+    }
+
+    @Override
+    public void write(Message message) {
+        synchronized (writeLock) {
+            if (closed) {
+                log.warn("Dropped message {} sent to a closed connection", message.getType());
+                return;
+            }
+
+            writeBuffer = ensureCapacity(writeBuffer, MessageCodec.maxEncodedLength(message));
+            MessageCodec.encode(message, writeBuffer, negotiation.isBinary());
+            writeStatistics.recordMessage();
+            queuedMessages.add(message.getType());
+        }
+        log.debug("Queued: {}", message);
+    }
+
+    /**
+     * Write the buffered messages straight away if the channel accepts them, the remainder is
+     * written by the event loop once the channel becomes writable.
+     */
+    @Override
+    public void flush() {
+        synchronized (writeLock) {
+            // NOTE: while the event loop waits for the channel, it flushes the new messages too
+            if (!closed && !writePending && writeBuffer.position() > 0) {
+                flushWriteBuffer();
+            }
+        }
+    }
+
+    @Override
+    public WriteStatistics getWriteStatistics() {
+        return writeStatistics;
+    }
+
+    @Override
+    public void requestVersion(int version) {
+        send(negotiation.hello(version));
+    }
+
+    /**
+     * Start handing the received messages to the listener. The messages are delivered from the
+     * event loop thread, the reader executor is not used.
+     *
+     * @param listener       the listener receiving the messages
+     * @param readerExecutor unused, the event loop is the reader of the connection
+     */
+    @Override
+    public void listen(Consumer<Message> listener, Executor readerExecutor) {
+        synchronized (readLock) {
+            this.listener = listener;
+            Message message;
+            while ((message = pendingMessages.poll()) != null) {
+                listener.accept(message);
+            }
+        }
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (writeLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        log.debug("Closing connection, {}", writeStatistics);
+
+        key.cancel();
+        channel.close();
+        deliver(Message.error(CCPError.DISCONNECTED));
+    }
+
+    /**
+     * Called by the event loop when bytes are available on the channel.
+     *
+     * @param readBuffer the read buffer of the event loop, of {@link #READ_BUFFER_SIZE} bytes
+     */
+    void onReadable(ByteBuffer readBuffer) {
+        readBuffer.clear();
+        if (null != partialFrame) {
+            readBuffer.put(partialFrame);
+            partialFrame = null;
+        }
+
+        try {
+            int read = channel.read(readBuffer);
+            if (read < 0) {
+                log.warn("A client got disconnected");
+                close();
+                return;
+            }
+
+            Metrics.BYTES_RECEIVED.add(read);
+            frameMessages(readBuffer);
+        } catch (IOException e) {
+            log.warn("A client got disconnected");
+            closeQuietly();
+        }
+    }
+
+    /**
+     * Called by the event loop when the channel can accept the pending writes.
+     */
+    void onWritable() {
+        synchronized (writeLock) {
+            flushWriteBuffer();
+        }
+    }
+
+    /**
+     * Decode every complete frame of the read buffer and deliver the messages. The bytes of
+     * an incomplete frame are copied aside for the next read.
+     */
+    private void frameMessages(ByteBuffer readBuffer) {
+        readBuffer.flip();
+        int frameStart = readBuffer.position();
+        int length = MessageCodec.frameLength(readBuffer, frameStart, readBuffer.limit());
+        while (length >= 0) {
+            Message message;
+            try {
+                message = MessageCodec.decodeFrame(readBuffer, frameStart, length);
+                Metrics.MESSAGES_RECEIVED.increment(message.getType());
+                log.debug("Received: {}", message);
+            } catch (IllegalArgumentException e) {
+                log.warn("Received a malformed message: {}", e.getMessage());
+                message = Message.error(CCPError.INVALID_MESSAGE);
+            }
+
+            if (message.getType() == CCPMessage.HELLO) {
+                Message answer = negotiation.onHello(message);
+                if (null != answer) {
+                    send(answer);
+                }
+            } else {
+                deliver(message);
+            }
+            frameStart += length;
+            length = MessageCodec.frameLength(readBuffer, frameStart, readBuffer.limit());
+        }
+
+        int incomplete = readBuffer.limit() - frameStart;
+        if (incomplete >= MAX_LINE_LENGTH) {
+            log.warn("A client sent a line longer than {} bytes", MAX_LINE_LENGTH);
+            closeQuietly();
+        } else if (incomplete > 0) {
+            readBuffer.position(frameStart);
+            partialFrame = ByteBuffer.allocate(incomplete).put(readBuffer).flip();
+        }
+    }
+
+    /**
+     * Write as much of the pending output as the channel accepts, and wait for the channel to be
+     * writable again if some of it is left. Must be called holding the write lock.
+     */
+    private void flushWriteBuffer() {
+        writeBuffer.flip();
+        try {
+            writeStatistics.recordWrite();
+            Metrics.BYTES_SENT.add(channel.write(writeBuffer));
+        } catch (IOException e) {
+            log.warn(
+                    "Could not send {} messages, a client got disconnected", queuedMessages.clear()
+            );
+            writeBuffer.clear();
+            eventLoop.execute(this::closeQuietly);
+            return;
+        }
+
+        boolean pending = writeBuffer.hasRemaining();
+        writeBuffer.compact();
+        if (!pending) {
+            log.debug("Sent {} messages", queuedMessages.sent());
+        }
+        if (pending != writePending) {
+            writePending = pending;
+            eventLoop.setInterest(
+                    key,
+                    pending ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ
+            );
+        }
+    }
+
+    /**
+     * Hand a message to the listener, or keep it until a listener is attached.
+     *
+     * @param message the received message
+     */
+    private void deliver(Message message) {
+        synchronized (readLock) {
+            if (null == listener) {
+                pendingMessages.add(message);
+            } else {
+                listener.accept(message);
+            }
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (IOException e) {
+            log.debug("Error while closing connection", e);
+        }
+    }
+
+    private static ByteBuffer ensureCapacity(ByteBuffer buffer, int additional) {
+        if (buffer.remaining() >= additional) {
+            return buffer;
+        }
+
+        ByteBuffer grown = ByteBuffer.allocate(
+                Math.max(buffer.capacity() * 2, buffer.position() + additional)
+        );
+        buffer.flip();
+        grown.put(buffer);
+        return grown;
+    }
+}
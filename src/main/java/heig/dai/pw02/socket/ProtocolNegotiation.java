@@ -0,0 +1,53 @@
+package heig.dai.pw02.socket;
+
+import heig.dai.pw02.ccp.CCPMessage;
+import heig.dai.pw02.ccp.Message;
+import heig.dai.pw02.ccp.MessageCodec;
+
+/**
+ * State of the HELLO exchange of a connection. The peer initiating the exchange announces the
+ * highest version it supports, the other peer answers with the version both support. Each side
+ * switches its output to the binary framing once it has sent or received the answer.
+ */
+final class ProtocolNegotiation {
+
+    private boolean helloSent = false;
+    private volatile boolean binary = false;
+
+    /**
+     * Create the HELLO initiating the exchange.
+     *
+     * @param version the highest version supported
+     * @return the message to send
+     */
+    synchronized Message hello(int version) {
+        helloSent = true;
+        return Message.of(CCPMessage.HELLO, version);
+    }
+
+    /**
+     * Handle a HELLO received from the peer.
+     *
+     * @param hello the received message
+     * @return the answer to send to the peer, null if the exchange was initiated locally
+     */
+    synchronized Message onHello(Message hello) {
+        int version = hello.getArgumentCount() == 1
+                ? Math.min(hello.getInt(0), MessageCodec.BINARY_VERSION)
+                : MessageCodec.TEXT_VERSION;
+        binary = version >= MessageCodec.BINARY_VERSION;
+        if (helloSent) {
+            return null;
+        }
+
+        helloSent = true;
+        return Message.of(CCPMessage.HELLO, Math.max(version, MessageCodec.TEXT_VERSION));
+    }
+
+    /**
+     * @return true if the output uses the binary framing
+     */
+    boolean isBinary() {
+        return binary;
+    }
+}
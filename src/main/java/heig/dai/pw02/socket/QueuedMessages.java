@@ -0,0 +1,50 @@
+package heig.dai.pw02.socket;
+
+import heig.dai.pw02.ccp.CCPMessage;
+import heig.dai.pw02.metrics.Metrics;
+
+import java.util.Arrays;
+
+/**
+ * Counts the messages waiting in the output buffer of a transport, by type. They are only added
+ * to the sent messages once the buffer was written to the connection, the messages of a buffer
+ * that could not be written are dropped. Must be used holding the write lock of the transport.
+ */
+final class QueuedMessages {
+
+    private static final CCPMessage[] TYPES = CCPMessage.values();
+
+    private final int[] counts = new int[TYPES.length];
+    private int total;
+
+    void add(CCPMessage type) {
+        counts[type.ordinal()]++;
+        total++;
+    }
+
+    /**
+     * Count the queued messages as sent.
+     *
+     * @return the number of messages sent
+     */
+    int sent() {
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                Metrics.MESSAGES_SENT.add(TYPES[i], counts[i]);
+            }
+        }
+        return clear();
+    }
+
+    /**
+     * Forget the queued messages, which were not sent.
+     *
+     * @return the number of messages dropped
+     */
+    int clear() {
+        int cleared = total;
+        Arrays.fill(counts, 0);
+        total = 0;
+        return cleared;
+    }
+}
@@ -3,30 +3,46 @@ package heig.dai.pw02.socket;
 import heig.dai.pw02.ccp.CCPError;
 import heig.dai.pw02.ccp.CCPMessage;
 import heig.dai.pw02.ccp.Message;
+import heig.dai.pw02.ccp.MessageCodec;
+import heig.dai.pw02.metrics.Metrics;
 
-import java.io.BufferedReader;
-import java.io.Closeable;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UncheckedIOException;
 import java.net.Socket;
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Blocking transport of a single connection. Frames are delimited and decoded straight from the
+ * read buffer. Messages are encoded into the write buffer and the whole buffer is written to the
+ * socket in one call when flushed.
+ */
 @Slf4j
-public final class SocketManager implements Closeable {
+public final class SocketManager implements MessageTransport {
+
+    private static final int BUFFER_SIZE = 512;
+    private static final int MAX_LINE_LENGTH = 4 * BUFFER_SIZE;
 
     private final Socket socket;
-    private final BufferedReader input;
-    private final PrintWriter output;
+    private final InputStream input;
+    private final OutputStream output;
+    private final ProtocolNegotiation negotiation = new ProtocolNegotiation();
+    // Unread bytes are kept between the position and the limit
+    private ByteBuffer readBuffer = ByteBuffer.allocate(BUFFER_SIZE).flip();
+    private ByteBuffer writeBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final WriteStatistics writeStatistics = new WriteStatistics();
+    private final QueuedMessages queuedMessages = new QueuedMessages();
 
     public SocketManager(Socket socket) {
         this.socket = socket;
         try {
-            this.input = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
-            this.output = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+            this.input = socket.getInputStream();
+            this.output = socket.getOutputStream();
         } catch (IOException e) {
             log.error("Error while creating socket manager");
             throw new UncheckedIOException(e);
@@ -35,46 +51,166 @@ public final class SocketManager implements Closeable {
 
     @Override
     public void close() throws IOException {
-        input.close();
-        output.close();
+        log.debug("Closing connection, {}", writeStatistics);
+        // Closing the socket first releases a reader blocked on the input stream
         socket.close();
+        output.close();
+        input.close();
     }
 
-    /**
-     * Check if the socket is closed.
-     *
-     * @return true if the socket is closed, false otherwise
-     */
+    @Override
     public boolean isClosed() {
         return socket.isClosed();
     }
 
+    @Override
+    public void write(Message message) {
+        synchronized (output) {
+            int length = MessageCodec.maxEncodedLength(message);
+            if (writeBuffer.remaining() < length) {
+                ByteBuffer grown = ByteBuffer.allocate(
+                        Math.max(writeBuffer.capacity() * 2, writeBuffer.position() + length)
+                );
+                writeBuffer = grown.put(writeBuffer.flip());
+            }
+
+            MessageCodec.encode(message, writeBuffer, negotiation.isBinary());
+            writeStatistics.recordMessage();
+            queuedMessages.add(message.getType());
+        }
+        log.debug("Queued: {}", message);
+    }
+
+    @Override
+    public void flush() {
+        synchronized (output) {
+            if (writeBuffer.position() == 0) {
+                return;
+            }
+
+            try {
+                writeStatistics.recordWrite();
+                output.write(writeBuffer.array(), 0, writeBuffer.position());
+                Metrics.BYTES_SENT.add(writeBuffer.position());
+                log.debug("Sent {} messages", queuedMessages.sent());
+            } catch (IOException e) {
+                log.warn(
+                        "Could not send {} messages, the client got disconnected",
+                        queuedMessages.clear()
+                );
+            } finally {
+                writeBuffer.clear();
+            }
+        }
+    }
+
+    @Override
+    public WriteStatistics getWriteStatistics() {
+        return writeStatistics;
+    }
+
+    @Override
+    public void requestVersion(int version) {
+        send(negotiation.hello(version));
+    }
+
     /**
-     * Send a message to the socket.
+     * Start a reader loop on the given executor, blocking on the socket and handing every message
+     * to the listener until the socket gets disconnected.
      *
-     * @param message the message to send
+     * @param listener       the listener receiving the messages
+     * @param readerExecutor the executor running the reader loop
      */
-    public void send(Message message) {
-        output.println(message.toString());
-        log.debug("Sent: {}", message);
+    @Override
+    public void listen(Consumer<Message> listener, Executor readerExecutor) {
+        readerExecutor.execute(() -> {
+            Message message;
+            do {
+                message = read();
+                listener.accept(message);
+            } while (!message.isError(CCPError.DISCONNECTED));
+        });
     }
 
     /**
-     * Read a message from the socket.
+     * Read a message from the socket, blocking until one is available. HELLO messages are handled
+     * by the transport and never returned.
      *
-     * @return the message read from the socket, or null if the socket was disconnected.
+     * @return the message read from the socket, an INVALID_MESSAGE error if the frame could not be
+     * parsed, or a DISCONNECTED error if the socket was disconnected.
      */
     public Message read() {
         try {
-            String line = input.readLine();
-            log.debug("Received: {}", line);
-            if (line == null) {
-                return Message.of(CCPMessage.ERROR, CCPError.DISCONNECTED.ordinal());
+            Message message = readFrame();
+            while (message.getType() == CCPMessage.HELLO) {
+                answerHello(message);
+                message = readFrame();
             }
-            return Message.parse(line);
+            return message;
         } catch (IOException e) {
             log.warn("A client got disconnected");
-            return Message.of(CCPMessage.ERROR, CCPError.DISCONNECTED.ordinal());
+            return Message.error(CCPError.DISCONNECTED);
+        }
+    }
+
+    private Message readFrame() throws IOException {
+        int length = MessageCodec.frameLength(readBuffer, readBuffer.position(), readBuffer.limit());
+        while (length < 0) {
+            if (!fill()) {
+                return Message.error(CCPError.DISCONNECTED);
+            }
+            length = MessageCodec.frameLength(readBuffer, readBuffer.position(), readBuffer.limit());
+        }
+
+        int frameStart = readBuffer.position();
+        readBuffer.position(frameStart + length);
+        try {
+            Message message = MessageCodec.decodeFrame(readBuffer, frameStart, length);
+            Metrics.MESSAGES_RECEIVED.increment(message.getType());
+            log.debug("Received: {}", message);
+            return message;
+        } catch (IllegalArgumentException e) {
+            log.warn("Received a malformed message: {}", e.getMessage());
+            return Message.error(CCPError.INVALID_MESSAGE);
+        }
+    }
+
+    private void answerHello(Message hello) {
+        Message answer = negotiation.onHello(hello);
+        if (null != answer) {
+            send(answer);
+        }
+    }
+
+    /**
+     * Read more bytes from the socket, blocking until some are available. The unread bytes are
+     * moved to the start of the buffer first.
+     *
+     * @return false if the socket reached its end or the line is too long
+     * @throws IOException if the socket could not be read
+     */
+    private boolean fill() throws IOException {
+        readBuffer.compact();
+        if (!readBuffer.hasRemaining()) {
+            if (readBuffer.capacity() >= MAX_LINE_LENGTH) {
+                log.warn("A client sent a line longer than {} bytes", MAX_LINE_LENGTH);
+                close();
+                return false;
+            }
+
+            ByteBuffer grown = ByteBuffer.allocate(readBuffer.capacity() * 2);
+            readBuffer.flip();
+            readBuffer = grown.put(readBuffer);
+        }
+
+        int read = input.read(
+                readBuffer.array(), readBuffer.position(), readBuffer.remaining()
+        );
+        if (read > 0) {
+            Metrics.BYTES_RECEIVED.add(read);
+            readBuffer.position(readBuffer.position() + read);
         }
+        readBuffer.flip();
+        return read > 0;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,67 @@
+package heig.dai.pw02.socket;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the messages written by a transport and the write system calls issued to send them.
+ * Messages written between two flushes go out in a single system call, the difference between
+ * both counts is the number of system calls saved by coalescing. The counts of every transport
+ * are also added to process wide totals.
+ */
+public final class WriteStatistics {
+
+    private static final LongAdder TOTAL_MESSAGES = new LongAdder();
+    private static final LongAdder TOTAL_WRITES = new LongAdder();
+
+    private volatile long messages = 0;
+    private volatile long writes = 0;
+
+    WriteStatistics() {
+    }
+
+    /**
+     * Record a message added to the output buffer. Must be called holding the write lock of the
+     * transport.
+     */
+    void recordMessage() {
+        messages++;
+        TOTAL_MESSAGES.increment();
+    }
+
+    /**
+     * Record a write system call. Must be called holding the write lock of the transport.
+     */
+    void recordWrite() {
+        writes++;
+        TOTAL_WRITES.increment();
+    }
+
+    public long getMessages() {
+        return messages;
+    }
+
+    public long getWrites() {
+        return writes;
+    }
+
+    public long getSavedWrites() {
+        return messages - writes;
+    }
+
+    public static long getTotalMessages() {
+        return TOTAL_MESSAGES.sum();
+    }
+
+    public static long getTotalWrites() {
+        return TOTAL_WRITES.sum();
+    }
+
+    public static long getTotalSavedWrites() {
+        return getTotalMessages() - getTotalWrites();
+    }
+
+    @Override
+    public String toString() {
+        return "%d messages in %d writes (%d saved)".formatted(messages, writes, getSavedWrites());
+    }
+}
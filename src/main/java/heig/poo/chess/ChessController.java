@@ -25,6 +25,18 @@ public interface ChessController {
      */
     boolean move(int fromX, int fromY, int toX, int toY);
 
+    /**
+     * Appelé lorsque l'utilisateur sélectionne une pièce, pour mettre en évidence les cases où
+     * elle peut se déplacer. La case x, y correspond au bit y * 8 + x du résultat.
+     *
+     * @param x
+     * @param y
+     * @return les cases où la pièce peut se déplacer, 0 si aucune ou si elle ne peut pas jouer.
+     */
+    default long legalDestinations(int x, int y) {
+        return 0;
+    }
+
     /**
      * Démarre une nouvelle partie. L'échiquier doit être remis dans sa position initiale.
      */
@@ -0,0 +1,518 @@
+package heig.poo.chess.engine;
+
+import heig.poo.chess.PieceType;
+import heig.poo.chess.PlayerColor;
+import heig.poo.chess.engine.bitboard.Bitboards;
+import heig.poo.chess.engine.bitboard.KeyHistory;
+import heig.poo.chess.engine.bitboard.Move;
+import heig.poo.chess.engine.bitboard.MoveGenerator;
+import heig.poo.chess.engine.bitboard.MoveList;
+import heig.poo.chess.engine.bitboard.Position;
+import heig.poo.chess.engine.piece.Bishop;
+import heig.poo.chess.engine.piece.ChessPiece;
+import heig.poo.chess.engine.piece.King;
+import heig.poo.chess.engine.piece.Knight;
+import heig.poo.chess.engine.piece.Pawn;
+import heig.poo.chess.engine.piece.PromotablePiece;
+import heig.poo.chess.engine.piece.Queen;
+import heig.poo.chess.engine.piece.Rook;
+import heig.poo.chess.engine.util.Assertions;
+import heig.poo.chess.engine.util.Board;
+import heig.poo.chess.engine.util.Point;
+
+/**
+ * Class representing the rules of a chess game, from the beginning to the end, without any view.
+ * The moves are validated and applied on the board, and their result is returned encoded as
+ * described in {@link MoveResult}: the captured piece, the special move, whether a promotion is
+ * needed and the status of the game. Displaying the game is left to {@link GameManager}.
+ *
+ * @author Vicky Butty
+ * @author Loïc Herman
+ * @author Massimo Stefani
+ * @version 1.0
+ */
+public class ChessGame {
+
+    // Number of occurrences of a position ending the game in a draw
+    private static final int REPETITIONS_FOR_DRAW = 3;
+    private static final PlayerColor[] COLORS = PlayerColor.values();
+
+    // Moves generated by the games of a thread, only read while indexing their destinations
+    private static final ThreadLocal<MoveList> GENERATED_MOVES =
+            ThreadLocal.withInitial(MoveList::new);
+
+    protected final Board board = new Board();
+    // Destinations of the legal moves of the player to move in the order of their starting
+    // square, generated once after every move and valid for movablePieces
+    private final long[] legalDestinations = new long[MoveList.MAX_ORIGINS];
+    private long movablePieces;
+    // Keys of the positions reached since the last irreversible move
+    private final KeyHistory keyHistory = new KeyHistory();
+    private int turn;
+    // Status of the game after the last move, evaluated once per move
+    private GameStatus status = GameStatus.ONGOING;
+    // Pawn waiting for its promotion to complete the move, and the result of its move
+    private ChessPiece pendingPromotion;
+    private int pendingResult;
+
+    /**
+     * Constructor for a new game in the initial state of a chess game.
+     */
+    public ChessGame() {
+        reset();
+    }
+
+    /**
+     * Put the board back in its initial state and give the move to white.
+     */
+    public void newGame() {
+        board.reset();
+        reset();
+    }
+
+    private void reset() {
+        turn = 0;
+        status = GameStatus.ONGOING;
+        pendingPromotion = null;
+        updateLegalMoves();
+        keyHistory.push(board.getKey(), true);
+    }
+
+    /**
+     * Play a move of the player to move. When a pawn reaches the last rank, the move is only
+     * complete once {@link #promote(PieceType)} chose the piece replacing it, no other move can
+     * be played in the meantime.
+     *
+     * @param fromX The x coordinate of the piece to move
+     * @param fromY The y coordinate of the piece to move
+     * @param toX   The x coordinate of the destination
+     * @param toY   The y coordinate of the destination
+     * @return The result of the move, {@link MoveResult#ILLEGAL} if the move is not legal
+     * @throws IllegalArgumentException If one of the coordinates is out of the board
+     */
+    public int play(int fromX, int fromY, int toX, int toY) {
+        Assertions.assertTrue(
+                Board.isInBoard(fromX, fromY) && Board.isInBoard(toX, toY),
+                "Invalid move"
+        );
+
+        Point from = Point.of(fromX, fromY);
+        Point to = Point.of(toX, toY);
+        ChessPiece piece = board.getPiece(from);
+        if (status.isOver() || null != pendingPromotion || !movePreconditions(piece, to)) {
+            return MoveResult.ILLEGAL;
+        }
+
+        // Pawn moves, captures and lost castling rights cannot be reversed
+        int castlingRights = board.getPosition().getCastlingRights();
+        ChessPiece captured = board.getPiece(to);
+        boolean irreversible = piece instanceof Pawn || null != captured;
+
+        int flags = executeSpecialMoves(piece, to);
+        movePiece(piece, to);
+        if ((flags & MoveResult.CASTLING) == 0) {
+            board.setLastMove(from, piece.getPos());
+        }
+        PieceType capturedType = (flags & MoveResult.EN_PASSANT) != 0 ? PieceType.PAWN
+                : null == captured ? null
+                : captured.getPieceType();
+
+        if (piece instanceof PromotablePiece promotable && promotable.canPromote()) {
+            pendingPromotion = piece;
+            flags |= MoveResult.PROMOTION_NEEDED;
+            pendingResult = MoveResult.of(capturedType, flags, status);
+            return pendingResult;
+        }
+
+        irreversible |= board.getPosition().getCastlingRights() != castlingRights;
+        postMoveActions(irreversible);
+        return MoveResult.of(capturedType, flags, status);
+    }
+
+    /**
+     * Play a move written in coordinate notation: its starting and destination squares, followed
+     * by the piece chosen by a promotion, {@code "e2e4"} or {@code "b7a8q"}.
+     *
+     * @param move The move
+     * @return The result of the move, see {@link #play(int, int, int, int)}. A promotion is left
+     * pending when the move does not choose its piece
+     * @throws IllegalArgumentException If the move is not written in coordinate notation
+     */
+    public int play(String move) {
+        checkNotation(move);
+        int result = play(fileOf(move, 0), rankOf(move, 1), fileOf(move, 2), rankOf(move, 3));
+        if (move.length() > 4 && MoveResult.isPromotionNeeded(result)) {
+            result = promote(promotionOf(move.charAt(4)));
+        }
+
+        return result;
+    }
+
+    /**
+     * Replace the pawn that reached the last rank, completing its move.
+     *
+     * @param type The type of the piece replacing the pawn: a queen, a rook, a bishop or a knight
+     * @return The result of the move, {@link MoveResult#ILLEGAL} if no promotion is pending or
+     * the type is not a possible promotion
+     */
+    public int promote(PieceType type) {
+        if (null == pendingPromotion || null == type) {
+            return MoveResult.ILLEGAL;
+        }
+
+        int x = pendingPromotion.getX(), y = pendingPromotion.getY();
+        PlayerColor color = pendingPromotion.getPlayerColor();
+        ChessPiece promoted = switch (type) {
+            case QUEEN -> new Queen(color, x, y);
+            case ROOK -> new Rook(color, x, y);
+            case BISHOP -> new Bishop(color, x, y);
+            case KNIGHT -> new Knight(color, x, y);
+            default -> null;
+        };
+        if (null == promoted) {
+            return MoveResult.ILLEGAL;
+        }
+
+        board.removePiece(pendingPromotion);
+        board.addPiece(promoted);
+        pendingPromotion = null;
+        postMoveActions(true);
+        return MoveResult.promoted(pendingResult, type, status);
+    }
+
+    /**
+     * Check that a move is written in coordinate notation, see {@link #play(String)}.
+     *
+     * @throws IllegalArgumentException If the move is not written in coordinate notation
+     */
+    static void checkNotation(String move) {
+        // NOTE: the message is only built for invalid moves, moves should not allocate
+        if (move.length() != 4 && (move.length() != 5 || null == promotionOf(move.charAt(4)))) {
+            throw new IllegalArgumentException("Invalid move: " + move);
+        }
+    }
+
+    static int fileOf(String move, int index) {
+        return move.charAt(index) - 'a';
+    }
+
+    static int rankOf(String move, int index) {
+        return move.charAt(index) - '1';
+    }
+
+    private static PieceType promotionOf(char piece) {
+        return switch (piece) {
+            case 'q' -> PieceType.QUEEN;
+            case 'r' -> PieceType.ROOK;
+            case 'b' -> PieceType.BISHOP;
+            case 'n' -> PieceType.KNIGHT;
+            default -> null;
+        };
+    }
+
+    /**
+     * Get the pawn waiting for its promotion to complete its move.
+     *
+     * @return The pawn, null if no promotion is pending
+     */
+    public ChessPiece getPendingPromotion() {
+        return pendingPromotion;
+    }
+
+    /**
+     * Check the preconditions of the desired move and return true if the move is valid. The move
+     * must be one of the legal moves of the player to move, looked up in the destinations of the
+     * piece.
+     *
+     * @param piece The piece to move
+     * @param to    The destination
+     * @return True if the move is valid, false otherwise
+     */
+    protected boolean movePreconditions(ChessPiece piece, Point to) {
+        if (null == piece || !piece.getPlayerColor().equals(playerTurn())) {
+            return false;
+        }
+
+        long destinations = destinationsOf(Bitboards.square(piece.getPos()));
+        return (destinations & Bitboards.bit(Bitboards.square(to))) != Bitboards.EMPTY;
+    }
+
+    /**
+     * Generate the legal moves of the player to move and index their destinations by their
+     * starting square.
+     */
+    private void updateLegalMoves() {
+        MoveList moves = GENERATED_MOVES.get();
+        MoveGenerator.generateLegalMoves(board.getPosition(), moves);
+        movablePieces = moves.indexDestinations(legalDestinations);
+    }
+
+    /**
+     * Get the destinations of the legal moves of the piece standing on a square.
+     *
+     * @param square The square of the piece
+     * @return The bitboard of the destinations, empty if the piece cannot move
+     */
+    private long destinationsOf(int square) {
+        return (movablePieces & Bitboards.bit(square)) == Bitboards.EMPTY
+                ? Bitboards.EMPTY
+                : legalDestinations[MoveList.indexOf(movablePieces, square)];
+    }
+
+    /**
+     * Generate the legal moves of the player to move.
+     *
+     * @param moves The list to fill, cleared first. The moves are encoded as described
+     *              in {@link Move}
+     * @return The given list
+     */
+    public MoveList generateLegalMoves(MoveList moves) {
+        return MoveGenerator.generateLegalMoves(board.getPosition(), moves);
+    }
+
+    /**
+     * Generate the legal moves of the player to move in a new list.
+     *
+     * @return The legal moves, encoded as described in {@link Move}
+     */
+    public MoveList generateLegalMoves() {
+        return generateLegalMoves(new MoveList());
+    }
+
+    /**
+     * Get a copy of the position of the game, on which moves can be made and taken back to
+     * analyse the game without changing it.
+     *
+     * @return A copy of the position
+     */
+    public Position copyPosition() {
+        return new Position(board.getPosition());
+    }
+
+    /**
+     * Get the Zobrist key of the position of the game, identifying it among the positions that
+     * can be reached, see {@link Position#getKey()}.
+     *
+     * @return The key of the position
+     */
+    public long getPositionKey() {
+        return board.getKey();
+    }
+
+    /**
+     * Get the squares where the piece standing on a square can move.
+     *
+     * @param x The x coordinate of the piece
+     * @param y The y coordinate of the piece
+     * @return The destinations, the square x, y being the bit y * 8 + x. Empty if there is no
+     * piece of the player to move on the square or if the game is over
+     */
+    public long legalDestinations(int x, int y) {
+        ChessPiece piece = board.getPiece(x, y);
+        if (status.isOver() || null != pendingPromotion
+                || null == piece || piece.getPlayerColor() != playerTurn()) {
+            return Bitboards.EMPTY;
+        }
+
+        return destinationsOf(Bitboards.square(x, y));
+    }
+
+    /**
+     * Method used to make actions after the move: the turn goes to the adversary unless the game
+     * is over.
+     *
+     * @param irreversible indicates if the move cannot be reversed, as a pawn move, a capture or
+     *                     the loss of a castling right
+     */
+    private void postMoveActions(boolean irreversible) {
+        PlayerColor adversary = playerTurn().opposite();
+        board.setSideToMove(adversary);
+        updateLegalMoves();
+        keyHistory.push(board.getKey(), irreversible);
+        status = evaluateStatus(adversary);
+
+        if (!status.isOver()) {
+            updatePlayerTurn();
+        }
+    }
+
+    /**
+     * Evaluate the status of the game for the player about to move, in a single pass over the
+     * checking pieces, the pieces having a legal move, the repetitions of the position and the
+     * material left on the board. Each of them is only looked at when the previous ones did not
+     * decide the status.
+     *
+     * @param adversary The color of the player about to move
+     * @return The status of the game
+     */
+    private GameStatus evaluateStatus(PlayerColor adversary) {
+        boolean check = checkIfAdversaryKingIsInCheck(adversary);
+        boolean noLegalMove = movablePieces == Bitboards.EMPTY;
+        if (noLegalMove) {
+            return check ? GameStatus.CHECKMATE : GameStatus.STALEMATE;
+        }
+        if (keyHistory.repetitions() >= REPETITIONS_FOR_DRAW) {
+            return GameStatus.THREEFOLD_REPETITION;
+        }
+        if (isInsufficientMaterial()) {
+            return GameStatus.INSUFFICIENT_MATERIAL;
+        }
+
+        return check ? GameStatus.CHECK : GameStatus.ONGOING;
+    }
+
+    /**
+     * Get the status of the game after the last move.
+     *
+     * @return The status of the game
+     */
+    public GameStatus getStatus() {
+        return status;
+    }
+
+    protected boolean isEndGame() {
+        return status.isOver();
+    }
+
+    /**
+     * Check if the adversary king is in check, given by the moved piece or by a piece it
+     * uncovered. The checking pieces are added to the inCheckBy list of the king.
+     *
+     * @param adversary The color of the adversary
+     * @return True if the king is in check, false otherwise
+     */
+    private boolean checkIfAdversaryKingIsInCheck(PlayerColor adversary) {
+        King adversaryKing = board.getKing(adversary);
+        long checkers = MoveGenerator.checkers(board.getPosition());
+        for (; checkers != Bitboards.EMPTY; checkers &= checkers - 1) {
+            int square = Long.numberOfTrailingZeros(checkers);
+            ChessPiece checker = board.getPiece(square);
+            adversaryKing.addInCheckBy(checker);
+        }
+
+        return adversaryKing.isInCheck();
+    }
+
+    /**
+     * Method used to check if players cannot checkmate between each other: a king against a king,
+     * a king and a minor piece against a king, or kings and bishops standing on squares of the
+     * same color. This method follows the rules:
+     * <a href="https://en.wikipedia.org/wiki/Draw_(chess)">Impossibility of checkmate</a>
+     * <p>
+     * The pieces are counted on the bitboards of the board, which takes constant time.
+     *
+     * @return True if player cannot checkmate between each other, false otherwise
+     */
+    protected boolean isInsufficientMaterial() {
+        int minorPieces = 0;
+        for (PlayerColor color : COLORS) {
+            // A pawn, a rook or a queen is always enough to checkmate
+            if (board.countPieces(color, PieceType.PAWN) + board.countPieces(color, PieceType.ROOK)
+                    + board.countPieces(color, PieceType.QUEEN) != 0) {
+                return false;
+            }
+            minorPieces += board.countPieces(color, PieceType.BISHOP)
+                    + board.countPieces(color, PieceType.KNIGHT);
+        }
+
+        if (minorPieces <= 1) {
+            return true;
+        }
+
+        long whiteBishops = board.getPieceSquares(PlayerColor.WHITE, PieceType.BISHOP);
+        long blackBishops = board.getPieceSquares(PlayerColor.BLACK, PieceType.BISHOP);
+        return minorPieces == 2
+                && Long.bitCount(whiteBishops) == 1 && Long.bitCount(blackBishops) == 1
+                && squareColor(whiteBishops) == squareColor(blackBishops);
+    }
+
+    private static int squareColor(long bishop) {
+        int square = Long.numberOfTrailingZeros(bishop);
+        return (Bitboards.xOf(square) + Bitboards.yOf(square)) % 2;
+    }
+
+    /**
+     * Update the board and the piece position. If the king is in check it will clear the pieces
+     * checking it, as a legal move always gets it out of check.
+     *
+     * @param p  The piece to move
+     * @param to The destination
+     */
+    private void movePiece(ChessPiece p, Point to) {
+        board.removePiece(p);
+        p.move(to);
+        board.addPiece(p);
+        if (board.getKing(playerTurn()).isInCheck()) {
+            board.getKing(playerTurn()).clearInCheckBy();
+        }
+    }
+
+    /**
+     * Method used to execute special moves like castling or en passant if the move is valid.
+     *
+     * @param piece the moving piece
+     * @param to    the destination
+     * @return the special move flags of the result, 0 if there is no special move
+     */
+    private int executeSpecialMoves(ChessPiece piece, Point to) {
+        if (castlingMove(piece, to)) {
+            return MoveResult.CASTLING;
+        }
+
+        return enPassantMove(piece, to) ? MoveResult.EN_PASSANT : 0;
+    }
+
+    /**
+     * Method used to do the castling move for the king and the rook involved in the castling.
+     * If the piece is not a king, the method does nothing and returns false.
+     *
+     * @param piece The moving piece
+     * @param to    The destination of the piece
+     * @return true if there is a castling move, false otherwise
+     */
+    private boolean castlingMove(ChessPiece piece, Point to) {
+        King king = board.getKing(piece.getPlayerColor());
+        if (!king.equals(piece) || !king.isCastling(to)) {
+            return false;
+        }
+
+        int newCastlingWithPos = king.getX() - to.x() < 0 ? to.x() - 1 : to.x() + 1;
+        ChessPiece castlingWithPiece = board.getPiece(king.getCastlingPiecePos(to));
+        Point newCastlingPiecePos = Point.of(newCastlingWithPos, king.getY());
+        movePiece(castlingWithPiece, newCastlingPiecePos);
+        board.setLastMove(castlingWithPiece.getPos(), newCastlingPiecePos);
+        return true;
+    }
+
+    /**
+     * Method used to do the en passant move for the pawn involved in the move. If the piece is not
+     * a pawn, the method does nothing and returns false.
+     *
+     * @param piece The moving piece
+     * @param to    The destination of the piece
+     * @return true if there is en passant move, false otherwise
+     */
+    private boolean enPassantMove(ChessPiece piece, Point to) {
+        if (!(piece instanceof Pawn p) || !p.isEnPassant(board, to)) {
+            return false;
+        }
+
+        Pawn adversaryPawn = (Pawn) board.getPiece(board.getLastMoveTo());
+        board.removePiece(adversaryPawn);
+        board.setLastMove(adversaryPawn.getPos(), to);
+        return true;
+    }
+
+    /**
+     * Method used to know the player that has to play.
+     *
+     * @return The player that has to play
+     */
+    protected PlayerColor playerTurn() {
+        return turn % 2 == 0 ? PlayerColor.WHITE : PlayerColor.BLACK;
+    }
+
+    protected void updatePlayerTurn() {
+        turn++;
+    }
+}
@@ -6,37 +6,26 @@ import heig.poo.chess.ChessView.UserChoice;
 import heig.poo.chess.PlayerColor;
 import heig.poo.chess.engine.piece.Bishop;
 import heig.poo.chess.engine.piece.ChessPiece;
-import heig.poo.chess.engine.piece.King;
 import heig.poo.chess.engine.piece.Knight;
-import heig.poo.chess.engine.piece.Pawn;
-import heig.poo.chess.engine.piece.PromotablePiece;
 import heig.poo.chess.engine.piece.Queen;
 import heig.poo.chess.engine.piece.Rook;
 import heig.poo.chess.engine.util.Assertions;
 import heig.poo.chess.engine.util.Board;
 import heig.poo.chess.engine.util.ChessString;
-import heig.poo.chess.engine.util.Direction;
-import heig.poo.chess.engine.util.Point;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
 
 /**
- * Class representing the game engine used to control a chess game from the beginning to the end.
+ * Class controlling a chess game displayed in a view, from the beginning to the end. The rules
+ * are applied by {@link ChessGame}, this class updates the view from the result of every move and
+ * asks the user for the choices of the game.
  *
  * @author Vicky Butty
  * @author Loïc Herman
  * @author Massimo Stefani
  * @version 1.0
  */
-public class GameManager implements ChessController {
+public class GameManager extends ChessGame implements ChessController {
 
-    private Map<ChessPiece, List<Point>> mandatoryAdversaryMoves = new HashMap<>();
-    protected final Board board = new Board();
     protected ChessView chessView;
-    private int turn;
-    private boolean isEndGame;
 
     /**
      * Constructor for a new GameManager in the initial state of a chess game.
@@ -46,10 +35,7 @@ public class GameManager implements ChessController {
 
     @Override
     public void newGame() {
-        board.reset();
-        mandatoryAdversaryMoves.clear();
-        turn = 0;
-        isEndGame = false;
+        super.newGame();
 
         if (null != chessView) {
             insertPiecesInView();
@@ -67,141 +53,88 @@ public class GameManager implements ChessController {
 
     @Override
     public boolean move(int fromX, int fromY, int toX, int toY) {
-        Assertions.assertTrue(
-                Board.isInBoard(fromX, fromY) && Board.isInBoard(toX, toY),
-                "Invalid move"
-        );
-
-        Point from = new Point(fromX, fromY);
-        Point to = new Point(toX, toY);
-        ChessPiece piece = board.getPiece(from);
-
-        if (!movePreconditions(piece, to)) {
+        int result = play(fromX, fromY, toX, toY);
+        if (!MoveResult.isLegal(result)) {
             return false;
         }
 
-        boolean specialMove = executeSpecialMoves(piece, to);
-        movePiece(piece, to);
-        promoteIfNeeded(piece);
-        if (!specialMove) {
-            board.setLastMove(from, piece.getPos());
+        updateView(fromX, fromY, toX, toY, result);
+        if (MoveResult.isPromotionNeeded(result)) {
+            result = promote(askUserForPromotion(getPendingPromotion()).getPieceType());
+            updateSquare(toX, toY);
         }
 
-        postMoveActions();
+        GameStatus status = MoveResult.statusOf(result);
+        displayMessages(status);
+        postGameActions(status);
         return true;
     }
 
     /**
-     * Check the preconditions of the desired move and return true if the move is valid.
-     *
-     * @param piece The piece to move
-     * @param to    The destination
-     * @return True if the move is valid, false otherwise
-     */
-    protected boolean movePreconditions(ChessPiece piece, Point to) {
-        return null != piece
-                && !piece.getPos().equals(to)
-                && piece.getPlayerColor().equals(playerTurn())
-                && piece.canMoveTo(board, to)
-                && (!board.getKing(piece.getPlayerColor()).isInCheck()
-                || mandatoryAdversaryMoves.get(piece).contains(to));
-    }
-
-    /**
-     * Method used to remove a piece from the board and the chessView.
+     * Play a move written in coordinate notation, see {@link ChessGame#play(String)}. The piece
+     * replacing a pawn that reached the last rank is asked to the user.
      *
-     * @param p The piece to remove
+     * @param move The move
+     * @return True if the move was played, false if it is not legal
+     * @throws IllegalArgumentException If the move is not written in coordinate notation
      */
-    protected void removePiece(ChessPiece p) {
-        board.removePiece(p);
-        chessView.removePiece(p.getX(), p.getY());
+    public boolean move(String move) {
+        checkNotation(move);
+        return move(fileOf(move, 0), rankOf(move, 1), fileOf(move, 2), rankOf(move, 3));
     }
 
     /**
-     * Method used to insert a piece in the board and the chessView.
+     * Update the squares of the view changed by a move: its starting and destination squares,
+     * the square of the pawn captured en passant and the squares of the rook of a castling.
      *
-     * @param p The piece to insert
+     * @param result The result of the move, see {@link MoveResult}
      */
-    protected void insertPiece(ChessPiece p) {
-        board.addPiece(p);
-        chessView.putPiece(p.getPieceType(), p.getPlayerColor(), p.getX(), p.getY());
+    private void updateView(int fromX, int fromY, int toX, int toY, int result) {
+        updateSquare(fromX, fromY);
+        updateSquare(toX, toY);
+        if (MoveResult.isEnPassant(result)) {
+            updateSquare(toX, fromY);
+        }
+        if (MoveResult.isCastling(result)) {
+            boolean kingSide = toX > fromX;
+            updateSquare(kingSide ? Board.BOARD_SIZE - 1 : 0, fromY);
+            updateSquare(kingSide ? toX - 1 : toX + 1, fromY);
+        }
     }
 
     /**
-     * Method used to make actions after the move.
+     * Display the piece standing on a square of the board, or nothing if the square is empty.
      */
-    private void postMoveActions() {
-        boolean check = checkIfAdversaryKingIsInCheck();
-        boolean checkMate = !mandatoryAdversaryMoves.isEmpty()
-                && mandatoryAdversaryMoves.values().stream().allMatch(List::isEmpty);
-        boolean impossibleToCheckMate = isInsufficientMaterial();
-        boolean stalemate = isStalemate();
-        displayMessages(checkMate, check, stalemate, impossibleToCheckMate);
-
-        if (!isEndGame(checkMate, stalemate, impossibleToCheckMate)) {
-            updatePlayerTurn();
+    private void updateSquare(int x, int y) {
+        ChessPiece piece = board.getPiece(x, y);
+        if (null == piece) {
+            chessView.removePiece(x, y);
+        } else {
+            chessView.putPiece(piece.getPieceType(), piece.getPlayerColor(), x, y);
         }
-
-        postGameActions(checkMate, stalemate, impossibleToCheckMate);
-    }
-
-    protected boolean isEndGame(boolean checkMate, boolean stalemate, boolean impossibleToCheckMate) {
-        if (checkMate || stalemate || impossibleToCheckMate) {
-            isEndGame = true;
-        }
-        return isEndGame;
-    }
-
-    protected boolean isEndGame() {
-        return isEndGame;
     }
 
     /**
      * Method used to display messages after the move using the chessView.
      *
-     * @param checkMate             indicates if the adversary king is in checkmate
-     * @param check                 indicates if the adversary king is in check
-     * @param stalemate             indicates if there is a stalemate
-     * @param impossibleOfCheckMate indicates if there is an impossibility of checkmate
+     * @param status The status of the game after the move
      */
-    private void displayMessages(
-            boolean checkMate,
-            boolean check,
-            boolean stalemate,
-            boolean impossibleOfCheckMate
-    ) {
-        if (checkMate) {
-            chessView.displayMessage(ChessString.CHECKMATE);
+    private void displayMessages(GameStatus status) {
+        if (status == GameStatus.ONGOING) {
+            chessView.displayMessage(ChessString.playerToMove(playerTurn()));
             return;
         }
 
-        if (check) {
-            chessView.displayMessage(ChessString.CHECK);
-            return;
-        }
-
-        if (stalemate) {
-            chessView.displayMessage(ChessString.STALEMATE);
-            return;
-        }
-
-        if (impossibleOfCheckMate) {
-            chessView.displayMessage(ChessString.INSUFFICIENT_MATERIAL);
-            return;
-        }
-
-        chessView.displayMessage(ChessString.playerToMove(playerTurn().opposite()));
+        chessView.displayMessage(status.getMessage());
     }
 
     /**
-     * Method used to make actions after a checkmate or a pat.
+     * Method used to make actions after a checkmate or a draw.
      *
-     * @param checkMate             indicates if the adversary king is in checkmate
-     * @param pat                   indicates if there is a pat
-     * @param impossibleOfCheckMate indicates if there is an impossibility of checkmate
+     * @param status The status of the game after the move
      */
-    protected void postGameActions(boolean checkMate, boolean pat, boolean impossibleOfCheckMate) {
-        if (!checkMate && !pat && !impossibleOfCheckMate) {
+    protected void postGameActions(GameStatus status) {
+        if (!status.isOver()) {
             return;
         }
         postGameActions();
@@ -215,12 +148,10 @@ public class GameManager implements ChessController {
             int finalI = i;
             choices[finalI] = () -> options[finalI];
         }
-        boolean checkMate = !mandatoryAdversaryMoves.isEmpty()
-                && mandatoryAdversaryMoves.values().stream().allMatch(List::isEmpty);
-        boolean stalemate = isStalemate();
-        String header = checkMate
+        GameStatus status = getStatus();
+        String header = status == GameStatus.CHECKMATE
                 ? ChessString.playerWins(playerTurn())
-                : (stalemate ? ChessString.STALEMATE : ChessString.INSUFFICIENT_MATERIAL);
+                : status.getMessage();
         UserChoice choice =  askUserToPlayAgain(header, ChessString.PLAY_AGAIN_QUESTION, choices);
         if (null != choice && choice.equals(choices[0])) {
             restartGame();
@@ -251,298 +182,19 @@ public class GameManager implements ChessController {
     }
 
     /**
-     * Method used to check if there is a promotion and promote the piece if needed.
-     *
-     * @param piece The piece that moved
-     */
-    private void promoteIfNeeded(ChessPiece piece) {
-        List<PromotablePiece> promotablePieces = board.getPromotablePieces();
-        for (PromotablePiece promotablePiece : promotablePieces) {
-            if (promotablePiece.equals(piece) && promotablePiece.canPromote()) {
-                promote(piece);
-            }
-        }
-    }
-
-    /**
-     * Check if the adversary king is in check. It can be a DiscoveredCheck or a positional check.
-     * Or both. The method returns true if the king is in check, false otherwise. If the king is
-     * in check, the method also updates the mandatoryAdversaryMoves map with the possible moves
-     * to avoid the check. If a promotion has been made with promoteIfNeeded(), the method will
-     * dynamically take the new piece in consideration.
-     *
-     * @return True if the king is in check, false otherwise
-     */
-    private boolean checkIfAdversaryKingIsInCheck() {
-        ChessPiece movedPiece = board.getPiece(board.getLastMoveTo());
-        King adversaryKing = board.getKing(movedPiece.getPlayerColor().opposite());
-        if (isAPositionalCheck(adversaryKing, movedPiece)
-                || isDiscoveredCheck(adversaryKing, board.getLastMoveFrom())) {
-            mandatoryAdversaryMoves = getMovesToAvoidCheck(adversaryKing);
-            return true;
-        }
-
-        return false;
-    }
-
-    /**
-     * Check if the adversary king is in check because of the moved piece. If it is the case, the
-     * piece is added to the adversary king inCheckBy list.
-     *
-     * @param adversaryKing The adversary king
-     * @param movedPiece    The piece that have been moved
-     * @return True if the king is in check, false otherwise
-     */
-    private boolean isAPositionalCheck(King adversaryKing, ChessPiece movedPiece) {
-        if (!movedPiece.isAttacking(board, adversaryKing.getPos())) {
-            return false;
-        }
-
-        adversaryKing.addInCheckBy(movedPiece);
-        return true;
-    }
-
-    /**
-     * Check if the adversary king is in check because of a discovered check. If it is the case,
-     * the piece is added to the adversary king inCheckBy list.
-     *
-     * @param adversaryKing The adversary king
-     * @param oldPos        The old position of the moved piece
-     * @return True if the king is in check, false otherwise
-     */
-    private boolean isDiscoveredCheck(King adversaryKing, Point oldPos) {
-        Direction attackDir = Direction.offSetOf(adversaryKing.getPos(), oldPos);
-        if (null == attackDir) {
-            return false;
-        }
-
-        Point attackerPos = oldPos;
-        do {
-            attackerPos = attackerPos.withAdded(attackDir);
-        } while (Board.isInBoard(attackerPos) && !board.isOccupied(attackerPos));
-
-        ChessPiece attacker = null;
-        if (Board.isInBoard(attackerPos)) {
-            attacker = board.getPiece(attackerPos);
-        }
-
-        if (null != attacker && !adversaryKing.isSameColor(attacker)
-                && attacker.isAttacking(board, adversaryKing.getPos())) {
-            adversaryKing.addInCheckBy(attacker);
-            return true;
-        }
-
-        return false;
-    }
-
-    /**
-     * Method used to create a map of pieces and the list of moves that can avoid the check. The
-     * method is used to find the mandatory moves of the adversary to avoid the check.
-     *
-     * @param k The king that is in check
-     * @return A map of pieces and the list of moves that can avoid the check
-     */
-    private HashMap<ChessPiece, List<Point>> getMovesToAvoidCheck(King k) {
-        List<ChessPiece> allies = board.getAllPieces(k.getPlayerColor());
-        HashMap<ChessPiece, List<Point>> possibleMoves = new HashMap<>();
-        allies.forEach(a -> possibleMoves.put(a, new ArrayList<>()));
-        displacementMoves(k, possibleMoves);
-        blockingMoves(k, possibleMoves, allies);
-        capturingMoves(k, possibleMoves, allies);
-        return possibleMoves;
-    }
-
-    /**
-     * Method used to find the possible moves that the king can do to avoid the check.
-     *
-     * @param k             The king that is in check
-     * @param possibleMoves The map of pieces and the list of moves that can avoid the check
-     */
-    private void displacementMoves(King k, HashMap<ChessPiece, List<Point>> possibleMoves) {
-        List<Direction> kingDirections = k.getDirections();
-        for (Direction direction : kingDirections) {
-            Point recheablePoint = k.getPos().withAdded(direction);
-            if (k.canMoveTo(board, recheablePoint)) {
-                possibleMoves.get(k).add(recheablePoint);
-            }
-        }
-    }
-
-    /**
-     * Method used to check if there is a stalemate between the two players. A stalemate is when
-     * the adversary can't move any piece and the king is not in check. If there is a piece that
-     * can move, the method return false.
-     *
-     * @return True if there is a stalemate, false otherwise
-     */
-    private boolean isStalemate() {
-        King adversaryKing = board.getKing(playerTurn().opposite());
-        if (!adversaryKing.isInCheck() && !canMove(adversaryKing)) {
-            List<ChessPiece> allies = board.getAllPieces(adversaryKing.getPlayerColor());
-            for (ChessPiece ally : allies) {
-                if (canMove(ally)) {
-                    return false;
-                }
-            }
-            return true;
-        }
-        return false;
-    }
-
-    /**
-     * Method used to check if players cannot checkmate between each other.
-     * This method follows the rules:
-     * <a href="https://en.wikipedia.org/wiki/Draw_(chess)">Impossibility of checkmate</a>
-     *
-     * @return True if player cannot checkmate between each other, false otherwise
-     */
-    private boolean isInsufficientMaterial() {
-        List<List<ChessPiece>> allPieces = board.getAllPieces();
-        for (PlayerColor color : PlayerColor.values()) {
-            if (allPieces.get(color.ordinal()).size() == 1) {
-                if (allPieces.get(color.opposite().ordinal()).size() == 1) {
-                    return true;
-                }
-
-                if (allPieces.get(color.opposite().ordinal()).size() > 1) {
-                    return false;
-                }
-
-                long numberOfBishops = allPieces.get(color.opposite().ordinal()).stream()
-                        .filter(piece -> piece instanceof Bishop)
-                        .count();
-                long numberOfKnights = allPieces.get(color.opposite().ordinal()).stream()
-                        .filter(piece -> piece instanceof Knight)
-                        .count();
-                return numberOfBishops == 1 || numberOfKnights == 1;
-            }
-
-            if (allPieces.get(color.ordinal()).size() == 2
-                    && allPieces.get(color.opposite().ordinal()).size() == 2) {
-                Bishop b1 = (Bishop) allPieces.get(color.ordinal()).stream()
-                        .filter(piece -> piece instanceof Bishop)
-                        .findFirst().orElse(null);
-                Bishop b2 = (Bishop) allPieces.get(color.opposite().ordinal()).stream()
-                        .filter(piece -> piece instanceof Bishop)
-                        .findFirst().orElse(null);
-                return null != b1 && null != b2
-                        && (((b1.getX() + b1.getY()) % 2) == ((b2.getX() + b2.getY()) % 2));
-            }
-        }
-
-        return false;
-    }
-
-    /**
-     * Method used to check if a piece can make a move.
-     *
-     * @param piece The piece to check
-     * @return True if the piece can make a move, false otherwise
-     */
-    private boolean canMove(ChessPiece piece) {
-        List<Direction> pieceDirections = piece.getDirections();
-        for (Direction direction : pieceDirections) {
-            Point recheablePoint = piece.getPos().withAdded(direction);
-            if (piece.canMoveTo(board, recheablePoint)) {
-                return true;
-            }
-        }
-
-        return false;
-    }
-
-    /**
-     * Method used to find the possible moves that the pieces can do to capture the piece that is
-     * checking the king.
-     *
-     * @param king          The king that is in check
-     * @param possibleMoves The map of pieces and the list of moves that can avoid the check
-     * @param allies        The list of allies of the king
-     */
-    private void capturingMoves(
-            King king,
-            HashMap<ChessPiece, List<Point>> possibleMoves,
-            List<ChessPiece> allies
-    ) {
-        // Impossible to avoid double check capturing two pieces at the same time
-        if (king.getInCheckBy().size() != 1) {
-            return;
-        }
-
-        for (ChessPiece ally : allies) {
-            if (ally.canMoveTo(board, king.getInCheckBy().get(0).getPos())) {
-                possibleMoves.get(ally).add(king.getInCheckBy().get(0).getPos());
-            }
-        }
-    }
-
-    /**
-     * Method used to find the possible moves that the pieces can do to block the piece that is
-     * checking the king.
-     *
-     * @param king          The king that is in check
-     * @param possibleMoves The map of pieces and the list of moves that can avoid the check
-     * @param allies        The list of allies of the king
-     */
-    private void blockingMoves(
-            King king,
-            HashMap<ChessPiece, List<Point>> possibleMoves,
-            List<ChessPiece> allies
-    ) {
-        // Impossible to avoid double check blocking two pieces at the same time
-        if (king.getInCheckBy().size() != 1) {
-            return;
-        }
-
-        Direction attackDir = Direction.offSetOf(
-                king.getPos(),
-                king.getInCheckBy().get(0).getPos()
-        );
-        for (ChessPiece ally : allies) {
-            Point currentPos = king.getPos();
-            do {
-                currentPos = currentPos.withAdded(attackDir);
-                if (!board.isOccupied(currentPos) && ally.canMoveTo(board, currentPos)) {
-                    possibleMoves.get(ally).add(currentPos);
-                }
-            } while (Board.isInBoard(currentPos) && !board.isOccupied(currentPos));
-        }
-    }
-
-    /**
-     * Update the chessView, the board and the piece position. If the king is in check it will
-     * clear the mandatory moves seen that the king can move to avoid the check.
-     *
-     * @param p  The piece to move
-     * @param to The destination
-     */
-    private void movePiece(ChessPiece p, Point to) {
-        removePiece(p);
-        p.move(to);
-        insertPiece(p);
-        if (board.getKing(playerTurn()).isInCheck()) {
-            mandatoryAdversaryMoves.clear();
-            board.getKing(playerTurn()).clearInCheckBy();
-        }
-    }
-
-    /**
-     * Method used to promote a piece. The board and the chessView are updated.
+     * Method used to ask the user the piece replacing a pawn that reached the last rank.
      *
-     * @param piece the piece to promote
+     * @param pawn the pawn to promote
      * @return the choice of the user
      */
-    protected ChessPiece promote(ChessPiece piece) {
-        int posX = piece.getX(), posY = piece.getY();
-        PlayerColor color = piece.getPlayerColor();
+    private ChessPiece askUserForPromotion(ChessPiece pawn) {
+        int posX = pawn.getX(), posY = pawn.getY();
+        PlayerColor color = pawn.getPlayerColor();
         ChessPiece[] options = {
                 new Queen(color, posX, posY), new Rook(color, posX, posY),
                 new Bishop(color, posX, posY), new Knight(color, posX, posY)
         };
-        ChessPiece choice = askUserForPromotion(ChessString.PROMOTION, ChessString.CHOOSE_PROMOTION, options);
-        removePiece(piece);
-        insertPiece(choice);
-        return choice;
+        return askUserForPromotion(ChessString.PROMOTION, ChessString.CHOOSE_PROMOTION, options);
     }
 
     protected ChessPiece askUserForPromotion(String header, String question, ChessPiece[] options) {
@@ -562,70 +214,4 @@ public class GameManager implements ChessController {
             ));
         }
     }
-
-    /**
-     * Method used to execute special moves like castling or en passant if the move is valid. If
-     * the move is not valid it will return false.
-     *
-     * @param piece the moving piece
-     * @param to    the destination
-     * @return true if there is a special move, false otherwise
-     */
-    private boolean executeSpecialMoves(ChessPiece piece, Point to) {
-        return castlingMove(piece, to) || enPassantMove(piece, to);
-    }
-
-    /**
-     * Method used to do the castling move for the king and the rook involved in the castling.
-     * If the piece is not a king, the method does nothing and returns false.
-     *
-     * @param piece The moving piece
-     * @param to    The destination of the piece
-     * @return true if there is a castling move, false otherwise
-     */
-    private boolean castlingMove(ChessPiece piece, Point to) {
-        King king = board.getKing(piece.getPlayerColor());
-        if (!king.equals(piece) || !king.isCastling(to)) {
-            return false;
-        }
-
-        int newCastlingWithPos = king.getX() - to.x() < 0 ? to.x() - 1 : to.x() + 1;
-        ChessPiece castlingWithPiece = board.getPiece(king.getCastlingPiecePos(to));
-        Point newCastlingPiecePos = new Point(newCastlingWithPos, king.getY());
-        movePiece(castlingWithPiece, newCastlingPiecePos);
-        board.setLastMove(castlingWithPiece.getPos(), newCastlingPiecePos);
-        return true;
-    }
-
-    /**
-     * Method used to do the en passant move for the pawn involved in the move. If the piece is not
-     * a pawn, the method does nothing and returns false.
-     *
-     * @param piece The moving piece
-     * @param to    The destination of the piece
-     * @return true if there is en passant move, false otherwise
-     */
-    private boolean enPassantMove(ChessPiece piece, Point to) {
-        if (!(piece instanceof Pawn p) || !p.isEnPassant(board, to)) {
-            return false;
-        }
-
-        Pawn adversaryPawn = (Pawn) board.getPiece(board.getLastMoveTo());
-        removePiece(adversaryPawn);
-        board.setLastMove(adversaryPawn.getPos(), to);
-        return true;
-    }
-
-    /**
-     * Method used to know the player that has to play.
-     *
-     * @return The player that has to play
-     */
-    protected PlayerColor playerTurn() {
-        return turn % 2 == 0 ? PlayerColor.WHITE : PlayerColor.BLACK;
-    }
-
-    protected void updatePlayerTurn() {
-        turn++;
-    }
 }
@@ -0,0 +1,47 @@
+package heig.poo.chess.engine;
+
+import heig.poo.chess.engine.util.ChessString;
+
+/**
+ * Enum representing the status of a game after a move, from the point of view of the player to
+ * move. It is evaluated once per move and read by everything reacting to the move.
+ *
+ * @author Vicky Butty
+ * @author Loïc Herman
+ * @author Massimo Stefani
+ * @version 1.0
+ */
+public enum GameStatus {
+    ONGOING(false, null),
+    CHECK(false, ChessString.CHECK),
+    CHECKMATE(true, ChessString.CHECKMATE),
+    STALEMATE(true, ChessString.STALEMATE),
+    THREEFOLD_REPETITION(true, ChessString.THREEFOLD_REPETITION),
+    INSUFFICIENT_MATERIAL(true, ChessString.INSUFFICIENT_MATERIAL);
+
+    private final boolean over;
+    private final String message;
+
+    GameStatus(boolean over, String message) {
+        this.over = over;
+        this.message = message;
+    }
+
+    /**
+     * Check if the status ends the game.
+     *
+     * @return True if the game is over, false otherwise.
+     */
+    public boolean isOver() {
+        return over;
+    }
+
+    /**
+     * Get the message announcing the status.
+     *
+     * @return The message, or null if the game simply goes on.
+     */
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,118 @@
+package heig.poo.chess.engine;
+
+import heig.poo.chess.PieceType;
+
+/**
+ * Helpers to decode the result of a move played on a {@link ChessGame}, encoded in an int so that
+ * playing a move never allocates. The bit 0 tells a legal move, the bits 1 to 3 hold the type of
+ * the captured piece, the bits 4 to 6 tell the special moves apart, the bits 7 to 9 hold the type
+ * of the piece chosen by a promotion and the following bits the status of the game after the move.
+ * An illegal move is encoded as {@link #ILLEGAL}, the board is left unchanged.
+ *
+ * @author Vicky Butty
+ * @author Loïc Herman
+ * @author Massimo Stefani
+ * @version 1.0
+ */
+public final class MoveResult {
+
+    public static final int ILLEGAL = 0;
+    public static final int LEGAL = 1;
+    public static final int CASTLING = 1 << 4;
+    public static final int EN_PASSANT = 1 << 5;
+    // The pawn reached the last rank, the move is complete once its promotion is chosen
+    public static final int PROMOTION_NEEDED = 1 << 6;
+
+    private static final int CAPTURED_SHIFT = 1;
+    private static final int PROMOTION_SHIFT = 7;
+    private static final int STATUS_SHIFT = 10;
+    private static final int TYPE_MASK = 0b111;
+    private static final int STATUS_MASK = 0b111;
+    private static final PieceType[] PIECE_TYPES = PieceType.values();
+    private static final GameStatus[] STATUSES = GameStatus.values();
+
+    private MoveResult() {
+    }
+
+    /**
+     * Encode the result of a legal move.
+     *
+     * @param captured The type of the captured piece, null if the move captured nothing.
+     * @param flags    The special move flags, 0 for a normal move.
+     * @param status   The status of the game after the move.
+     * @return The encoded result.
+     */
+    static int of(PieceType captured, int flags, GameStatus status) {
+        return LEGAL | typeBits(captured) << CAPTURED_SHIFT | flags
+                | status.ordinal() << STATUS_SHIFT;
+    }
+
+    /**
+     * Encode the result of a promotion completing a move.
+     *
+     * @param move      The result of the move of the pawn.
+     * @param promotion The type of the piece replacing the pawn.
+     * @param status    The status of the game after the promotion.
+     * @return The encoded result.
+     */
+    static int promoted(int move, PieceType promotion, GameStatus status) {
+        int flags = move & ~PROMOTION_NEEDED & ~(STATUS_MASK << STATUS_SHIFT);
+        return flags | typeBits(promotion) << PROMOTION_SHIFT | status.ordinal() << STATUS_SHIFT;
+    }
+
+    public static boolean isLegal(int result) {
+        return (result & LEGAL) != 0;
+    }
+
+    /**
+     * Get the type of the piece captured by the move.
+     *
+     * @param result The encoded result.
+     * @return The type of the piece, null if the move captured nothing.
+     */
+    public static PieceType capturedOf(int result) {
+        return typeOf(result >>> CAPTURED_SHIFT);
+    }
+
+    public static boolean isCastling(int result) {
+        return (result & CASTLING) != 0;
+    }
+
+    public static boolean isEnPassant(int result) {
+        return (result & EN_PASSANT) != 0;
+    }
+
+    public static boolean isPromotionNeeded(int result) {
+        return (result & PROMOTION_NEEDED) != 0;
+    }
+
+    /**
+     * Get the type of the piece chosen by the promotion completing the move.
+     *
+     * @param result The encoded result.
+     * @return The type of the piece, null if the move was not a promotion.
+     */
+    public static PieceType promotionOf(int result) {
+        return typeOf(result >>> PROMOTION_SHIFT);
+    }
+
+    /**
+     * Get the status of the game after the move. While a promotion is needed, the status of the
+     * game before the move.
+     *
+     * @param result The encoded result of a legal move.
+     * @return The status of the game.
+     */
+    public static GameStatus statusOf(int result) {
+        return STATUSES[result >>> STATUS_SHIFT & STATUS_MASK];
+    }
+
+    private static int typeBits(PieceType type) {
+        return null == type ? 0 : type.ordinal() + 1;
+    }
+
+    private static PieceType typeOf(int bits) {
+        int type = bits & TYPE_MASK;
+        return type == 0 ? null : PIECE_TYPES[type - 1];
+    }
+}
@@ -0,0 +1,265 @@
+package heig.poo.chess.engine.bitboard;
+
+import heig.poo.chess.PlayerColor;
+import heig.poo.chess.engine.util.Board;
+import heig.poo.chess.engine.util.Direction;
+import heig.poo.chess.engine.util.Point;
+
+/**
+ * Helpers to work with bitboards. A bitboard is a set of squares stored in a long, the square at
+ * (x, y) being the bit {@code y * 8 + x}: the bit 0 is a1, the bit 7 is h1 and the bit 63 is h8.
+ * The attacks of every piece are precomputed, sliding pieces use the rays of their directions
+ * cut at the first occupied square.
+ * @author Vicky Butty
+ * @author Loïc Herman
+ * @author Massimo Stefani
+ * @version 1.0
+ */
+public final class Bitboards {
+
+    public static final int SQUARES = Board.BOARD_SIZE * Board.BOARD_SIZE;
+    public static final long EMPTY = 0L;
+
+    private static final Direction[] ROOK_DIRECTIONS = {
+            Direction.NORTH, Direction.EAST, Direction.SOUTH, Direction.WEST
+    };
+    private static final Direction[] BISHOP_DIRECTIONS = {
+            Direction.NORTH_EAST, Direction.SOUTH_EAST, Direction.SOUTH_WEST, Direction.NORTH_WEST
+    };
+    private static final Direction[] QUEEN_DIRECTIONS = {
+            Direction.NORTH, Direction.EAST, Direction.SOUTH, Direction.WEST,
+            Direction.NORTH_EAST, Direction.SOUTH_EAST, Direction.SOUTH_WEST, Direction.NORTH_WEST
+    };
+    private static final Direction[] KNIGHT_DIRECTIONS = {
+            Direction.L_EAST_NORTH, Direction.L_NORTH_EAST, Direction.L_EAST_SOUTH,
+            Direction.L_SOUTH_EAST, Direction.L_WEST_SOUTH, Direction.L_SOUTH_WEST,
+            Direction.L_WEST_NORTH, Direction.L_NORTH_WEST
+    };
+
+    // Squares seen from a square in a direction on an empty board, indexed by [direction][square]
+    private static final long[][] RAYS = new long[Direction.values().length][SQUARES];
+    private static final long[] KNIGHT_ATTACKS = new long[SQUARES];
+    private static final long[] KING_ATTACKS = new long[SQUARES];
+    private static final long[][] PAWN_ATTACKS = new long[PlayerColor.values().length][SQUARES];
+    // Squares strictly between two aligned squares, and the whole line through them
+    private static final long[][] BETWEEN = new long[SQUARES][SQUARES];
+    private static final long[][] LINE = new long[SQUARES][SQUARES];
+
+    static {
+        for (int square = 0; square < SQUARES; square++) {
+            int x = xOf(square);
+            int y = yOf(square);
+            for (Direction direction : QUEEN_DIRECTIONS) {
+                RAYS[direction.ordinal()][square] = ray(x, y, direction);
+                KING_ATTACKS[square] |= step(x, y, direction);
+            }
+            for (Direction direction : KNIGHT_DIRECTIONS) {
+                KNIGHT_ATTACKS[square] |= step(x, y, direction);
+            }
+
+            PAWN_ATTACKS[PlayerColor.WHITE.ordinal()][square] =
+                    step(x, y, Direction.NORTH_EAST) | step(x, y, Direction.NORTH_WEST);
+            PAWN_ATTACKS[PlayerColor.BLACK.ordinal()][square] =
+                    step(x, y, Direction.SOUTH_EAST) | step(x, y, Direction.SOUTH_WEST);
+        }
+
+        for (int square = 0; square < SQUARES; square++) {
+            for (Direction direction : QUEEN_DIRECTIONS) {
+                long line = RAYS[direction.ordinal()][square]
+                        | RAYS[direction.opposite().ordinal()][square] | bit(square);
+                long between = EMPTY;
+                for (long ray = RAYS[direction.ordinal()][square]; ray != EMPTY; ) {
+                    int target = isIncreasing(direction)
+                            ? Long.numberOfTrailingZeros(ray)
+                            : Long.SIZE - 1 - Long.numberOfLeadingZeros(ray);
+                    BETWEEN[square][target] = between;
+                    LINE[square][target] = line;
+                    between |= bit(target);
+                    ray &= ~bit(target);
+                }
+            }
+        }
+    }
+
+    private Bitboards() {
+    }
+
+    /**
+     * Get the square index of the given coordinates.
+     *
+     * @param x The x coordinate.
+     * @param y The y coordinate.
+     * @return The index of the square, between 0 and 63.
+     */
+    public static int square(int x, int y) {
+        return y * Board.BOARD_SIZE + x;
+    }
+
+    /**
+     * Get the square index of the given position.
+     *
+     * @param p The position.
+     * @return The index of the square, between 0 and 63.
+     */
+    public static int square(Point p) {
+        return square(p.x(), p.y());
+    }
+
+    public static int xOf(int square) {
+        return square & (Board.BOARD_SIZE - 1);
+    }
+
+    public static int yOf(int square) {
+        return square >>> 3;
+    }
+
+    /**
+     * Get the bitboard holding only the given square.
+     *
+     * @param square The index of the square.
+     * @return The bitboard of the square.
+     */
+    public static long bit(int square) {
+        return 1L << square;
+    }
+
+    /**
+     * Get the squares attacked by a knight standing on the given square.
+     *
+     * @param square The square of the knight.
+     * @return The attacked squares.
+     */
+    public static long knightAttacks(int square) {
+        return KNIGHT_ATTACKS[square];
+    }
+
+    /**
+     * Get the squares attacked by a king standing on the given square.
+     *
+     * @param square The square of the king.
+     * @return The attacked squares.
+     */
+    public static long kingAttacks(int square) {
+        return KING_ATTACKS[square];
+    }
+
+    /**
+     * Get the squares attacked by a pawn of the given color standing on the given square.
+     *
+     * @param color  The color of the pawn.
+     * @param square The square of the pawn.
+     * @return The attacked squares.
+     */
+    public static long pawnAttacks(PlayerColor color, int square) {
+        return PAWN_ATTACKS[color.ordinal()][square];
+    }
+
+    /**
+     * Get the squares attacked by a rook standing on the given square.
+     *
+     * @param square    The square of the rook.
+     * @param occupancy The occupied squares, the first occupied square of each ray is attacked.
+     * @return The attacked squares.
+     */
+    public static long rookAttacks(int square, long occupancy) {
+        long attacks = EMPTY;
+        for (Direction direction : ROOK_DIRECTIONS) {
+            attacks |= rayAttacks(direction, square, occupancy);
+        }
+
+        return attacks;
+    }
+
+    /**
+     * Get the squares attacked by a bishop standing on the given square.
+     *
+     * @param square    The square of the bishop.
+     * @param occupancy The occupied squares, the first occupied square of each ray is attacked.
+     * @return The attacked squares.
+     */
+    public static long bishopAttacks(int square, long occupancy) {
+        long attacks = EMPTY;
+        for (Direction direction : BISHOP_DIRECTIONS) {
+            attacks |= rayAttacks(direction, square, occupancy);
+        }
+
+        return attacks;
+    }
+
+    /**
+     * Get the squares attacked by a queen standing on the given square.
+     *
+     * @param square    The square of the queen.
+     * @param occupancy The occupied squares, the first occupied square of each ray is attacked.
+     * @return The attacked squares.
+     */
+    public static long queenAttacks(int square, long occupancy) {
+        return rookAttacks(square, occupancy) | bishopAttacks(square, occupancy);
+    }
+
+    /**
+     * Get the squares strictly between two squares on the same rank, file or diagonal.
+     *
+     * @param from The first square.
+     * @param to   The second square.
+     * @return The squares between them, empty if they are not aligned or next to each other.
+     */
+    public static long between(int from, int to) {
+        return BETWEEN[from][to];
+    }
+
+    /**
+     * Get the whole rank, file or diagonal going through two squares.
+     *
+     * @param from The first square.
+     * @param to   The second square.
+     * @return The squares of the line, empty if the squares are not aligned.
+     */
+    public static long line(int from, int to) {
+        return LINE[from][to];
+    }
+
+    /**
+     * Get the squares seen from a square in a direction, up to and including the first occupied
+     * square.
+     *
+     * @param direction The direction of the ray, one of the eight directions of a queen.
+     * @param square    The starting square, not included in the ray.
+     * @param occupancy The occupied squares.
+     * @return The squares of the ray.
+     */
+    public static long rayAttacks(Direction direction, int square, long occupancy) {
+        long ray = RAYS[direction.ordinal()][square];
+        long blockers = ray & occupancy;
+        if (blockers == EMPTY) {
+            return ray;
+        }
+
+        // Rays going up the board meet their lowest blocker first, the others their highest one
+        int blocker = isIncreasing(direction)
+                ? Long.numberOfTrailingZeros(blockers)
+                : Long.SIZE - 1 - Long.numberOfLeadingZeros(blockers);
+        return ray ^ RAYS[direction.ordinal()][blocker];
+    }
+
+    private static boolean isIncreasing(Direction direction) {
+        return direction.yOffset() > 0 || direction.yOffset() == 0 && direction.xOffset() > 0;
+    }
+
+    private static long ray(int x, int y, Direction direction) {
+        long ray = EMPTY;
+        for (long square = step(x, y, direction); square != EMPTY; ) {
+            ray |= square;
+            int next = Long.numberOfTrailingZeros(square);
+            square = step(xOf(next), yOf(next), direction);
+        }
+
+        return ray;
+    }
+
+    private static long step(int x, int y, Direction direction) {
+        int toX = x + direction.xOffset();
+        int toY = y + direction.yOffset();
+        return Board.isInBoard(toX, toY) ? bit(square(toX, toY)) : EMPTY;
+    }
+}
@@ -0,0 +1,112 @@
+package heig.poo.chess.engine.bitboard;
+
+import heig.poo.chess.PieceType;
+import heig.poo.chess.PlayerColor;
+import heig.poo.chess.engine.util.Board;
+
+/**
+ * Reader of the Forsyth-Edwards Notation, used to set up the positions published with their
+ * perft results. The move counters are ignored.
+ * @author Vicky Butty
+ * @author Loïc Herman
+ * @author Massimo Stefani
+ * @version 1.0
+ */
+public final class Fen {
+
+    public static final String START_POSITION =
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private static final String PIECE_LETTERS = "prnbqk";
+
+    private Fen() {
+    }
+
+    /**
+     * Read a position.
+     *
+     * @param fen The position in the Forsyth-Edwards Notation.
+     * @return The position.
+     * @throws IllegalArgumentException If the notation is not valid.
+     */
+    public static Position parse(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        if (fields.length < 4) {
+            throw new IllegalArgumentException("Incomplete position: " + fen);
+        }
+
+        Position position = new Position();
+        String[] ranks = fields[0].split("/");
+        if (ranks.length != Board.BOARD_SIZE) {
+            throw new IllegalArgumentException("Invalid placement: " + fields[0]);
+        }
+        for (int i = 0; i < ranks.length; i++) {
+            parseRank(position, Board.BOARD_SIZE - 1 - i, ranks[i]);
+        }
+
+        position.setSideToMove(switch (fields[1]) {
+            case "w" -> PlayerColor.WHITE;
+            case "b" -> PlayerColor.BLACK;
+            default -> throw new IllegalArgumentException("Invalid side to move: " + fields[1]);
+        });
+        position.setCastlingRights(parseCastlingRights(fields[2]));
+        position.setEnPassantSquare(
+                fields[3].equals("-") ? Position.NO_SQUARE : parseSquare(fields[3])
+        );
+        return position;
+    }
+
+    private static void parseRank(Position position, int y, String rank) {
+        int x = 0;
+        for (char c : rank.toCharArray()) {
+            if (Character.isDigit(c)) {
+                x += c - '0';
+                continue;
+            }
+
+            int type = PIECE_LETTERS.indexOf(Character.toLowerCase(c));
+            if (type < 0 || x >= Board.BOARD_SIZE) {
+                throw new IllegalArgumentException("Invalid rank: " + rank);
+            }
+            PlayerColor color = Character.isUpperCase(c) ? PlayerColor.WHITE : PlayerColor.BLACK;
+            position.put(Bitboards.square(x++, y), color, PieceType.values()[type]);
+        }
+
+        if (x != Board.BOARD_SIZE) {
+            throw new IllegalArgumentException("Invalid rank: " + rank);
+        }
+    }
+
+    private static int parseCastlingRights(String field) {
+        int rights = 0;
+        if (field.equals("-")) {
+            return rights;
+        }
+
+        for (char c : field.toCharArray()) {
+            rights |= switch (c) {
+                case 'K' -> Position.WHITE_KING_SIDE;
+                case 'Q' -> Position.WHITE_QUEEN_SIDE;
+                case 'k' -> Position.BLACK_KING_SIDE;
+                case 'q' -> Position.BLACK_QUEEN_SIDE;
+                default -> throw new IllegalArgumentException("Invalid castling rights: " + field);
+            };
+        }
+
+        return rights;
+    }
+
+    private static int parseSquare(String name) {
+        if (name.length() != 2) {
+            throw new IllegalArgumentException("Invalid square: " + name);
+        }
+
+        int x = name.charAt(0) - 'a';
+        int y = name.charAt(1) - '1';
+        if (!Board.isInBoard(x, y)) {
+            throw new IllegalArgumentException("Invalid square: " + name);
+        }
+
+        return Bitboards.square(x, y);
+    }
+}
@@ -0,0 +1,66 @@
+package heig.poo.chess.engine.bitboard;
+
+import java.util.Arrays;
+
+/**
+ * Keys of the positions reached during a game, used to detect repetitions without comparing the
+ * positions. Only the positions since the last irreversible move are kept: once a pawn moved, a
+ * piece was captured or a castling right was lost, the earlier positions cannot occur again.
+ * @author Vicky Butty
+ * @author Loïc Herman
+ * @author Massimo Stefani
+ * @version 1.0
+ */
+public final class KeyHistory {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Add the key of the position reached by a move.
+     *
+     * @param key          The key of the position, see {@link Position#getKey()}.
+     * @param irreversible True if the move cannot be reversed, forgetting the earlier positions.
+     */
+    public void push(long key, boolean irreversible) {
+        if (irreversible) {
+            size = 0;
+        }
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+        }
+        keys[size++] = key;
+    }
+
+    /**
+     * Count the occurrences of the last position. The same side is to move in both positions, so
+     * only every other key is compared.
+     *
+     * @return The number of times the last position was reached, 0 if there is none.
+     */
+    public int repetitions() {
+        if (size == 0) {
+            return 0;
+        }
+
+        long key = keys[size - 1];
+        int repetitions = 1;
+        for (int i = size - 3; i >= 0; i -= 2) {
+            if (keys[i] == key) {
+                repetitions++;
+            }
+        }
+
+        return repetitions;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,114 @@
+package heig.poo.chess.engine.bitboard;
+
+import heig.poo.chess.PieceType;
+
+/**
+ * Helpers to encode a move in an int. The bits 0 to 5 hold the starting square, the bits 6 to 11
+ * the destination square, the bits 12 to 14 the type of the piece chosen by a promotion and the
+ * following bits tell the special moves apart. A castling is encoded as the move of the king.
+ * @author Vicky Butty
+ * @author Loïc Herman
+ * @author Massimo Stefani
+ * @version 1.0
+ */
+public final class Move {
+
+    public static final int EN_PASSANT = 1 << 15;
+    public static final int CASTLING = 1 << 16;
+    public static final int DOUBLE_PUSH = 1 << 17;
+
+    private static final int SQUARE_MASK = Bitboards.SQUARES - 1;
+    private static final int TO_SHIFT = 6;
+    private static final int PROMOTION_SHIFT = 12;
+    private static final int PROMOTION_MASK = 0b111;
+    private static final PieceType[] PIECE_TYPES = PieceType.values();
+
+    private Move() {
+    }
+
+    /**
+     * Encode a move.
+     *
+     * @param from  The starting square.
+     * @param to    The destination square.
+     * @param flags The special move flags, 0 for a normal move.
+     * @return The encoded move.
+     */
+    public static int of(int from, int to, int flags) {
+        return from | to << TO_SHIFT | flags;
+    }
+
+    /**
+     * Encode the move of a pawn reaching the last rank.
+     *
+     * @param from      The starting square.
+     * @param to        The destination square.
+     * @param promotion The type of the piece replacing the pawn.
+     * @return The encoded move.
+     */
+    public static int promotion(int from, int to, PieceType promotion) {
+        return of(from, to, (promotion.ordinal() + 1) << PROMOTION_SHIFT);
+    }
+
+    public static int from(int move) {
+        return move & SQUARE_MASK;
+    }
+
+    public static int to(int move) {
+        return move >>> TO_SHIFT & SQUARE_MASK;
+    }
+
+    /**
+     * Get the type of the piece chosen by a promotion.
+     *
+     * @param move The encoded move.
+     * @return The type of the piece, null if the move is not a promotion.
+     */
+    public static PieceType promotionOf(int move) {
+        int promotion = move >>> PROMOTION_SHIFT & PROMOTION_MASK;
+        return promotion == 0 ? null : PIECE_TYPES[promotion - 1];
+    }
+
+    public static boolean isPromotion(int move) {
+        return (move >>> PROMOTION_SHIFT & PROMOTION_MASK) != 0;
+    }
+
+    public static boolean isEnPassant(int move) {
+        return (move & EN_PASSANT) != 0;
+    }
+
+    public static boolean isCastling(int move) {
+        return (move & CASTLING) != 0;
+    }
+
+    public static boolean isDoublePush(int move) {
+        return (move & DOUBLE_PUSH) != 0;
+    }
+
+    /**
+     * Get the coordinate notation of a move, such as "e2e4" or "e7e8q".
+     *
+     * @param move The encoded move.
+     * @return The notation of the move.
+     */
+    public static String toString(int move) {
+        String notation = squareName(from(move)) + squareName(to(move));
+        PieceType promotion = promotionOf(move);
+        if (null == promotion) {
+            return notation;
+        }
+
+        char piece = promotion == PieceType.KNIGHT ? 'n' : promotion.name().toLowerCase().charAt(0);
+        return notation + piece;
+    }
+
+    /**
+     * Get the name of a square, such as "e4".
+     *
+     * @param square The square.
+     * @return The name of the square.
+     */
+    public static String squareName(int square) {
+        return "" + (char) ('a' + Bitboards.xOf(square)) + (char) ('1' + Bitboards.yOf(square));
+    }
+}
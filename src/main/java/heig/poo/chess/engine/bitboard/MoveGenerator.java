@@ -0,0 +1,219 @@
+package heig.poo.chess.engine.bitboard;
+
+import heig.poo.chess.PieceType;
+import heig.poo.chess.PlayerColor;
+
+/**
+ * Generator of the legal moves of a position. Moves are generated for the side to move only when
+ * they do not leave its king in check: when the king is checked once, the other pieces may only
+ * capture the checking piece or block its line, when it is checked twice only the king moves, and
+ * pinned pieces stay on the line between their king and the pinning piece.
+ * @author Vicky Butty
+ * @author Loïc Herman
+ * @author Massimo Stefani
+ * @version 1.0
+ */
+public final class MoveGenerator {
+
+    private static final PieceType[] PROMOTIONS = {
+            PieceType.QUEEN, PieceType.ROOK, PieceType.BISHOP, PieceType.KNIGHT
+    };
+    private static final PieceType[] PIECES = {
+            PieceType.KNIGHT, PieceType.BISHOP, PieceType.ROOK, PieceType.QUEEN
+    };
+
+    private MoveGenerator() {
+    }
+
+    /**
+     * Generate the legal moves of the side to move. A promotion is generated once per piece
+     * the pawn can become.
+     *
+     * @param position The position.
+     * @param moves    The list to fill, cleared first.
+     * @return The given list.
+     */
+    public static MoveList generateLegalMoves(Position position, MoveList moves) {
+        moves.clear();
+        PlayerColor us = position.getSideToMove();
+        int king = position.getKingSquare(us);
+        if (king == Bitboards.SQUARES) {
+            return moves;
+        }
+
+        long checkers = position.getCheckers(us);
+        generateKingMoves(position, king, moves);
+        if (Long.bitCount(checkers) > 1) {
+            return moves;
+        }
+
+        // Once checked, the moves must capture the checking piece or block its line
+        long targets = ~position.getPieces(us);
+        if (checkers != Bitboards.EMPTY) {
+            targets &= checkers | Bitboards.between(king, Long.numberOfTrailingZeros(checkers));
+        }
+
+        long pinned = position.getPinned(us);
+        for (PieceType type : PIECES) {
+            for (long pieces = position.getPieces(us, type); pieces != Bitboards.EMPTY;
+                 pieces &= pieces - 1) {
+                int from = Long.numberOfTrailingZeros(pieces);
+                long destinations = attacks(type, from, position.getOccupancy()) & targets;
+                if ((pinned & Bitboards.bit(from)) != Bitboards.EMPTY) {
+                    destinations &= Bitboards.line(king, from);
+                }
+                addMoves(from, destinations, moves);
+            }
+        }
+
+        generatePawnMoves(position, king, targets, pinned, moves);
+        if (checkers == Bitboards.EMPTY) {
+            generateCastlingMoves(position, king, moves);
+        }
+
+        return moves;
+    }
+
+    /**
+     * Get the pieces checking the king of the side to move.
+     *
+     * @param position The position.
+     * @return The squares of the checking pieces.
+     */
+    public static long checkers(Position position) {
+        return position.getCheckers(position.getSideToMove());
+    }
+
+    private static void generateKingMoves(Position position, int king, MoveList moves) {
+        PlayerColor us = position.getSideToMove();
+        // The attacks go through the king, which cannot step back on the line of a checking piece
+        long destinations = Bitboards.kingAttacks(king)
+                & ~position.getPieces(us) & ~position.getAttacks(us.opposite());
+        addMoves(king, destinations, moves);
+    }
+
+    private static void generatePawnMoves(
+            Position position,
+            int king,
+            long targets,
+            long pinned,
+            MoveList moves
+    ) {
+        PlayerColor us = position.getSideToMove();
+        PlayerColor them = us.opposite();
+        boolean white = us == PlayerColor.WHITE;
+        int forward = white ? 8 : -8;
+        int startRank = white ? 1 : 6;
+        long enemies = position.getPieces(them);
+        int enPassant = position.getEnPassantSquare();
+
+        for (long pawns = position.getPieces(us, PieceType.PAWN); pawns != Bitboards.EMPTY;
+             pawns &= pawns - 1) {
+            int from = Long.numberOfTrailingZeros(pawns);
+            long allowed = targets;
+            if ((pinned & Bitboards.bit(from)) != Bitboards.EMPTY) {
+                allowed &= Bitboards.line(king, from);
+            }
+
+            int push = from + forward;
+            if (!position.isOccupied(push)) {
+                if ((allowed & Bitboards.bit(push)) != Bitboards.EMPTY) {
+                    addPawnMoves(from, push, moves);
+                }
+                int doublePush = push + forward;
+                if (Bitboards.yOf(from) == startRank && !position.isOccupied(doublePush)
+                        && (allowed & Bitboards.bit(doublePush)) != Bitboards.EMPTY) {
+                    moves.add(Move.of(from, doublePush, Move.DOUBLE_PUSH));
+                }
+            }
+
+            long attacks = Bitboards.pawnAttacks(us, from);
+            for (long captures = attacks & enemies & allowed; captures != Bitboards.EMPTY;
+                 captures &= captures - 1) {
+                addPawnMoves(from, Long.numberOfTrailingZeros(captures), moves);
+            }
+
+            if (enPassant != Position.NO_SQUARE
+                    && (attacks & Bitboards.bit(enPassant)) != Bitboards.EMPTY
+                    && enPassantIsLegal(position, king, from, enPassant)) {
+                moves.add(Move.of(from, enPassant, Move.EN_PASSANT));
+            }
+        }
+    }
+
+    /**
+     * Check if an en passant capture leaves the king safe. Both pawns leave their square, which
+     * may open a line, so the check is done on the occupancy after the move.
+     */
+    private static boolean enPassantIsLegal(Position position, int king, int from, int to) {
+        int captured = Bitboards.square(Bitboards.xOf(to), Bitboards.yOf(from));
+        long occupancy = position.getOccupancy()
+                & ~Bitboards.bit(from) & ~Bitboards.bit(captured) | Bitboards.bit(to);
+        long attackers = position.attackersOf(
+                king, position.getSideToMove().opposite(), occupancy
+        );
+        return (attackers & ~Bitboards.bit(captured)) == Bitboards.EMPTY;
+    }
+
+    private static void generateCastlingMoves(Position position, int king, MoveList moves) {
+        PlayerColor us = position.getSideToMove();
+        boolean white = us == PlayerColor.WHITE;
+        int rights = position.getCastlingRights();
+        int kingSide = white ? Position.WHITE_KING_SIDE : Position.BLACK_KING_SIDE;
+        int queenSide = white ? Position.WHITE_QUEEN_SIDE : Position.BLACK_QUEEN_SIDE;
+
+        if ((rights & kingSide) != 0 && canCastle(position, king, king + 3, king + 1, king + 2)) {
+            moves.add(Move.of(king, king + 2, Move.CASTLING));
+        }
+        if ((rights & queenSide) != 0 && canCastle(position, king, king - 4, king - 1, king - 2)) {
+            moves.add(Move.of(king, king - 2, Move.CASTLING));
+        }
+    }
+
+    /**
+     * Check if the king can castle with the rook: every square between them must be empty, and
+     * the king must not cross or reach an attacked square.
+     */
+    private static boolean canCastle(
+            Position position,
+            int king,
+            int rook,
+            int crossed,
+            int destination
+    ) {
+        PlayerColor us = position.getSideToMove();
+        long attacked = position.getAttacks(us.opposite());
+        return position.getPiece(rook) == Position.pieceCode(us, PieceType.ROOK)
+                && (Bitboards.between(king, rook) & position.getOccupancy()) == Bitboards.EMPTY
+                && (attacked & (Bitboards.bit(crossed) | Bitboards.bit(destination)))
+                == Bitboards.EMPTY;
+    }
+
+    private static void addPawnMoves(int from, int to, MoveList moves) {
+        int rank = Bitboards.yOf(to);
+        if (rank != 0 && rank != Bitboards.yOf(Bitboards.SQUARES - 1)) {
+            moves.add(Move.of(from, to, 0));
+            return;
+        }
+
+        for (PieceType promotion : PROMOTIONS) {
+            moves.add(Move.promotion(from, to, promotion));
+        }
+    }
+
+    private static void addMoves(int from, long destinations, MoveList moves) {
+        for (; destinations != Bitboards.EMPTY; destinations &= destinations - 1) {
+            moves.add(Move.of(from, Long.numberOfTrailingZeros(destinations), 0));
+        }
+    }
+
+    private static long attacks(PieceType type, int square, long occupancy) {
+        return switch (type) {
+            case KNIGHT -> Bitboards.knightAttacks(square);
+            case BISHOP -> Bitboards.bishopAttacks(square, occupancy);
+            case ROOK -> Bitboards.rookAttacks(square, occupancy);
+            case QUEEN -> Bitboards.queenAttacks(square, occupancy);
+            default -> throw new IllegalArgumentException(type + " moves differently");
+        };
+    }
+}
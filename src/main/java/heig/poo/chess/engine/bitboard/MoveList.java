@@ -0,0 +1,141 @@
+package heig.poo.chess.engine.bitboard;
+
+import java.util.Arrays;
+
+/**
+ * Reusable list of encoded moves, see {@link Move}. Its capacity holds every legal move of any
+ * position, so filling it never allocates.
+ * @author Vicky Butty
+ * @author Loïc Herman
+ * @author Massimo Stefani
+ * @version 1.0
+ */
+public final class MoveList {
+
+    // No legal position has more than 218 moves
+    public static final int CAPACITY = 256;
+    // The moves of a player start from the squares of their pieces
+    public static final int MAX_ORIGINS = 16;
+
+    private final int[] moves = new int[CAPACITY];
+    private int size;
+
+    /**
+     * Add a move at the end of the list.
+     *
+     * @param move The encoded move.
+     */
+    public void add(int move) {
+        moves[size++] = move;
+    }
+
+    /**
+     * Get the move at the given index.
+     *
+     * @param index The index of the move.
+     * @return The encoded move.
+     * @throws IndexOutOfBoundsException If the index is not in the list.
+     */
+    public int get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+
+        return moves[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Remove every move.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Check if the list holds a move between two squares, whatever its promotion.
+     *
+     * @param from The starting square.
+     * @param to   The destination square.
+     * @return True if the list holds such a move, false otherwise.
+     */
+    public boolean contains(int from, int to) {
+        for (int i = 0; i < size; i++) {
+            if (Move.from(moves[i]) == from && Move.to(moves[i]) == to) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Get the destinations of the moves starting from a square.
+     *
+     * @param from The starting square.
+     * @return The bitboard of the destination squares.
+     */
+    public long destinationsOf(int from) {
+        long destinations = Bitboards.EMPTY;
+        for (int i = 0; i < size; i++) {
+            if (Move.from(moves[i]) == from) {
+                destinations |= Bitboards.bit(Move.to(moves[i]));
+            }
+        }
+
+        return destinations;
+    }
+
+    /**
+     * Index the destinations of the moves by their starting square, so that checking a move or
+     * listing the destinations of a piece takes a single array read instead of a scan of the list.
+     * The destinations are stored in the order of the starting squares, see
+     * {@link #indexOf(long, int)}, which only takes an entry per piece that can move.
+     *
+     * @param destinations The array to fill, of {@link #MAX_ORIGINS} bitboards. The entries past
+     *                     the starting squares are left unchanged.
+     * @return The bitboard of the starting squares of the moves, empty if there is no move.
+     */
+    public long indexDestinations(long[] destinations) {
+        long origins = Bitboards.EMPTY;
+        for (int i = 0; i < size; i++) {
+            origins |= Bitboards.bit(Move.from(moves[i]));
+        }
+
+        Arrays.fill(destinations, 0, Long.bitCount(origins), Bitboards.EMPTY);
+        for (int i = 0; i < size; i++) {
+            destinations[indexOf(origins, Move.from(moves[i]))] |= Bitboards.bit(Move.to(moves[i]));
+        }
+
+        return origins;
+    }
+
+    /**
+     * Get the index of the destinations of a starting square filled by
+     * {@link #indexDestinations(long[])}.
+     *
+     * @param origins The starting squares returned when indexing the destinations.
+     * @param square  One of the starting squares.
+     * @return The index of its destinations.
+     */
+    public static int indexOf(long origins, int square) {
+        return Long.bitCount(origins & (Bitboards.bit(square) - 1));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            builder.append(i == 0 ? "" : ", ").append(Move.toString(moves[i]));
+        }
+
+        return builder.append(']').toString();
+    }
+}
@@ -0,0 +1,140 @@
+package heig.poo.chess.engine.bitboard;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Counter of the leaf nodes of the tree of legal moves, down to a given depth. The counts of
+ * well-known positions are published, which makes it the reference test of a move generator.
+ * Moves are made and taken back on a single copy of the root position, and the move lists of
+ * every ply are allocated once: walking the tree does not allocate.
+ * @author Vicky Butty
+ * @author Loïc Herman
+ * @author Massimo Stefani
+ * @version 1.0
+ */
+public final class Perft {
+
+    private final Position position = new Position();
+    private final MoveList[] moves;
+
+    /**
+     * Create a counter able to walk the tree down to the given depth.
+     *
+     * @param maxDepth The maximum depth.
+     */
+    public Perft(int maxDepth) {
+        moves = new MoveList[maxDepth + 1];
+        for (int ply = 0; ply <= maxDepth; ply++) {
+            moves[ply] = new MoveList();
+        }
+    }
+
+    /**
+     * Count the leaf nodes of the tree of legal moves.
+     *
+     * @param root  The root position, left untouched.
+     * @param depth The depth of the tree, at most the maximum depth of the counter.
+     * @return The number of leaf nodes.
+     */
+    public long count(Position root, int depth) {
+        if (depth < 0 || depth >= moves.length) {
+            throw new IllegalArgumentException("Depth out of range: " + depth);
+        }
+
+        position.copyFrom(root);
+        return count(0, depth);
+    }
+
+    /**
+     * Count the leaf nodes below each legal move of the root position, to find the move whose
+     * count differs from another generator.
+     *
+     * @param root  The root position, left untouched.
+     * @param depth The depth of the tree, between 1 and the maximum depth of the counter.
+     * @return The number of leaf nodes below each move, in the order of the generator.
+     */
+    public List<Division> divide(Position root, int depth) {
+        if (depth < 1 || depth >= moves.length) {
+            throw new IllegalArgumentException("Depth out of range: " + depth);
+        }
+
+        position.copyFrom(root);
+        MoveList rootMoves = MoveGenerator.generateLegalMoves(position, new MoveList());
+        List<Division> divisions = new ArrayList<>(rootMoves.size());
+        for (int i = 0; i < rootMoves.size(); i++) {
+            position.makeMove(rootMoves.get(i));
+            divisions.add(new Division(rootMoves.get(i), count(1, depth - 1)));
+            position.unmakeMove();
+        }
+
+        return divisions;
+    }
+
+    /**
+     * Count the leaf nodes below each legal move of the root position, the moves being split
+     * across the threads of a pool. Each move is counted by its own counter on its own copy of the
+     * position.
+     *
+     * @param root  The root position, left untouched.
+     * @param depth The depth of the tree, at least 1.
+     * @param pool  The pool counting the moves.
+     * @return The number of leaf nodes below each move, in the order of the generator.
+     */
+    public static List<Division> divide(Position root, int depth, ForkJoinPool pool) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("Depth out of range: " + depth);
+        }
+
+        MoveList rootMoves = MoveGenerator.generateLegalMoves(root, new MoveList());
+        List<ForkJoinTask<Long>> tasks = new ArrayList<>(rootMoves.size());
+        for (int i = 0; i < rootMoves.size(); i++) {
+            Position child = new Position(root);
+            child.makeMove(rootMoves.get(i));
+            tasks.add(pool.submit(() -> new Perft(depth - 1).count(child, depth - 1)));
+        }
+
+        List<Division> divisions = new ArrayList<>(rootMoves.size());
+        for (int i = 0; i < rootMoves.size(); i++) {
+            divisions.add(new Division(rootMoves.get(i), tasks.get(i).join()));
+        }
+
+        return divisions;
+    }
+
+    private long count(int ply, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+
+        MoveList legalMoves = MoveGenerator.generateLegalMoves(position, moves[ply]);
+        if (depth == 1) {
+            return legalMoves.size();
+        }
+
+        long nodes = 0;
+        for (int i = 0; i < legalMoves.size(); i++) {
+            position.makeMove(legalMoves.get(i));
+            nodes += count(ply + 1, depth - 1);
+            position.unmakeMove();
+        }
+
+        return nodes;
+    }
+
+    /**
+     * Number of leaf nodes below a move of the root position.
+     *
+     * @param move  The move, encoded as described in {@link Move}.
+     * @param nodes The number of leaf nodes.
+     */
+    public record Division(int move, long nodes) {
+
+        @Override
+        public String toString() {
+            return Move.toString(move) + ": " + nodes;
+        }
+    }
+}
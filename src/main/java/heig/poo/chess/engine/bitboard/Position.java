@@ -0,0 +1,557 @@
+package heig.poo.chess.engine.bitboard;
+
+import heig.poo.chess.PieceType;
+import heig.poo.chess.PlayerColor;
+import heig.poo.chess.engine.util.Board;
+import java.util.Arrays;
+
+/**
+ * Primitive representation of the pieces on a board: one bitboard per color and type of piece,
+ * one per color and a mailbox giving the piece on each square. It is kept in sync with the pieces
+ * of the board and answers occupancy and attack queries without looking at the pieces.
+ * <p>
+ * A piece is identified by its code, {@code color * 6 + type}, see {@link #pieceCode}. Besides the
+ * pieces, the position holds the side to move, the castling rights and the en passant square.
+ * <p>
+ * Every change updates the Zobrist key of the position, a 64-bit number identifying it that is
+ * cheap to compare and to use as the key of a table, see {@link #getKey()}.
+ * <p>
+ * The squares attacked by each color, the pieces checking each king and the pieces pinned to it
+ * are computed once per position, when first asked for, and forgotten when a piece moves. Every
+ * legality query then reads them instead of looking at the enemy pieces again.
+ * @author Vicky Butty
+ * @author Loïc Herman
+ * @author Massimo Stefani
+ * @version 1.0
+ */
+public final class Position {
+
+    public static final int NO_PIECE = -1;
+    public static final int NO_SQUARE = -1;
+
+    public static final int WHITE_KING_SIDE = 1;
+    public static final int WHITE_QUEEN_SIDE = 1 << 1;
+    public static final int BLACK_KING_SIDE = 1 << 2;
+    public static final int BLACK_QUEEN_SIDE = 1 << 3;
+    public static final int ALL_CASTLING_RIGHTS =
+            WHITE_KING_SIDE | WHITE_QUEEN_SIDE | BLACK_KING_SIDE | BLACK_QUEEN_SIDE;
+
+    private static final PieceType[] PIECE_TYPES = PieceType.values();
+    private static final PlayerColor[] COLORS = PlayerColor.values();
+    // Castling rights kept when the piece standing on a square leaves it, or is captured there
+    private static final int[] CASTLING_MASKS = new int[Bitboards.SQUARES];
+
+    static {
+        Arrays.fill(CASTLING_MASKS, ALL_CASTLING_RIGHTS);
+        CASTLING_MASKS[Bitboards.square(4, 0)] &= ~(WHITE_KING_SIDE | WHITE_QUEEN_SIDE);
+        CASTLING_MASKS[Bitboards.square(7, 0)] &= ~WHITE_KING_SIDE;
+        CASTLING_MASKS[Bitboards.square(0, 0)] &= ~WHITE_QUEEN_SIDE;
+        CASTLING_MASKS[Bitboards.square(4, 7)] &= ~(BLACK_KING_SIDE | BLACK_QUEEN_SIDE);
+        CASTLING_MASKS[Bitboards.square(7, 7)] &= ~BLACK_KING_SIDE;
+        CASTLING_MASKS[Bitboards.square(0, 7)] &= ~BLACK_QUEEN_SIDE;
+    }
+
+    // The undo stack holds the moves played and, packed in an int, what each move lost: the
+    // captured piece, the castling rights and the en passant square. It is only allocated once a
+    // move is made, the position of a game being updated piece by piece
+    private static final int MAX_PLIES = 256;
+    private static final int UNDO_INITIAL_CAPACITY = 16;
+    private static final int[] NO_UNDO_INTS = {};
+    private static final long[] NO_UNDO_KEYS = {};
+    private static final int UNDO_PIECE_MASK = 0xF;
+    private static final int UNDO_CASTLING_SHIFT = 4;
+    private static final int UNDO_EN_PASSANT_SHIFT = 8;
+
+    private final long[] pieces = new long[COLORS.length * PIECE_TYPES.length];
+    private final long[] colors = new long[COLORS.length];
+    private final byte[] squares = new byte[Bitboards.SQUARES];
+    private long occupancy;
+    private PlayerColor sideToMove = PlayerColor.WHITE;
+    private int castlingRights;
+    private int enPassantSquare = NO_SQUARE;
+    private long key;
+    // Attack maps of each color, valid for the colors whose bit is set in attacksComputed
+    private final long[] attacks = new long[COLORS.length];
+    private final long[] checkers = new long[COLORS.length];
+    private final long[] pinned = new long[COLORS.length];
+    private int attacksComputed;
+    private int[] undoMoves = NO_UNDO_INTS;
+    private int[] undoStates = NO_UNDO_INTS;
+    private long[] undoKeys = NO_UNDO_KEYS;
+    private int plies;
+
+    /**
+     * Create an empty position, white to move.
+     */
+    public Position() {
+        Arrays.fill(squares, (byte) NO_PIECE);
+    }
+
+    /**
+     * Create a copy of a position.
+     *
+     * @param other The position to copy.
+     */
+    public Position(Position other) {
+        copyFrom(other);
+    }
+
+    /**
+     * Replace this position with a copy of another one, without allocating. The moves of the
+     * other position cannot be taken back from the copy.
+     *
+     * @param other The position to copy.
+     */
+    public void copyFrom(Position other) {
+        System.arraycopy(other.pieces, 0, pieces, 0, pieces.length);
+        System.arraycopy(other.colors, 0, colors, 0, colors.length);
+        System.arraycopy(other.squares, 0, squares, 0, squares.length);
+        occupancy = other.occupancy;
+        sideToMove = other.sideToMove;
+        castlingRights = other.castlingRights;
+        enPassantSquare = other.enPassantSquare;
+        key = other.key;
+        attacksComputed = 0;
+        plies = 0;
+    }
+
+    /**
+     * Get the code of a piece of the given color and type.
+     *
+     * @param color The color of the piece.
+     * @param type  The type of the piece.
+     * @return The code of the piece.
+     */
+    public static int pieceCode(PlayerColor color, PieceType type) {
+        return color.ordinal() * PIECE_TYPES.length + type.ordinal();
+    }
+
+    public static PlayerColor colorOf(int pieceCode) {
+        return COLORS[pieceCode / PIECE_TYPES.length];
+    }
+
+    public static PieceType typeOf(int pieceCode) {
+        return PIECE_TYPES[pieceCode % PIECE_TYPES.length];
+    }
+
+    /**
+     * Put a piece on a square, replacing the piece standing there if any.
+     *
+     * @param square The square of the piece.
+     * @param color  The color of the piece.
+     * @param type   The type of the piece.
+     */
+    public void put(int square, PlayerColor color, PieceType type) {
+        remove(square);
+
+        int code = pieceCode(color, type);
+        long bit = Bitboards.bit(square);
+        pieces[code] |= bit;
+        colors[color.ordinal()] |= bit;
+        occupancy |= bit;
+        squares[square] = (byte) code;
+        key ^= Zobrist.piece(code, square);
+        attacksComputed = 0;
+    }
+
+    /**
+     * Remove the piece standing on a square, nothing happens if the square is empty. Removing a
+     * king or a rook from its initial square loses the castling rights it grants.
+     *
+     * @param square The square of the piece.
+     */
+    public void remove(int square) {
+        int code = squares[square];
+        if (code == NO_PIECE) {
+            return;
+        }
+
+        long mask = ~Bitboards.bit(square);
+        pieces[code] &= mask;
+        colors[code / PIECE_TYPES.length] &= mask;
+        occupancy &= mask;
+        squares[square] = NO_PIECE;
+        key ^= Zobrist.piece(code, square);
+        attacksComputed = 0;
+        updateCastlingRights(castlingRights & CASTLING_MASKS[square]);
+    }
+
+    /**
+     * Remove every piece, and give the move to white without any castling right.
+     */
+    public void clear() {
+        Arrays.fill(pieces, Bitboards.EMPTY);
+        Arrays.fill(colors, Bitboards.EMPTY);
+        Arrays.fill(squares, (byte) NO_PIECE);
+        occupancy = Bitboards.EMPTY;
+        sideToMove = PlayerColor.WHITE;
+        castlingRights = 0;
+        enPassantSquare = NO_SQUARE;
+        key = 0;
+        attacksComputed = 0;
+        plies = 0;
+    }
+
+    private void growUndoStack() {
+        if (plies == MAX_PLIES) {
+            throw new IllegalStateException("Too many moves to undo");
+        }
+
+        int capacity = Math.min(MAX_PLIES, Math.max(UNDO_INITIAL_CAPACITY, plies * 2));
+        undoMoves = Arrays.copyOf(undoMoves, capacity);
+        undoStates = Arrays.copyOf(undoStates, capacity);
+        undoKeys = Arrays.copyOf(undoKeys, capacity);
+    }
+
+    /**
+     * Play a legal move of the side to move, see {@link MoveGenerator}. The captured piece,
+     * the rook of a castling and the piece chosen by a promotion are updated as well. What the
+     * move loses is pushed on the undo stack, so that {@link #unmakeMove()} restores the position.
+     *
+     * @param move The encoded move.
+     * @throws IllegalStateException If the undo stack is full.
+     */
+    public void makeMove(int move) {
+        if (plies == undoMoves.length) {
+            growUndoStack();
+        }
+
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int code = squares[from];
+        int capturedSquare = Move.isEnPassant(move) ? enPassantCaptureSquare(from, to) : to;
+        undoMoves[plies] = move;
+        undoStates[plies] = packUndoState(squares[capturedSquare], castlingRights, enPassantSquare);
+        undoKeys[plies] = key;
+        plies++;
+
+        remove(from);
+        remove(capturedSquare);
+        if (Move.isCastling(move)) {
+            boolean kingSide = to > from;
+            remove(kingSide ? from + 3 : from - 4);
+            put(kingSide ? from + 1 : from - 1, sideToMove, PieceType.ROOK);
+        }
+
+        PieceType type = Move.isPromotion(move) ? Move.promotionOf(move) : typeOf(code);
+        put(to, sideToMove, type);
+        setEnPassantSquare(Move.isDoublePush(move) ? (from + to) / 2 : NO_SQUARE);
+        setSideToMove(sideToMove.opposite());
+    }
+
+    /**
+     * Take back the last move played with {@link #makeMove(int)}.
+     *
+     * @throws IllegalStateException If there is no move to take back.
+     */
+    public void unmakeMove() {
+        if (plies == 0) {
+            throw new IllegalStateException("No move to undo");
+        }
+
+        plies--;
+        int move = undoMoves[plies];
+        int state = undoStates[plies];
+        int from = Move.from(move);
+        int to = Move.to(move);
+        sideToMove = sideToMove.opposite();
+
+        PieceType type = Move.isPromotion(move) ? PieceType.PAWN : typeOf(squares[to]);
+        remove(to);
+        put(from, sideToMove, type);
+        if (Move.isCastling(move)) {
+            boolean kingSide = to > from;
+            remove(kingSide ? from + 1 : from - 1);
+            put(kingSide ? from + 3 : from - 4, sideToMove, PieceType.ROOK);
+        }
+
+        int captured = (state & UNDO_PIECE_MASK) - 1;
+        if (captured != NO_PIECE) {
+            int capturedSquare = Move.isEnPassant(move) ? enPassantCaptureSquare(from, to) : to;
+            put(capturedSquare, colorOf(captured), typeOf(captured));
+        }
+        castlingRights = state >>> UNDO_CASTLING_SHIFT & ALL_CASTLING_RIGHTS;
+        enPassantSquare = (state >>> UNDO_EN_PASSANT_SHIFT) - 1;
+        key = undoKeys[plies];
+    }
+
+    /**
+     * Get the number of moves that can be taken back.
+     *
+     * @return The number of moves on the undo stack.
+     */
+    public int getPlies() {
+        return plies;
+    }
+
+    private static int enPassantCaptureSquare(int from, int to) {
+        return Bitboards.square(Bitboards.xOf(to), Bitboards.yOf(from));
+    }
+
+    private static int packUndoState(int captured, int castlingRights, int enPassantSquare) {
+        return captured + 1
+                | castlingRights << UNDO_CASTLING_SHIFT
+                | enPassantSquare + 1 << UNDO_EN_PASSANT_SHIFT;
+    }
+
+    /**
+     * Get the code of the piece standing on a square.
+     *
+     * @param square The square.
+     * @return The code of the piece, {@link #NO_PIECE} if the square is empty.
+     */
+    public int getPiece(int square) {
+        return squares[square];
+    }
+
+    public boolean isOccupied(int square) {
+        return (occupancy & Bitboards.bit(square)) != Bitboards.EMPTY;
+    }
+
+    public PlayerColor getSideToMove() {
+        return sideToMove;
+    }
+
+    public void setSideToMove(PlayerColor sideToMove) {
+        key ^= Zobrist.sideToMove(this.sideToMove) ^ Zobrist.sideToMove(sideToMove);
+        this.sideToMove = sideToMove;
+    }
+
+    /**
+     * Get the castling rights, a combination of {@link #WHITE_KING_SIDE},
+     * {@link #WHITE_QUEEN_SIDE}, {@link #BLACK_KING_SIDE} and {@link #BLACK_QUEEN_SIDE}. A right
+     * only tells that the king and the rook never moved, the castling may still be impossible.
+     *
+     * @return The castling rights.
+     */
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    public void setCastlingRights(int castlingRights) {
+        updateCastlingRights(castlingRights);
+    }
+
+    private void updateCastlingRights(int castlingRights) {
+        key ^= Zobrist.castling(this.castlingRights) ^ Zobrist.castling(castlingRights);
+        this.castlingRights = castlingRights;
+    }
+
+    /**
+     * Get the square crossed by the pawn that just moved two squares forward, where it can be
+     * captured en passant.
+     *
+     * @return The en passant square, {@link #NO_SQUARE} if the last move was not a double push.
+     */
+    public int getEnPassantSquare() {
+        return enPassantSquare;
+    }
+
+    /**
+     * Set the square where a pawn can be captured en passant. The square is only kept when a pawn
+     * stands ready to capture there: otherwise the position is the same as without it, and must
+     * have the same key to be recognised when it is repeated.
+     *
+     * @param enPassantSquare The en passant square, {@link #NO_SQUARE} if there is none.
+     */
+    public void setEnPassantSquare(int enPassantSquare) {
+        if (enPassantSquare != NO_SQUARE && !canBeCapturedEnPassant(enPassantSquare)) {
+            enPassantSquare = NO_SQUARE;
+        }
+
+        key ^= Zobrist.enPassant(this.enPassantSquare) ^ Zobrist.enPassant(enPassantSquare);
+        this.enPassantSquare = enPassantSquare;
+    }
+
+    private boolean canBeCapturedEnPassant(int enPassantSquare) {
+        // The square is crossed by a white pawn on the third rank and by a black one on the sixth,
+        // the capturing pawns attack it as a pawn of the pushed color would from there
+        PlayerColor pushed = Bitboards.yOf(enPassantSquare) < Board.BOARD_SIZE / 2
+                ? PlayerColor.WHITE
+                : PlayerColor.BLACK;
+        return (Bitboards.pawnAttacks(pushed, enPassantSquare)
+                & getPieces(pushed.opposite(), PieceType.PAWN)) != Bitboards.EMPTY;
+    }
+
+    /**
+     * Get the Zobrist key of the position. Positions with the same pieces on the same squares, the
+     * same side to move, castling rights and en passant square have the same key, different
+     * positions almost surely have different keys.
+     *
+     * @return The key of the position.
+     */
+    public long getKey() {
+        return key;
+    }
+
+    public long getOccupancy() {
+        return occupancy;
+    }
+
+    public long getPieces(PlayerColor color) {
+        return colors[color.ordinal()];
+    }
+
+    public long getPieces(PlayerColor color, PieceType type) {
+        return pieces[pieceCode(color, type)];
+    }
+
+    /**
+     * Get the square of the king of the given color.
+     *
+     * @param color The color of the king.
+     * @return The square of the king, 64 if there is no king of that color.
+     */
+    public int getKingSquare(PlayerColor color) {
+        return Long.numberOfTrailingZeros(getPieces(color, PieceType.KING));
+    }
+
+    /**
+     * Get the pieces of the given color attacking a square.
+     *
+     * @param square    The attacked square.
+     * @param by        The color of the attacking pieces.
+     * @param occupancy The occupied squares blocking the sliding pieces, which may differ from the
+     *                  current occupancy to check the position after a move.
+     * @return The squares of the attacking pieces.
+     */
+    public long attackersOf(int square, PlayerColor by, long occupancy) {
+        long queens = getPieces(by, PieceType.QUEEN);
+        long rooks = getPieces(by, PieceType.ROOK) | queens;
+        long bishops = getPieces(by, PieceType.BISHOP) | queens;
+        // Attacks are symmetric: a pawn of a color is attacked from where a pawn of the other
+        // color attacks
+        return Bitboards.pawnAttacks(by.opposite(), square) & getPieces(by, PieceType.PAWN)
+                | Bitboards.knightAttacks(square) & getPieces(by, PieceType.KNIGHT)
+                | Bitboards.kingAttacks(square) & getPieces(by, PieceType.KING)
+                | Bitboards.rookAttacks(square, occupancy) & rooks
+                | Bitboards.bishopAttacks(square, occupancy) & bishops;
+    }
+
+    /**
+     * Check if a square is attacked by a piece of the given color.
+     *
+     * @param square The square.
+     * @param by     The color of the attacking pieces.
+     * @return True if the square is attacked, false otherwise.
+     */
+    public boolean isAttacked(int square, PlayerColor by) {
+        return attackersOf(square, by, occupancy) != Bitboards.EMPTY;
+    }
+
+    /**
+     * Get the squares attacked by the pieces of the given color. The king of the other color does
+     * not block the lines of the sliding pieces: the squares behind it are attacked too, as the
+     * king cannot step back on the line of a piece checking it. Computed once per position.
+     *
+     * @param by The color of the attacking pieces.
+     * @return The attacked squares, whether they are occupied or not.
+     */
+    public long getAttacks(PlayerColor by) {
+        computeAttacks(by);
+        return attacks[by.ordinal()];
+    }
+
+    /**
+     * Get the pieces checking the king of the given color. Computed once per position.
+     *
+     * @param color The color of the king.
+     * @return The squares of the checking pieces, empty if the king is not in check or missing.
+     */
+    public long getCheckers(PlayerColor color) {
+        computeAttacks(color.opposite());
+        return checkers[color.ordinal()];
+    }
+
+    /**
+     * Get the pieces of the given color that cannot leave the line between their king and an enemy
+     * sliding piece without exposing the king. Computed once per position.
+     *
+     * @param color The color of the pinned pieces.
+     * @return The squares of the pinned pieces.
+     */
+    public long getPinned(PlayerColor color) {
+        computeAttacks(color.opposite());
+        return pinned[color.ordinal()];
+    }
+
+    /**
+     * Compute the attacks of a color, the pieces they check and the pieces they pin, unless they
+     * are already known for this position.
+     */
+    private void computeAttacks(PlayerColor by) {
+        int bit = 1 << by.ordinal();
+        if ((attacksComputed & bit) != 0) {
+            return;
+        }
+
+        PlayerColor target = by.opposite();
+        int king = getKingSquare(target);
+        long occupancy = this.occupancy & ~getPieces(target, PieceType.KING);
+        long queens = getPieces(by, PieceType.QUEEN);
+        long rooks = getPieces(by, PieceType.ROOK) | queens;
+        long bishops = getPieces(by, PieceType.BISHOP) | queens;
+
+        long attacked = Bitboards.EMPTY;
+        for (long pawns = getPieces(by, PieceType.PAWN); pawns != Bitboards.EMPTY;
+             pawns &= pawns - 1) {
+            attacked |= Bitboards.pawnAttacks(by, Long.numberOfTrailingZeros(pawns));
+        }
+        for (long knights = getPieces(by, PieceType.KNIGHT); knights != Bitboards.EMPTY;
+             knights &= knights - 1) {
+            attacked |= Bitboards.knightAttacks(Long.numberOfTrailingZeros(knights));
+        }
+        for (long sliders = rooks; sliders != Bitboards.EMPTY; sliders &= sliders - 1) {
+            attacked |= Bitboards.rookAttacks(Long.numberOfTrailingZeros(sliders), occupancy);
+        }
+        for (long sliders = bishops; sliders != Bitboards.EMPTY; sliders &= sliders - 1) {
+            attacked |= Bitboards.bishopAttacks(Long.numberOfTrailingZeros(sliders), occupancy);
+        }
+        long kings = getPieces(by, PieceType.KING);
+        if (kings != Bitboards.EMPTY) {
+            attacked |= Bitboards.kingAttacks(Long.numberOfTrailingZeros(kings));
+        }
+        attacks[by.ordinal()] = attacked;
+
+        long checking = Bitboards.EMPTY;
+        long pinnedPieces = Bitboards.EMPTY;
+        if (king != Bitboards.SQUARES) {
+            checking = attackersOf(king, by, this.occupancy);
+            // Sliding pieces that would attack the king if the pieces of its color were not there
+            long enemies = getPieces(by);
+            long snipers = Bitboards.rookAttacks(king, enemies) & rooks
+                    | Bitboards.bishopAttacks(king, enemies) & bishops;
+            for (; snipers != Bitboards.EMPTY; snipers &= snipers - 1) {
+                long blockers = Bitboards.between(king, Long.numberOfTrailingZeros(snipers))
+                        & this.occupancy;
+                if (Long.bitCount(blockers) == 1) {
+                    pinnedPieces |= blockers & getPieces(target);
+                }
+            }
+        }
+        checkers[target.ordinal()] = checking;
+        pinned[target.ordinal()] = pinnedPieces;
+        attacksComputed |= bit;
+    }
+
+    /**
+     * Two positions are equal when they have the same pieces on the same squares, the same side
+     * to move, castling rights and en passant square. The moves that led to them do not matter.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Position that = (Position) o;
+        return key == that.key
+                && Arrays.equals(pieces, that.pieces)
+                && sideToMove == that.sideToMove
+                && castlingRights == that.castlingRights
+                && enPassantSquare == that.enPassantSquare;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(key);
+    }
+}
@@ -0,0 +1,87 @@
+package heig.poo.chess.engine.bitboard;
+
+import heig.poo.chess.PieceType;
+import heig.poo.chess.PlayerColor;
+import heig.poo.chess.engine.util.Board;
+import java.util.SplittableRandom;
+
+/**
+ * Random numbers of the Zobrist keys of the positions. The key of a position is the exclusive or
+ * of the numbers of its pieces on their squares, of its castling rights, of the file of its en
+ * passant square and, when black is to move, of the side number. Changing one of them only takes
+ * an exclusive or, which lets {@link Position} update its key along with the pieces.
+ * <p>
+ * The numbers are drawn from a fixed seed, so that a position has the same key in every run.
+ * @author Vicky Butty
+ * @author Loïc Herman
+ * @author Massimo Stefani
+ * @version 1.0
+ */
+final class Zobrist {
+
+    private static final long SEED = 0x5EED_C4E55L;
+
+    private static final long[][] PIECES =
+            new long[PlayerColor.values().length * PieceType.values().length][Bitboards.SQUARES];
+    // Indexed by the castling rights, none of them having no number
+    private static final long[] CASTLING = new long[Position.ALL_CASTLING_RIGHTS + 1];
+    private static final long[] EN_PASSANT_FILES = new long[Board.BOARD_SIZE];
+    private static final long BLACK_TO_MOVE;
+
+    static {
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (long[] squares : PIECES) {
+            for (int square = 0; square < squares.length; square++) {
+                squares[square] = random.nextLong();
+            }
+        }
+        for (int rights = 1; rights < CASTLING.length; rights++) {
+            CASTLING[rights] = random.nextLong();
+        }
+        for (int file = 0; file < EN_PASSANT_FILES.length; file++) {
+            EN_PASSANT_FILES[file] = random.nextLong();
+        }
+        BLACK_TO_MOVE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    static long piece(int pieceCode, int square) {
+        return PIECES[pieceCode][square];
+    }
+
+    static long castling(int castlingRights) {
+        return CASTLING[castlingRights];
+    }
+
+    static long enPassant(int enPassantSquare) {
+        return enPassantSquare == Position.NO_SQUARE
+                ? 0
+                : EN_PASSANT_FILES[Bitboards.xOf(enPassantSquare)];
+    }
+
+    static long sideToMove(PlayerColor color) {
+        return color == PlayerColor.WHITE ? 0 : BLACK_TO_MOVE;
+    }
+
+    /**
+     * Compute the key of a position from scratch, the reference of the key the position updates.
+     *
+     * @param position The position.
+     * @return The key of the position.
+     */
+    static long keyOf(Position position) {
+        long key = castling(position.getCastlingRights())
+                ^ enPassant(position.getEnPassantSquare())
+                ^ sideToMove(position.getSideToMove());
+        for (int square = 0; square < Bitboards.SQUARES; square++) {
+            int code = position.getPiece(square);
+            if (code != Position.NO_PIECE) {
+                key ^= piece(code, square);
+            }
+        }
+
+        return key;
+    }
+}
@@ -3,11 +3,12 @@ package heig.poo.chess.engine.piece;
 import heig.poo.chess.ChessView;
 import heig.poo.chess.PieceType;
 import heig.poo.chess.PlayerColor;
+import heig.poo.chess.engine.bitboard.Bitboards;
+import heig.poo.chess.engine.bitboard.Position;
 import heig.poo.chess.engine.util.Assertions;
 import heig.poo.chess.engine.util.Board;
 import heig.poo.chess.engine.util.Direction;
 import heig.poo.chess.engine.util.Point;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 
@@ -22,6 +23,7 @@ public abstract class ChessPiece implements ChessView.UserChoice {
 
     private final PieceType pieceType;
     private final PlayerColor color;
+    // Shared by the pieces of a type, never modified
     private final Direction[] possibleMoves;
     private Point pos;
 
@@ -40,9 +42,9 @@ public abstract class ChessPiece implements ChessView.UserChoice {
         }
 
         this.color = color;
-        this.pos = new Point(posX, posY);
+        this.pos = Point.of(posX, posY);
         this.pieceType = pieceType;
-        this.possibleMoves = Arrays.copyOf(possibleMoves, possibleMoves.length);
+        this.possibleMoves = possibleMoves;
     }
 
     @Override
@@ -121,7 +123,7 @@ public abstract class ChessPiece implements ChessView.UserChoice {
     ) {
         return Direction.exists(move)
                 && haveEnoughMoveLengthFrom(piece, from, dest)
-                && pathIsClear(board, move, from, dest);
+                && pathIsClear(board, from, dest);
     }
 
     /**
@@ -170,111 +172,106 @@ public abstract class ChessPiece implements ChessView.UserChoice {
                 && !moveImpliesKingInCheck(board, dest);
     }
 
+    /**
+     * Check if the piece can move to the given square in the given board, see
+     * {@link #canMoveTo(Board, Point)}.
+     *
+     * @param board  the board of the game
+     * @param square the index of the destination square, {@code y * 8 + x}
+     * @return true if the piece can reach the destination square, false otherwise
+     */
+    public final boolean canMoveTo(Board board, int square) {
+        return canMoveTo(board, Point.ofSquare(square));
+    }
+
     /**
      * Method used to get all the directions that the piece can move to.
      *
      * @return the list of all the directions that the piece can move to.
      */
     public final List<Direction> getDirections() {
-        return Arrays.asList(possibleMoves);
+        return List.of(possibleMoves);
     }
 
     /**
      * Method used to check if the move of the piece would put his king in check. If that is the
-     * case, the move is not allowed. Can be simplified looking for the enemy through the direction
-     * of the king to this piece instead of all enemies.
+     * case, the move is not allowed. The answer is read from the attack maps of the position,
+     * computed once per position: the king cannot go to an attacked square, a piece cannot leave
+     * the line of the enemy piece pinning it, and when the king is in check the move must capture
+     * the checking piece or stand in its way.
+     * <p>
+     * A capture en passant removes two pieces from a rank at once, and may uncover the king in a
+     * way no pin shows: its occupancy after the move is computed, and the king is in check if an
+     * enemy piece, other than the captured one, attacks it with that occupancy.
      *
      * @param board the board of the game
      * @param dest  the destination point
      * @return true if the move would put the king in check, false otherwise
      */
     private boolean moveImpliesKingInCheck(Board board, Point dest) {
-        Point kingPos = board.getKing(getPlayerColor()).getPos();
-        Direction defendingFromMove = Direction.offSetOf(getPos(), kingPos);
-        Direction newDefendingMove = Direction.offSetOf(dest, kingPos);
-        List<ChessPiece> enemies = board.getAllPieces(getPlayerColor().opposite());
-        for (ChessPiece enemy : enemies) {
-            // If the enemy is the piece that could be captured by the move,
-            // we don't need to check if it can reach the king
-            if (enemy.equals(board.getPiece(dest))) {
-                continue;
-            }
+        Position position = board.getPosition();
+        int from = Bitboards.square(pos);
+        int to = Bitboards.square(dest);
+        if (pieceType == PieceType.KING) {
+            return (position.getAttacks(color.opposite()) & Bitboards.bit(to)) != Bitboards.EMPTY;
+        }
 
-            Direction possibleMoveAttack = enemy.availableMove(kingPos);
-            boolean isPinned = isPinned(
-                    board,
-                    kingPos,
-                    enemy,
-                    possibleMoveAttack,
-                    defendingFromMove,
-                    newDefendingMove
-            );
-
-            if (isPinned) {
+        int kingSquare = position.getKingSquare(color);
+        if (kingSquare == Bitboards.SQUARES) {
+            return false;
+        }
+
+        long captured = capturedSquares(board, dest);
+        if (captured != Bitboards.bit(to)) {
+            long occupancy = position.getOccupancy() & ~Bitboards.bit(from) & ~captured
+                    | Bitboards.bit(to);
+            long attackers = position.attackersOf(kingSquare, color.opposite(), occupancy);
+            return (attackers & ~captured) != Bitboards.EMPTY;
+        }
+
+        long checkers = position.getCheckers(color);
+        if (checkers != Bitboards.EMPTY) {
+            // Two pieces giving check cannot both be captured or blocked
+            if (Long.bitCount(checkers) > 1) {
+                return true;
+            }
+            long evasions = checkers
+                    | Bitboards.between(kingSquare, Long.numberOfTrailingZeros(checkers));
+            if ((evasions & Bitboards.bit(to)) == Bitboards.EMPTY) {
                 return true;
             }
         }
 
-        return false;
+        return (position.getPinned(color) & Bitboards.bit(from)) != Bitboards.EMPTY
+                && (Bitboards.line(kingSquare, from) & Bitboards.bit(to)) == Bitboards.EMPTY;
     }
 
     /**
-     * Check if a piece is pinned by another piece. A piece is pinned if it can only move in a
-     * specific direction to defend the king. If the piece is pinned, it cannot move in any other
-     * direction.
+     * Method used to get the squares of the pieces captured by a move to the given position. It
+     * is the destination point, some pieces can capture pieces standing elsewhere.
      *
-     * @param board                 the board of the game
-     * @param kingPos               the position of the king
-     * @param enemy                 the enemy that could attack the king
-     * @param attackingDirection    the move that the enemy could do to attack the king
-     * @param defendingDirection    the move against which the king is defended
-     * @param newDefendingDirection the new move against which the king is defended
-     *                              once the piece is moved
-     * @return true if the king is attacked by the enemy with a skewer attack, false otherwise
+     * @param board the board of the game
+     * @param dest  the destination point
+     * @return the bitboard of the squares whose piece is captured by the move
      */
-    private boolean isPinned(
-            Board board,
-            Point kingPos,
-            ChessPiece enemy,
-            Direction attackingDirection,
-            Direction defendingDirection,
-            Direction newDefendingDirection
-    ) {
-        return null != attackingDirection
-                && enemy.possibleLengthDistance() > 1
-                && attackingDirection.equals(defendingDirection)
-                && !attackingDirection.equals(newDefendingDirection)
-                && enemy.isAttacking(board, pos)
-                // Simulate the enemy move from the position of the piece to the king position
-                && pieceCanReachFrom(
-                        board, enemy, pos, kingPos,
-                        availableMoveFrom(enemy, pos, kingPos));
+    protected long capturedSquares(Board board, Point dest) {
+        return Bitboards.bit(Bitboards.square(dest));
     }
 
     /**
      * Check if there is no piece between the starting point and the destination point. This method
-     * does not check if the starting point and the destination point are occupied by a piece.
+     * does not check if the starting point and the destination point are occupied by a piece. The
+     * squares between two points are looked up in a table, two points that are not on a common
+     * line have none.
      *
      * @param board the board of the game
+     * @param from  the starting point
      * @param dest  the destination point
      * @return true if the path is clear, false otherwise
      */
-    protected static boolean pathIsClear(
-            Board board,
-            Direction direction,
-            Point from,
-            Point dest
-    ) {
-        Point current = from.withAdded(direction);
-        while (!current.equals(dest)) {
-            if (board.isOccupied(current)) {
-                return false;
-            }
-
-            current = current.withAdded(direction);
-        }
-
-        return true;
+    protected static boolean pathIsClear(Board board, Point from, Point dest) {
+        long path = Bitboards.between(Bitboards.square(from), Bitboards.square(dest));
+        return (path & board.getPosition().getOccupancy()) == Bitboards.EMPTY;
     }
 
     /**
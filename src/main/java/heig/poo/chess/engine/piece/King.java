@@ -2,6 +2,7 @@ package heig.poo.chess.engine.piece;
 
 import heig.poo.chess.PieceType;
 import heig.poo.chess.PlayerColor;
+import heig.poo.chess.engine.bitboard.Bitboards;
 import heig.poo.chess.engine.util.Assertions;
 import heig.poo.chess.engine.util.Board;
 import heig.poo.chess.engine.util.Direction;
@@ -26,8 +27,11 @@ public final class King extends SpecialFirstMovePiece implements CastlingPiece {
             Direction.NORTH_EAST, Direction.NORTH_WEST, Direction.SOUTH_EAST, Direction.SOUTH_WEST
     };
 
-    private final List<ChessPiece> inCheckBy = new LinkedList<>();
-    private final List<CastlingPiece> castlingPieces = new LinkedList<>();
+    private static final CastlingPiece[] NO_CASTLING_PIECES = {};
+
+    // A king is checked by two pieces at most, the list never grows once created
+    private final List<ChessPiece> inCheckBy = new ArrayList<>(2);
+    private final CastlingPiece[] castlingPieces;
 
     /**
      * Creates a new King with the given color and position.
@@ -37,7 +41,7 @@ public final class King extends SpecialFirstMovePiece implements CastlingPiece {
      * @param posY  the y position of the King
      */
     public King(PlayerColor color, int posX, int posY) {
-        super(color, posX, posY, PIECE_TYPE, POSSIBLE_MOVES);
+        this(color, posX, posY, NO_CASTLING_PIECES);
     }
 
     /**
@@ -50,8 +54,8 @@ public final class King extends SpecialFirstMovePiece implements CastlingPiece {
      * @param castlingPieces the castling pieces that can be used for castling
      */
     public King(PlayerColor color, int posX, int posY, CastlingPiece... castlingPieces) {
-        this(color, posX, posY);
-        this.castlingPieces.addAll(Arrays.asList(castlingPieces));
+        super(color, posX, posY, PIECE_TYPE, POSSIBLE_MOVES);
+        this.castlingPieces = castlingPieces;
     }
 
     /**
@@ -80,7 +84,7 @@ public final class King extends SpecialFirstMovePiece implements CastlingPiece {
                 || p.availableMove(to) != moveDirection.opposite()
                 || !isSameColor(p)
                 || !canCastle()
-                || !pathIsClear(board, availableMove(to), getPos(), p.getPos())
+                || !pathIsClear(board, getPos(), p.getPos())
                 || pathIsInCheck(board, to);
 
         if (cannotCastle) {
@@ -101,7 +105,7 @@ public final class King extends SpecialFirstMovePiece implements CastlingPiece {
      */
     public Point getCastlingPiecePos(Point to) {
         int castlingWithX = getX() - to.x() > 0 ? 0 : Board.BOARD_SIZE - 1;
-        return new Point(castlingWithX, getY());
+        return Point.of(castlingWithX, getY());
     }
 
     /**
@@ -228,24 +232,17 @@ public final class King extends SpecialFirstMovePiece implements CastlingPiece {
     }
 
     /**
-     * Method used to check if the destination point is in check.
+     * Method used to check if the destination point is in check. The attack map of the enemy
+     * pieces sees through the king, so the squares behind it on the line of a sliding piece are
+     * attacked.
      *
      * @param board the board of the game
      * @param to    the destination point
      * @return true if the destination point is in check, false otherwise
      */
     private boolean destIsInCheck(Board board, Point to) {
-        List<ChessPiece> enemies = board.getAllPieces(getPlayerColor().opposite());
-        Direction movingDirection = Direction.offSetOf(getPos(), to);
-        for (ChessPiece e : enemies) {
-            Direction attackingDirection = e.availableMove(to);
-            if (e.isAttacking(board, to) || isInCheck() && inCheckBy.contains(e)
-                    && null != attackingDirection && attackingDirection.equals(movingDirection)) {
-                return true;
-            }
-        }
-
-        return false;
+        long attacked = board.getPosition().getAttacks(getPlayerColor().opposite());
+        return (attacked & Bitboards.bit(Bitboards.square(to))) != Bitboards.EMPTY;
     }
 
     /**
@@ -258,16 +255,10 @@ public final class King extends SpecialFirstMovePiece implements CastlingPiece {
      * false otherwise
      */
     private boolean pathIsInCheck(Board board, Point to) {
-        Direction movingDirection = Direction.offSetOf(getPos(), to);
-        Point currentPos = getPos();
-
-        do {
-            currentPos = currentPos.withAdded(movingDirection);
-            if (destIsInCheck(board, currentPos)) {
-                return true;
-            }
-        } while (!currentPos.equals(to));
-
-        return false;
+        int from = Bitboards.square(getPos());
+        int dest = Bitboards.square(to);
+        long path = Bitboards.between(from, dest) | Bitboards.bit(dest);
+        long attacked = board.getPosition().getAttacks(getPlayerColor().opposite());
+        return (attacked & path) != Bitboards.EMPTY;
     }
 }
@@ -2,6 +2,7 @@ package heig.poo.chess.engine.piece;
 
 import heig.poo.chess.PieceType;
 import heig.poo.chess.PlayerColor;
+import heig.poo.chess.engine.bitboard.Bitboards;
 import heig.poo.chess.engine.util.Direction;
 import heig.poo.chess.engine.util.Point;
 import heig.poo.chess.engine.util.Board;
@@ -102,6 +103,16 @@ public final class Pawn extends SpecialFirstMovePiece implements PromotablePiece
         return isEnPassant(board, dest, availableMove(dest));
     }
 
+    @Override
+    protected long capturedSquares(Board board, Point dest) {
+        long captured = super.capturedSquares(board, dest);
+        if (isEnPassant(board, dest)) {
+            captured |= Bitboards.bit(Bitboards.square(board.getLastMoveTo()));
+        }
+
+        return captured;
+    }
+
     /**
      * Method to check if the piece is next to the given piece in the x-axis and in the same y-axis.
      *
@@ -1,6 +1,9 @@
 package heig.poo.chess.engine.util;
 
+import heig.poo.chess.PieceType;
 import heig.poo.chess.PlayerColor;
+import heig.poo.chess.engine.bitboard.Bitboards;
+import heig.poo.chess.engine.bitboard.Position;
 import heig.poo.chess.engine.piece.Bishop;
 import heig.poo.chess.engine.piece.ChessPiece;
 import heig.poo.chess.engine.piece.King;
@@ -11,8 +14,6 @@ import heig.poo.chess.engine.piece.Queen;
 import heig.poo.chess.engine.piece.Rook;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 
 
@@ -27,10 +28,11 @@ public class Board {
 
     public static final int BOARD_SIZE = 8;
 
-    private final ChessPiece[][] pieces = new ChessPiece[BOARD_SIZE][BOARD_SIZE];
-    private final List<PromotablePiece> promotablePieces = new LinkedList<>();
+    // Indexed by square, y * 8 + x
+    private final ChessPiece[] pieces = new ChessPiece[Bitboards.SQUARES];
     private final King[] kings = new King[PlayerColor.values().length];
     private final Point[] lastMove = new Point[2];
+    private final Position position = new Position();
 
     /**
      * Constructor for a new Board in the initial state.
@@ -43,13 +45,10 @@ public class Board {
      * Method used to reset the board to the initial state.
      */
     public void reset() {
-        for (ChessPiece[] row : pieces) {
-            Arrays.fill(row, null);
-        }
-
+        Arrays.fill(pieces, null);
         Arrays.fill(kings, null);
         Arrays.fill(lastMove, null);
-        promotablePieces.clear();
+        position.clear();
         fillBoard();
     }
 
@@ -73,7 +72,17 @@ public class Board {
      */
     public ChessPiece getPiece(int x, int y) {
         Assertions.assertTrue(isInBoard(x, y), "Position is out of board");
-        return this.pieces[x][y];
+        return this.pieces[Bitboards.square(x, y)];
+    }
+
+    /**
+     * Method used to get the piece standing on a square of the board.
+     *
+     * @param square The index of the square, {@code y * 8 + x}.
+     * @return The piece on the square, or null if there is no piece.
+     */
+    public ChessPiece getPiece(int square) {
+        return this.pieces[square];
     }
 
     /**
@@ -90,6 +99,21 @@ public class Board {
         );
         this.lastMove[0] = from;
         this.lastMove[1] = to;
+
+        // A pawn moving two squares forward can be captured en passant on the square it crossed
+        boolean doublePush = getPiece(to) instanceof Pawn && Math.abs(to.y() - from.y()) == 2;
+        position.setEnPassantSquare(doublePush
+                ? Bitboards.square(to.x(), (from.y() + to.y()) / 2)
+                : Position.NO_SQUARE);
+    }
+
+    /**
+     * Method used to set the player whose turn it is to play.
+     *
+     * @param color The color of the player to move.
+     */
+    public void setSideToMove(PlayerColor color) {
+        position.setSideToMove(color);
     }
 
     /**
@@ -117,7 +141,37 @@ public class Board {
      * @return True if the position is occupied by a piece, false otherwise.
      */
     public boolean isOccupied(Point p) {
-        return isInBoard(p) && null != getPiece(p);
+        return isInBoard(p) && position.isOccupied(Bitboards.square(p));
+    }
+
+    /**
+     * Method used to check if a square of the board is occupied by a piece.
+     *
+     * @param square The index of the square, {@code y * 8 + x}.
+     * @return True if the square is occupied by a piece, false otherwise.
+     */
+    public boolean isOccupied(int square) {
+        return position.isOccupied(square);
+    }
+
+    /**
+     * Get the bitboard representation of the pieces on the board, kept in sync with the pieces
+     * added to and removed from the board.
+     *
+     * @return The position of the pieces.
+     */
+    public Position getPosition() {
+        return position;
+    }
+
+    /**
+     * Get the Zobrist key of the position on the board, updated along with the pieces, the
+     * castling rights, the en passant square and the side to move.
+     *
+     * @return The key of the position, see {@link Position#getKey()}.
+     */
+    public long getKey() {
+        return position.getKey();
     }
 
     /**
@@ -127,7 +181,7 @@ public class Board {
      * @return True if the position is in the board, false otherwise.
      */
     public static boolean isInBoard(Point p) {
-        return p.x() >= 0 && p.x() < Board.BOARD_SIZE && p.y() >= 0 && p.y() < Board.BOARD_SIZE;
+        return isInBoard(p.x(), p.y());
     }
 
     /**
@@ -138,7 +192,7 @@ public class Board {
      * @return True if the position is in the board, false otherwise.
      */
     public static boolean isInBoard(int x, int y) {
-        return isInBoard(new Point(x, y));
+        return x >= 0 && x < Board.BOARD_SIZE && y >= 0 && y < Board.BOARD_SIZE;
     }
 
     /**
@@ -152,7 +206,10 @@ public class Board {
     public void addPiece(ChessPiece piece) {
         Assertions.assertNotNull(piece, "Piece cannot be null");
         Assertions.assertTrue(isInBoard(piece.getPos()), "Piece not valid");
-        this.pieces[piece.getX()][piece.getY()] = piece;
+        this.pieces[Bitboards.square(piece.getX(), piece.getY())] = piece;
+        position.put(
+                Bitboards.square(piece.getPos()), piece.getPlayerColor(), piece.getPieceType()
+        );
     }
 
     /**
@@ -167,7 +224,8 @@ public class Board {
                 "Piece is not on the board"
         );
 
-        this.pieces[piece.getX()][piece.getY()] = null;
+        this.pieces[Bitboards.square(piece.getX(), piece.getY())] = null;
+        position.remove(Bitboards.square(piece.getPos()));
     }
 
     /**
@@ -206,40 +264,88 @@ public class Board {
             addPiece(new Knight(color, 6, line));
 
             for (int j = 0; j < Board.BOARD_SIZE; j++) {
-                Pawn p = new Pawn(color, j, pawnLine);
-                addPiece(p);
-                promotablePieces.add(p);
+                addPiece(new Pawn(color, j, pawnLine));
             }
 
             kings[color.ordinal()] = k;
         }
+
+        position.setCastlingRights(Position.ALL_CASTLING_RIGHTS);
+    }
+
+    /**
+     * Method used to get the squares of the pieces of a given color. The squares are kept up to
+     * date by addPiece and removePiece, and the pieces can be iterated without allocating:
+     * <pre>{@code
+     * for (long squares = board.getPieceSquares(color); squares != 0; squares &= squares - 1) {
+     *     ChessPiece piece = board.getPiece(Long.numberOfTrailingZeros(squares));
+     * }
+     * }</pre>
+     *
+     * @param color The color of the pieces.
+     * @return The bitboard of the squares of the pieces, see {@link Bitboards}.
+     */
+    public long getPieceSquares(PlayerColor color) {
+        return position.getPieces(color);
+    }
+
+    /**
+     * Method used to get the squares of the pieces of a given color and type, see
+     * {@link #getPieceSquares(PlayerColor)}.
+     *
+     * @param color The color of the pieces.
+     * @param type  The type of the pieces.
+     * @return The bitboard of the squares of the pieces, see {@link Bitboards}.
+     */
+    public long getPieceSquares(PlayerColor color, PieceType type) {
+        return position.getPieces(color, type);
     }
 
     /**
-     * Method used to get all the pieces of a given color.
+     * Method used to count the pieces of a given color and type on the board.
+     *
+     * @param color The color of the pieces.
+     * @param type  The type of the pieces.
+     * @return The number of pieces.
+     */
+    public int countPieces(PlayerColor color, PieceType type) {
+        return Long.bitCount(position.getPieces(color, type));
+    }
+
+    /**
+     * Method used to get all the pieces of a given color in a new list. Prefer
+     * {@link #getPieceSquares(PlayerColor)} to iterate over the pieces without allocating.
      *
      * @param playerTurn The color of the pieces to get.
      * @return A list of all the pieces of the given color.
      */
     public List<ChessPiece> getAllPieces(PlayerColor playerTurn) {
-        ArrayList<ChessPiece> playerPieces = new ArrayList<>();
-        for (ChessPiece[] row : pieces) {
-            for (ChessPiece piece : row) {
-                if (null != piece && piece.getPlayerColor() == playerTurn) {
-                    playerPieces.add(piece);
-                }
-            }
+        long squares = position.getPieces(playerTurn);
+        ArrayList<ChessPiece> playerPieces = new ArrayList<>(Long.bitCount(squares));
+        for (; squares != Bitboards.EMPTY; squares &= squares - 1) {
+            int square = Long.numberOfTrailingZeros(squares);
+            playerPieces.add(pieces[square]);
         }
 
         return playerPieces;
     }
 
     /**
-     * Returns the list of all the pieces that can be promoted.
+     * Returns the list of all the pieces that can be promoted, built from the pawns on the board.
      * @return the list of all the pieces that can be promoted.
      */
     public List<PromotablePiece> getPromotablePieces() {
-        return Collections.unmodifiableList(promotablePieces);
+        List<PromotablePiece> promotablePieces = new ArrayList<>();
+        for (PlayerColor color : PlayerColor.values()) {
+            for (long pawns = position.getPieces(color, PieceType.PAWN); pawns != Bitboards.EMPTY;
+                 pawns &= pawns - 1) {
+                if (pieces[Long.numberOfTrailingZeros(pawns)] instanceof PromotablePiece pawn) {
+                    promotablePieces.add(pawn);
+                }
+            }
+        }
+
+        return promotablePieces;
     }
 
     /**
@@ -17,6 +17,7 @@ public final class ChessString {
     public static final String CHECKMATE = "Checkmate!";
     public static final String STALEMATE = "Stalemate!";
     public static final String INSUFFICIENT_MATERIAL = "Insufficient material!";
+    public static final String THREEFOLD_REPETITION = "Threefold repetition!";
     public static final String PROMOTION = "Promote";
     public static final String PLAYER_MOVE = "to move";
     public static final String PLAYER_WINS = "wins";
@@ -24,6 +25,15 @@ public final class ChessString {
     public static final String PLAY_AGAIN_QUESTION = "Do you want to play again?";
     public static final String NEW_GAME = "New game";
 
+    // Messages announcing the player to move, built once as they are displayed after every move
+    private static final String[] PLAYERS_TO_MOVE = new String[PlayerColor.values().length];
+
+    static {
+        for (PlayerColor color : PlayerColor.values()) {
+            PLAYERS_TO_MOVE[color.ordinal()] = color.name() + " " + PLAYER_MOVE;
+        }
+    }
+
     /**
      * Method used to announce the winner of the game.
      * @param color The color of the winner.
@@ -39,7 +49,7 @@ public final class ChessString {
      * @return The message announcing the player to move.
      */
     public static String playerToMove(PlayerColor color) {
-        return color.name() + " " + PLAYER_MOVE;
+        return PLAYERS_TO_MOVE[color.ordinal()];
     }
 
 }
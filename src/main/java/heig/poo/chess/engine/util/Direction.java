@@ -2,6 +2,10 @@ package heig.poo.chess.engine.util;
 
 /**
  * Enum representing the directions in a 2D space.
+ * <p>
+ * The direction and the distance of every offset between two squares of the board, and of every
+ * pair of squares, are computed once when the class is loaded: looking them up is an array read.
+ * A square is identified by its index {@code y * 8 + x}, as in the bitboards of the engine.
  * @author Vicky Butty
  * @author Loïc Herman
  * @author Massimo Stefani
@@ -25,6 +29,41 @@ public enum Direction {
     L_WEST_NORTH(-2, 1),
     L_NORTH_WEST(-1, 2);
 
+    // Offsets between two squares of the board go from -7 to 7 on each axis
+    private static final int MAX_OFFSET = Board.BOARD_SIZE - 1;
+    private static final int OFFSETS = 2 * MAX_OFFSET + 1;
+    private static final int SQUARES = Board.BOARD_SIZE * Board.BOARD_SIZE;
+
+    private static final Direction[] VALUES = values();
+    // Direction and distance of an offset, indexed by offsetIndex
+    private static final Direction[] OFFSET_DIRECTIONS = new Direction[OFFSETS * OFFSETS];
+    private static final byte[] OFFSET_DISTANCES = new byte[OFFSETS * OFFSETS];
+    // Direction and distance from a square to another, indexed by from * 64 + to
+    private static final Direction[] SQUARE_DIRECTIONS = new Direction[SQUARES * SQUARES];
+    private static final byte[] SQUARE_DISTANCES = new byte[SQUARES * SQUARES];
+
+    static {
+        for (int x = -MAX_OFFSET; x <= MAX_OFFSET; x++) {
+            for (int y = -MAX_OFFSET; y <= MAX_OFFSET; y++) {
+                Direction direction = computeOffSetOf(x, y);
+                OFFSET_DIRECTIONS[offsetIndex(x, y)] = direction;
+                OFFSET_DISTANCES[offsetIndex(x, y)] =
+                        (byte) (null == direction ? 0 : Math.abs(ChessMath.gcd(x, y)));
+            }
+        }
+
+        for (int from = 0; from < SQUARES; from++) {
+            for (int to = 0; to < SQUARES; to++) {
+                int index = offsetIndex(
+                        to % Board.BOARD_SIZE - from % Board.BOARD_SIZE,
+                        to / Board.BOARD_SIZE - from / Board.BOARD_SIZE
+                );
+                SQUARE_DIRECTIONS[from * SQUARES + to] = OFFSET_DIRECTIONS[index];
+                SQUARE_DISTANCES[from * SQUARES + to] = OFFSET_DISTANCES[index];
+            }
+        }
+    }
+
     private final int xOff;
     private final int yOff;
 
@@ -42,13 +81,21 @@ public enum Direction {
      *         If the offset is not valid, it returns null.
      */
     public static Direction offSetOf(int x, int y) {
+        if (Math.abs(x) > MAX_OFFSET || Math.abs(y) > MAX_OFFSET) {
+            return computeOffSetOf(x, y);
+        }
+
+        return OFFSET_DIRECTIONS[offsetIndex(x, y)];
+    }
+
+    private static Direction computeOffSetOf(int x, int y) {
         int length = Math.abs(ChessMath.gcd(x, y));
         if (length != 0) {
             x /= length;
             y /= length;
         }
 
-        for (Direction direction : values()) {
+        for (Direction direction : VALUES) {
             if (direction.xOff == x && direction.yOff == y) {
                 return direction;
             }
@@ -78,13 +125,40 @@ public enum Direction {
      * @return The offset length of the two coordinates if the direction is valid, 0 otherwise.
      */
     public static int moveDistance(Point from, Point to) {
-        if (Direction.offSetOf(from, to) == null) {
-            return 0;
+        int x = to.x() - from.x();
+        int y = to.y() - from.y();
+        if (Math.abs(x) > MAX_OFFSET || Math.abs(y) > MAX_OFFSET) {
+            return null == computeOffSetOf(x, y) ? 0 : Math.abs(ChessMath.gcd(x, y));
         }
 
-        int xDiff = to.x() - from.x();
-        int yDiff = to.y() - from.y();
-        return Math.abs(ChessMath.gcd(xDiff, yDiff));
+        return OFFSET_DISTANCES[offsetIndex(x, y)];
+    }
+
+    /**
+     * Method used to get the direction from a square of the board to another.
+     *
+     * @param from The index of the starting square.
+     * @param to   The index of the ending square.
+     * @return The Direction from the starting square to the ending one, null if there is none.
+     */
+    public static Direction betweenSquares(int from, int to) {
+        return SQUARE_DIRECTIONS[from * SQUARES + to];
+    }
+
+    /**
+     * Method used to get the number of steps from a square of the board to another in their
+     * direction.
+     *
+     * @param from The index of the starting square.
+     * @param to   The index of the ending square.
+     * @return The number of steps if there is a direction between the squares, 0 otherwise.
+     */
+    public static int distanceBetweenSquares(int from, int to) {
+        return SQUARE_DISTANCES[from * SQUARES + to];
+    }
+
+    private static int offsetIndex(int x, int y) {
+        return (x + MAX_OFFSET) * OFFSETS + y + MAX_OFFSET;
     }
 
     /**
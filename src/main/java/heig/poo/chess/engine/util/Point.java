@@ -1,7 +1,8 @@
 package heig.poo.chess.engine.util;
 
 /**
- * Record representing a point in a 2D space.
+ * Record representing a point in a 2D space. The points of the squares of the board are created
+ * once and shared, use {@link #of(int, int)} to get them without allocating.
  * @author Vicky Butty
  * @author Loïc Herman
  * @author Massimo Stefani
@@ -9,6 +10,37 @@ package heig.poo.chess.engine.util;
  */
 public record Point(int x, int y) {
 
+    // Points of the squares of the board, indexed by y * 8 + x
+    private static final Point[] SQUARES = new Point[Board.BOARD_SIZE * Board.BOARD_SIZE];
+
+    static {
+        for (int square = 0; square < SQUARES.length; square++) {
+            SQUARES[square] = new Point(square % Board.BOARD_SIZE, square / Board.BOARD_SIZE);
+        }
+    }
+
+    /**
+     * Method used to get the point of the given coordinates. The points of the board are shared,
+     * the others are created.
+     *
+     * @param x The x coordinate.
+     * @param y The y coordinate.
+     * @return The point of the given coordinates.
+     */
+    public static Point of(int x, int y) {
+        return Board.isInBoard(x, y) ? SQUARES[y * Board.BOARD_SIZE + x] : new Point(x, y);
+    }
+
+    /**
+     * Method used to get the point of a square of the board.
+     *
+     * @param square The index of the square, {@code y * 8 + x}.
+     * @return The shared point of the square.
+     */
+    public static Point ofSquare(int square) {
+        return SQUARES[square];
+    }
+
     /**
      * Method used to get the next point from the current point in the given direction.
      *
@@ -16,6 +48,6 @@ public record Point(int x, int y) {
      * @return The next point in the given direction.
      */
     public Point withAdded(Direction direction) {
-        return new Point(x + direction.xOffset(), y + direction.yOffset());
+        return of(x + direction.xOffset(), y + direction.yOffset());
     }
 }
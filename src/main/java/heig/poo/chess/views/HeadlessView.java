@@ -0,0 +1,58 @@
+package heig.poo.chess.views;
+
+import heig.poo.chess.ChessView;
+import heig.poo.chess.PieceType;
+import heig.poo.chess.PlayerColor;
+
+import java.util.Random;
+
+/**
+ * View that displays nothing, for games played by a program. The questions asked to the user are
+ * answered with their first choice, or with a random choice.
+ */
+public class HeadlessView implements ChessView {
+
+    private final Random random;
+
+    /**
+     * Create a view answering every question with its first choice.
+     */
+    public HeadlessView() {
+        this(null);
+    }
+
+    /**
+     * Create a view answering every question with a random choice.
+     *
+     * @param random the source of the choices, null to always answer with the first choice
+     */
+    public HeadlessView(Random random) {
+        this.random = random;
+    }
+
+    @Override
+    public void startView() {
+    }
+
+    @Override
+    public void removePiece(int x, int y) {
+    }
+
+    @Override
+    public void putPiece(PieceType type, PlayerColor color, int x, int y) {
+    }
+
+    @Override
+    public void displayMessage(String msg) {
+    }
+
+    @SafeVarargs
+    @Override
+    public final <T extends UserChoice> T askUser(
+            String title,
+            String question,
+            T... possibilities
+    ) {
+        return possibilities[null == random ? 0 : random.nextInt(possibilities.length)];
+    }
+}
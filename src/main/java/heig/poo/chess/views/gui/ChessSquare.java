@@ -29,4 +29,8 @@ class ChessSquare extends JButton {
     void deselect() {
         this.setBorder(null);
     }
+
+    void highlight() {
+        this.setBorder(new LineBorder(Color.ORANGE, 3));
+    }
 }
@@ -181,15 +181,29 @@ public class GUIView extends BaseView<ImageIcon> {
         if (lastPressed == null) {
             lastPressed = b;
             b.select();
+            highlightDestinations(controller.legalDestinations(b.x, b.y));
         }
         //Smth was already selected
         else {
+            highlightDestinations(0);
             move(lastPressed, b);
             lastPressed.deselect();
             lastPressed = null;
         }
     }
 
+    private void highlightDestinations(long destinations) {
+        for (int i = 0; i < chessBoardSquares.length; ++i) {
+            for (int j = 0; j < chessBoardSquares[i].length; ++j) {
+                if ((destinations >>> (j * 8 + i) & 1) != 0) {
+                    chessBoardSquares[i][j].highlight();
+                } else if (chessBoardSquares[i][j] != lastPressed) {
+                    chessBoardSquares[i][j].deselect();
+                }
+            }
+        }
+    }
+
     private void initializeGui() {
         // set up the main GUI
         gui.setBorder(new EmptyBorder(5, 5, 5, 5));
@@ -0,0 +1,180 @@
+package heig.dai.pw02.ccp;
+
+import heig.poo.chess.PlayerColor;
+import heig.poo.chess.engine.util.ChessString;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static heig.test.Allocations.allocatedBytes;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MessageCodecTests {
+
+    private static final int ITERATIONS = 100_000;
+
+    @Test
+    public void encodedMessagesDecodeToTheSameMessage() {
+        Message[] messages = {
+                Message.move(4, 1, 4, 3),
+                Message.of(CCPMessage.PROMOTION, 1, 7, 0),
+                Message.of(CCPMessage.MOVE, 100, -1, 0, 12345),
+                Message.of(CCPMessage.COLOR, PlayerColor.BLACK.name()),
+                Message.of(CCPMessage.REPLAY, "Maybe"),
+                Message.error(CCPError.DISCONNECTED),
+        };
+
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        for (Message message : messages) {
+            buffer.clear();
+            MessageCodec.encode(message, buffer);
+            assertEquals(
+                    message + "\n",
+                    new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII)
+            );
+
+            Message decoded = MessageCodec.decode(buffer, 0, buffer.position() - 1);
+            assertEquals(message.toString(), decoded.toString());
+            assertEquals(message.getArgumentCount(), decoded.getArgumentCount());
+        }
+    }
+
+    @Test
+    public void knownTextsAndErrorsAreShared() {
+        assertSame(ChessString.YES, Message.parse("REPLAY Yes").getText());
+        assertSame(PlayerColor.WHITE.name(), Message.parse("COLOR WHITE").getText());
+        assertSame(Message.error(CCPError.INVALID_MOVE), Message.parse("ERROR 2"));
+    }
+
+    @Test
+    public void linesAreDecodedWithinTheirBounds() {
+        ByteBuffer buffer = ByteBuffer.wrap("MOVE 1 2 3 4\r\nREPLAY No\n".getBytes(StandardCharsets.US_ASCII));
+        int firstEnd = MessageCodec.indexOfLineEnd(buffer, 0, buffer.limit());
+        Message move = MessageCodec.decode(buffer, 0, firstEnd);
+        assertArrayEquals(new int[]{1, 2, 3, 4}, move.getNumericArguments());
+
+        int secondEnd = MessageCodec.indexOfLineEnd(buffer, firstEnd + 1, buffer.limit());
+        assertEquals(ChessString.NO, MessageCodec.decode(buffer, firstEnd + 1, secondEnd).getText());
+        assertEquals(-1, MessageCodec.indexOfLineEnd(buffer, secondEnd + 1, buffer.limit()));
+    }
+
+    @Test
+    public void extraArgumentsAreCounted() {
+        Message message = Message.parse("MOVE 1 2 3 4 5");
+        assertEquals(5, message.getArgumentCount());
+        assertEquals(4, message.getInt(3));
+    }
+
+    @Test
+    public void malformedLinesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> Message.parse(""));
+        assertThrows(IllegalArgumentException.class, () -> Message.parse("CASTLE 1 2"));
+        assertThrows(IllegalArgumentException.class, () -> Message.parse("MOVEX 1 2 3 4"));
+        assertThrows(IllegalArgumentException.class, () -> Message.parse("MOVE 1 b 3 4"));
+        assertThrows(IllegalArgumentException.class, () -> Message.parse("MOVE 1 - 3 4"));
+        assertThrows(IllegalArgumentException.class, () -> Message.parse("ERROR 12345678901"));
+    }
+
+    @Test
+    public void binaryFramesDecodeToTheSameMessage() {
+        Message[] messages = {
+                Message.move(4, 1, 4, 3),
+                Message.move(7, 7, 0, 0),
+                Message.of(CCPMessage.PROMOTION, 4, 7, 7),
+                Message.of(CCPMessage.COLOR, PlayerColor.WHITE.name()),
+                Message.of(CCPMessage.REPLAY, ChessString.NO),
+                Message.error(CCPError.INVALID_REPLAY),
+        };
+
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        for (Message message : messages) {
+            buffer.clear();
+            MessageCodec.encode(message, buffer, true);
+            int length = MessageCodec.frameLength(buffer, 0, buffer.position());
+            assertEquals(buffer.position(), length);
+            assertEquals(-1, MessageCodec.frameLength(buffer, 0, length - 1));
+            assertEquals(message.toString(), MessageCodec.decodeFrame(buffer, 0, length).toString());
+        }
+    }
+
+    @Test
+    public void binaryMoveFitsInThreeBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        MessageCodec.encode(Message.move(4, 1, 4, 3), buffer, true);
+        // Type byte, then e2 (12) and e4 (28) packed on 6 bits each
+        assertArrayEquals(
+                new byte[]{(byte) (0x80 | CCPMessage.MOVE.ordinal()), 0x03, 0x1C},
+                Arrays.copyOf(buffer.array(), buffer.position())
+        );
+    }
+
+    @Test
+    public void unrepresentableMessagesFallBackToText() {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        MessageCodec.encode(Message.of(CCPMessage.MOVE, 100, 100, 100, 100), buffer, true);
+        MessageCodec.encode(Message.of(CCPMessage.HELLO, 2), buffer, true);
+        assertEquals(
+                "MOVE 100 100 100 100\nHELLO 2\n",
+                new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII)
+        );
+    }
+
+    @Test
+    public void textAndBinaryFramesCanBeMixed() {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        MessageCodec.encode(Message.move(1, 0, 2, 2), buffer, true);
+        MessageCodec.encode(Message.move(6, 7, 5, 5), buffer, false);
+        MessageCodec.encode(Message.of(CCPMessage.PROMOTION, 1, 0, 7), buffer, true);
+
+        int start = 0;
+        StringBuilder decoded = new StringBuilder();
+        int length;
+        while ((length = MessageCodec.frameLength(buffer, start, buffer.position())) > 0) {
+            decoded.append(MessageCodec.decodeFrame(buffer, start, length)).append(';');
+            start += length;
+        }
+        assertEquals("MOVE 1 0 2 2;MOVE 6 7 5 5;PROMOTION 1 0 7;", decoded.toString());
+    }
+
+    @Test
+    public void malformedBinaryFramesAreRejected() {
+        ByteBuffer unknownType = ByteBuffer.wrap(new byte[]{(byte) 0xFF});
+        assertEquals(1, MessageCodec.frameLength(unknownType, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> MessageCodec.decodeFrame(unknownType, 0, 1));
+
+        ByteBuffer badMove = ByteBuffer.wrap(new byte[]{(byte) (0x80 | CCPMessage.MOVE.ordinal()), 0x10, 0});
+        assertThrows(IllegalArgumentException.class, () -> MessageCodec.decodeFrame(badMove, 0, 3));
+    }
+
+    @Test
+    public void decodingAndEncodingDoNotAllocateStrings() {
+        ByteBuffer input = ByteBuffer.wrap("MOVE 4 1 4 3\n".getBytes(StandardCharsets.US_ASCII));
+        ByteBuffer output = ByteBuffer.allocate(64);
+        Message move = Message.move(6, 7, 5, 5);
+
+        long[] checksum = {roundTrips(input, output, move, ITERATIONS)};
+        long allocated = allocatedBytes(
+                () -> checksum[0] += roundTrips(input, output, move, ITERATIONS)
+        );
+
+        double bytesPerRoundTrip = (double) allocated / ITERATIONS;
+        System.out.printf("%.1f bytes allocated per decode and encode (checksum %d)%n",
+                bytesPerRoundTrip, checksum[0]);
+        // A decoded MOVE is a single object, the encoding does not allocate
+        assertTrue(bytesPerRoundTrip <= 48, "Allocated " + bytesPerRoundTrip + " bytes per message");
+    }
+
+    private static long roundTrips(ByteBuffer input, ByteBuffer output, Message move, int count) {
+        long checksum = 0;
+        for (int i = 0; i < count; i++) {
+            Message decoded = MessageCodec.decode(input, 0, input.limit() - 1);
+            checksum += decoded.getInt(0) + decoded.getInt(3);
+            output.clear();
+            MessageCodec.encode(move, output);
+            checksum += output.position();
+        }
+        return checksum;
+    }
+}
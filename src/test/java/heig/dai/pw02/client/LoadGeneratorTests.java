@@ -0,0 +1,43 @@
+package heig.dai.pw02.client;
+
+import heig.dai.pw02.server.ServerGamePool;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoadGeneratorTests {
+
+    @Test
+    public void randomGamesAreRelayedByTheServer() throws Exception {
+        try (var pool = new ServerGamePool();
+             var serverSocket = new ServerSocket(0, 16, InetAddress.getLoopbackAddress())) {
+            Thread acceptLoop = new Thread(() -> {
+                try {
+                    while (!serverSocket.isClosed()) {
+                        pool.handleIncomingPlayer(serverSocket.accept());
+                    }
+                } catch (IOException e) {
+                    System.out.println("Accept loop stopped: " + e);
+                }
+            });
+            acceptLoop.setDaemon(true);
+            acceptLoop.start();
+
+            // Short games so that some of them get abandoned and new pairs are opened
+            LoadGenerator.Report report = new LoadGenerator(
+                    serverSocket.getInetAddress().getHostAddress(), serverSocket.getLocalPort(),
+                    4, 60, true, 1
+            ).run(2);
+            System.out.println(report);
+
+            assertEquals(0, report.failedGames());
+            assertTrue(report.abandonedGames() > 0);
+            assertEquals(report.moves(), report.relayLatency().getCount());
+            assertTrue(report.relayLatency().getPercentile(0.5) > 0);
+        }
+    }
+}
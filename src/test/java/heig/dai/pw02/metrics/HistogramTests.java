@@ -0,0 +1,36 @@
+package heig.dai.pw02.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HistogramTests {
+
+    @Test
+    public void bucketsCoverEveryValue() {
+        for (long value : new long[]{0, 1, 15, 16, 17, 31, 32, 1000, 123_456_789, Long.MAX_VALUE / 3}) {
+            int bucket = Histogram.bucketOf(value);
+            assertTrue(Histogram.lowestValueOf(bucket) <= value, "Bucket of " + value);
+            assertTrue(Histogram.lowestValueOf(bucket + 1) > value, "Bucket of " + value);
+        }
+    }
+
+    @Test
+    public void percentilesAreWithinTheBucketPrecision() {
+        Histogram histogram = new Histogram();
+        for (long value = 1; value <= 10_000; value++) {
+            histogram.record(value * 1000);
+        }
+
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(10_000_000, histogram.getMax());
+        assertEquals(5_000_000, histogram.getPercentile(0.5), 5_000_000 / 16.0);
+        assertEquals(9_900_000, histogram.getPercentile(0.99), 9_900_000 / 16.0);
+        assertEquals(9_990_000, histogram.getPercentile(0.999), 9_990_000 / 16.0);
+        assertEquals(10_000_000, histogram.getPercentile(1));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(0.99));
+    }
+}
@@ -0,0 +1,109 @@
+package heig.dai.pw02.metrics;
+
+import heig.dai.pw02.ccp.CCPMessage;
+import heig.dai.pw02.ccp.Message;
+import heig.dai.pw02.socket.SocketManager;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static heig.test.Allocations.allocatedBytes;
+import static heig.test.Allocations.assertNoAllocation;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsRegistryTests {
+
+    private static final int ITERATIONS = 100_000;
+
+    private enum Color {
+        RED, BLUE
+    }
+
+    @Test
+    public void metricsAreRenderedInThePrometheusFormat() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Counter counter = registry.counter("test_events_total", "Events");
+        LabeledCounter<Color> colors = registry.counter("test_colors_total", "Colors", "color", Color.class);
+        registry.gauge("test_level", "Level", () -> 7);
+        Histogram latency = registry.latency("test_latency_seconds", "Latency");
+
+        counter.add(3);
+        colors.increment(Color.BLUE);
+        latency.record(2_000_000);
+        latency.record(4_000_000);
+
+        String scraped = registry.scrape();
+        assertTrue(scraped.contains("# HELP test_events_total Events\n# TYPE test_events_total counter\n"
+                + "test_events_total 3\n"));
+        assertTrue(scraped.contains("test_colors_total{color=\"RED\"} 0\ntest_colors_total{color=\"BLUE\"} 1\n"));
+        assertTrue(scraped.contains("# TYPE test_level gauge\ntest_level 7\n"));
+        assertTrue(scraped.contains("# TYPE test_latency_seconds summary\n"));
+        assertTrue(scraped.contains("test_latency_seconds{quantile=\"0.5\"} 0.002"));
+        assertTrue(scraped.contains("test_latency_seconds_sum 0.006\ntest_latency_seconds_count 2\n"));
+    }
+
+    @Test
+    public void recordingDoesNotAllocate() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Counter counter = registry.counter("test_events_total", "Events");
+        LabeledCounter<CCPMessage> messages = registry.counter(
+                "test_messages_total", "Messages", "type", CCPMessage.class
+        );
+        Histogram latency = registry.latency("test_latency_seconds", "Latency");
+
+        record(counter, messages, latency);
+        long allocated = allocatedBytes(() -> record(counter, messages, latency));
+        assertNoAllocation(allocated, ITERATIONS, "recordings of each metric");
+    }
+
+    @Test
+    public void transportsCountMessagesAndBytes() throws Exception {
+        long movesSent = Metrics.MESSAGES_SENT.get(CCPMessage.MOVE);
+        long movesReceived = Metrics.MESSAGES_RECEIVED.get(CCPMessage.MOVE);
+        long bytesSent = Metrics.BYTES_SENT.get();
+        long bytesReceived = Metrics.BYTES_RECEIVED.get();
+
+        try (var serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+             var sender = new SocketManager(new Socket(serverSocket.getInetAddress(), serverSocket.getLocalPort()));
+             var receiver = new SocketManager(serverSocket.accept())) {
+            sender.send(Message.move(4, 1, 4, 3));
+            assertEquals("MOVE 4 1 4 3", receiver.read().toString());
+        }
+
+        assertEquals(1, Metrics.MESSAGES_SENT.get(CCPMessage.MOVE) - movesSent);
+        assertEquals(1, Metrics.MESSAGES_RECEIVED.get(CCPMessage.MOVE) - movesReceived);
+        assertEquals("MOVE 4 1 4 3\n".length(), Metrics.BYTES_SENT.get() - bytesSent);
+        assertEquals("MOVE 4 1 4 3\n".length(), Metrics.BYTES_RECEIVED.get() - bytesReceived);
+    }
+
+    @Test
+    public void metricsAreServedOverHttp() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("test_events_total", "Events").increment();
+
+        try (var server = new MetricsServer(registry, 0)) {
+            HttpResponse<String> response = HttpClient.newHttpClient().send(
+                    HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + "/metrics")).build(),
+                    HttpResponse.BodyHandlers.ofString()
+            );
+
+            assertEquals(200, response.statusCode());
+            assertTrue(response.headers().firstValue("Content-Type").orElseThrow().startsWith("text/plain"));
+            assertEquals(registry.scrape(), response.body());
+        }
+    }
+
+    private static void record(Counter counter, LabeledCounter<CCPMessage> messages, Histogram latency) {
+        for (int i = 0; i < ITERATIONS; i++) {
+            counter.increment();
+            messages.increment(CCPMessage.MOVE);
+            latency.record(i * 1000L);
+        }
+    }
+}
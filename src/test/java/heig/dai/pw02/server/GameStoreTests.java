@@ -0,0 +1,90 @@
+package heig.dai.pw02.server;
+
+import heig.poo.chess.engine.GameStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static heig.test.TestGames.play;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameStoreTests {
+    private static final Duration IDLE_TIME = Duration.ofMinutes(1);
+    // A promotion, en passant and castling
+    private static final String[] MOVES = {
+            "e2e4", "d7d5", "e4d5", "c7c6", "d5c6", "g8f6", "c6b7", "e7e5", "b7a8q", "e5e4",
+            "f2f4", "e4f3", "g1f3", "f8c5", "f1e2", "e8g8", "d2d4", "a7a6", "e1g1"
+    };
+
+    @Test
+    public void recordedGamesAreRebuilt() {
+        RecordedGame game = play(new RecordedGame(), MOVES);
+        ByteBuffer buffer = ByteBuffer.allocate(game.getRecordSize());
+        game.writeTo(buffer);
+        System.out.printf("%d moves written in %d bytes%n", game.getMoveCount(), buffer.position());
+
+        RecordedGame rebuilt = new RecordedGame();
+        rebuilt.readFrom(buffer.flip());
+        assertEquals(game.getPositionKey(), rebuilt.getPositionKey());
+        assertEquals(game.getMoveCount(), rebuilt.getMoveCount());
+        assertEquals(GameStatus.ONGOING, rebuilt.getStatus());
+
+        // The rebuilt game goes on
+        play(rebuilt, "b8c6");
+        assertEquals(game.getMoveCount() + 1, rebuilt.getMoveCount());
+
+        // A record not reaching its position is rejected
+        buffer.flip().putLong(0, ~game.getPositionKey());
+        assertThrows(IllegalStateException.class, () -> new RecordedGame().readFrom(buffer));
+    }
+
+    @Test
+    public void leastRecentlyParkedGamesGoCold() {
+        try (var store = new GameStore<RecordedGame>(IDLE_TIME, 1, 2)) {
+            RecordedGame first = play(new RecordedGame(), MOVES);
+            RecordedGame second = play(new RecordedGame(), "e2e4");
+            RecordedGame third = play(new RecordedGame(), "d2d4");
+            RecordedGame fourth = play(new RecordedGame(), "c2c4");
+            long firstId = store.park(first);
+            long secondId = store.park(second);
+            assertEquals(1, store.getHotGames());
+            assertEquals(1, store.getColdGames());
+
+            // Every slot is used, the games stay hot
+            long thirdId = store.park(third);
+            long fourthId = store.park(fourth);
+            assertEquals(2, store.getHotGames());
+            assertEquals(2, store.getColdGames());
+
+            RecordedGame rebuilt = store.unpark(firstId, RecordedGame::new);
+            assertNotSame(first, rebuilt);
+            assertEquals(first.getPositionKey(), rebuilt.getPositionKey());
+            assertEquals(second.getPositionKey(), store.unpark(secondId, RecordedGame::new).getPositionKey());
+            assertSame(third, store.unpark(thirdId, RecordedGame::new));
+            assertSame(fourth, store.unpark(fourthId, RecordedGame::new));
+            assertEquals(0, store.getHotGames() + store.getColdGames());
+            assertThrows(IllegalArgumentException.class, () -> store.unpark(firstId, RecordedGame::new));
+        }
+    }
+
+    @Test
+    public void coldGamesCanBeMappedToAFile(@TempDir Path directory) {
+        Path file = directory.resolve("games");
+        try (var store = new GameStore<RecordedGame>(IDLE_TIME, 0, 1, 8, file)) {
+            RecordedGame shortGame = play(new RecordedGame(), "e2e4", "e7e5");
+            RecordedGame longGame = play(new RecordedGame(), MOVES);
+            long shortId = store.park(shortGame);
+            // Too long for a slot, the game stays hot
+            long longId = store.park(longGame);
+            assertEquals(1, store.getColdGames());
+            assertEquals(1, store.getHotGames());
+
+            assertEquals(shortGame.getPositionKey(), store.unpark(shortId, RecordedGame::new).getPositionKey());
+            assertSame(longGame, store.unpark(longId, RecordedGame::new));
+        }
+    }
+
+}
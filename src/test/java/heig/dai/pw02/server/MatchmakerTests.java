@@ -0,0 +1,113 @@
+package heig.dai.pw02.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MatchmakerTests {
+    private static final int THREADS = 8;
+    private static final int PLAYERS_PER_THREAD = 50_000;
+
+    @Test
+    public void playersArePairedWithinTheirQueue() {
+        List<String> matches = new ArrayList<>();
+        Matchmaker<String> matchmaker = new Matchmaker<>(
+                List.of("blitz", "rapid"), (waiting, arriving) -> matches.add(waiting + "-" + arriving)
+        );
+
+        matchmaker.enqueue("blitz", "a");
+        matchmaker.enqueue("rapid", "b");
+        assertEquals(2, matchmaker.getWaitingPlayers());
+        matchmaker.enqueue("rapid", "c");
+        matchmaker.enqueue("blitz", "d");
+
+        assertEquals(List.of("b-c", "a-d"), matches);
+        assertEquals(0, matchmaker.getWaitingPlayers());
+        assertThrows(IllegalArgumentException.class, () -> matchmaker.enqueue("bullet", "e"));
+    }
+
+    @Test
+    public void cancelledPlayersAreNotPaired() {
+        List<String> matches = new ArrayList<>();
+        Matchmaker<String> matchmaker = new Matchmaker<>(
+                List.of("default"), (waiting, arriving) -> matches.add(waiting + "-" + arriving)
+        );
+
+        Matchmaker.Ticket<String> left = matchmaker.enqueue("default", "a");
+        assertTrue(left.cancel());
+        assertFalse(left.cancel());
+        assertFalse(matchmaker.isWaiting("default"));
+
+        Matchmaker.Ticket<String> first = matchmaker.enqueue("default", "b");
+        Matchmaker.Ticket<String> second = matchmaker.enqueue("default", "c");
+        assertEquals(List.of("b-c"), matches);
+        // Paired players can no longer leave the queue
+        assertFalse(first.cancel());
+        assertFalse(second.cancel());
+    }
+
+    @Test
+    public void concurrentPlayersArePairedExactlyOnce() throws Exception {
+        List<String> queues = List.of("blitz", "rapid", "classical");
+        Map<Integer, Integer> pairedWith = new ConcurrentHashMap<>();
+        Matchmaker<Integer> matchmaker = new Matchmaker<>(queues, (waiting, arriving) -> {
+            assertNull(pairedWith.put(waiting, arriving), "Paired twice: " + waiting);
+            assertNull(pairedWith.put(arriving, waiting), "Paired twice: " + arriving);
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            threads.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < PLAYERS_PER_THREAD; i++) {
+                    int player = thread * PLAYERS_PER_THREAD + i;
+                    Matchmaker.Ticket<Integer> ticket = matchmaker.enqueue(queues.get(player % 3), player);
+                    // Some players give up, they must never end up in a game
+                    if (player % 7 == 0 && ticket.cancel()) {
+                        pairedWith.put(player, -1);
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> thread : threads) {
+            thread.get(30, TimeUnit.SECONDS);
+        }
+        long elapsed = System.nanoTime() - begin;
+        executor.shutdown();
+
+        int players = THREADS * PLAYERS_PER_THREAD;
+        System.out.printf(
+                "%d players enqueued by %d threads at %d players/s%n",
+                players, THREADS, players * TimeUnit.SECONDS.toNanos(1) / elapsed
+        );
+        // Every player was paired or left, except at most one waiting player per queue
+        assertEquals(players - matchmaker.getWaitingPlayers(), pairedWith.size());
+        assertTrue(matchmaker.getWaitingPlayers() <= queues.size());
+        Set<Integer> pairs = pairedWith.keySet();
+        for (int player : pairs) {
+            int opponent = pairedWith.get(player);
+            if (opponent >= 0) {
+                assertEquals(player, pairedWith.get(opponent));
+                assertEquals(player % 3, opponent % 3, "Paired across queues");
+            }
+        }
+    }
+}
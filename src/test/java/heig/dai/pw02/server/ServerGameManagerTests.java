@@ -0,0 +1,76 @@
+package heig.dai.pw02.server;
+
+import heig.dai.pw02.socket.NioEventLoopGroup;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import static heig.test.RetainedMemory.retainedBytes;
+import static heig.test.TestGames.play;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ServerGameManagerTests {
+    private static final int GAMES = 200;
+    // A game waiting for the move of white in the middle of its opening
+    private static final String[] OPENING = {"e2e4", "e7e5", "g1f3", "b8c6", "f1c4", "g8f6"};
+    // 5.6 KB, 107 KB with the blocking transport and the console view of the game
+    private static final long MAX_RETAINED_BYTES = 6_000;
+
+    @Test
+    public void serverGamesRetainFewBytes() throws IOException {
+        // The clients connect beforehand, only the server side of the connections is measured
+        int connections = 2 * (GAMES + 1);
+        List<SocketChannel> clients = new ArrayList<>(connections);
+        List<PlayerPair> pairs = new ArrayList<>(GAMES + 1);
+        try (var eventLoops = new NioEventLoopGroup(1);
+             var serverChannel = ServerSocketChannel.open()) {
+            serverChannel.bind(
+                    new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), connections
+            );
+            for (int i = 0; i < connections; i++) {
+                clients.add(SocketChannel.open(serverChannel.getLocalAddress()));
+            }
+
+            startGame(eventLoops, serverChannel, pairs);
+            long retained = retainedBytes(GAMES, i -> startGame(eventLoops, serverChannel, pairs));
+
+            System.out.printf("%d bytes retained per server game%n", retained);
+            assertTrue(retained < MAX_RETAINED_BYTES, "Retained " + retained + " bytes per game");
+        } finally {
+            pairs.forEach(PlayerPair::disconnect);
+            for (SocketChannel client : clients) {
+                client.close();
+            }
+        }
+    }
+
+    /**
+     * Pair the next two connections and play the opening, as a game of the server does.
+     */
+    private static ServerGameManager startGame(
+            NioEventLoopGroup eventLoops,
+            ServerSocketChannel serverChannel,
+            List<PlayerPair> pairs
+    ) {
+        try {
+            PlayerPair players = new PlayerPair(
+                    new PlayerHandler(eventLoops.register(serverChannel.accept())),
+                    new PlayerHandler(eventLoops.register(serverChannel.accept()))
+            );
+            pairs.add(players);
+            players.sendColors();
+            ServerGameManager game = play(new ServerGameManager(players), OPENING);
+            players.white().awaitMove();
+            return game;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
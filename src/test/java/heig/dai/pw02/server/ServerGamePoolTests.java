@@ -0,0 +1,135 @@
+package heig.dai.pw02.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Load test of the game scheduling: games are held open until every connection was accepted, which
+ * shows how many games a pool runs concurrently and how fast the accept loop takes connections.
+ */
+public class ServerGamePoolTests {
+    private static final int GAMES = 200;
+    private static final long TIMEOUT_SECONDS = 30;
+
+    @Test
+    public void unboundedPoolRunsAllGamesConcurrently() throws Exception {
+        int concurrentGames = runLoad("unbounded", 0);
+        assertEquals(GAMES, concurrentGames);
+    }
+
+    @Test
+    public void singleGamePoolDoesNotBlockAcceptLoop() throws Exception {
+        // One game at a time was the previous behaviour, it must not stop the accept loop anymore
+        int concurrentGames = runLoad("one game at a time", 1);
+        assertEquals(1, concurrentGames);
+    }
+
+    @Test
+    public void playerLeavingTheQueueIsNotPaired() throws Exception {
+        var pool = new ServerGamePool(Executors.newCachedThreadPool(), pair -> {
+            pair.sendColors();
+            return GameEndReason.REPLAY_DECLINED;
+        });
+
+        try (pool; var serverSocket = new ServerSocket(0, 4, InetAddress.getLoopbackAddress())) {
+            try (var leaving = new Socket(serverSocket.getInetAddress(), serverSocket.getLocalPort())) {
+                pool.handleIncomingPlayer(serverSocket.accept());
+                assertEquals(1, pool.getQueuedPlayers());
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+            while (pool.getQueuedPlayers() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, pool.getQueuedPlayers(), "The player did not leave the queue");
+
+            try (var white = new Socket(serverSocket.getInetAddress(), serverSocket.getLocalPort());
+                 var black = new Socket(serverSocket.getInetAddress(), serverSocket.getLocalPort())) {
+                pool.handleIncomingPlayer(serverSocket.accept());
+                pool.handleIncomingPlayer(serverSocket.accept());
+                assertEquals("COLOR WHITE", readLine(white));
+                assertEquals("COLOR BLACK", readLine(black));
+            }
+        }
+    }
+
+    private static String readLine(Socket socket) throws IOException {
+        socket.setSoTimeout((int) TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        return new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))
+                .readLine();
+    }
+
+    private static int runLoad(String mode, int maxGames) throws Exception {
+        CountDownLatch endGames = new CountDownLatch(1);
+        AtomicInteger accepted = new AtomicInteger();
+        var executor = maxGames > 0
+                ? Executors.newFixedThreadPool(maxGames)
+                : Executors.newCachedThreadPool();
+        var pool = new ServerGamePool(executor, pair -> {
+            pair.sendColors();
+            try {
+                endGames.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return GameEndReason.PLAYER_DISCONNECTED;
+        });
+
+        List<Socket> clients = new ArrayList<>();
+        try (pool; var serverSocket = new ServerSocket(0, GAMES * 2, InetAddress.getLoopbackAddress())) {
+            Thread acceptLoop = new Thread(() -> {
+                try {
+                    while (accepted.get() < GAMES * 2) {
+                        pool.handleIncomingPlayer(serverSocket.accept());
+                        accepted.incrementAndGet();
+                    }
+                } catch (IOException e) {
+                    System.out.println("Error while accepting connection");
+                }
+            });
+            acceptLoop.start();
+
+            long start = System.nanoTime();
+            for (int i = 0; i < GAMES * 2; i++) {
+                clients.add(new Socket(serverSocket.getInetAddress(), serverSocket.getLocalPort()));
+            }
+            acceptLoop.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+            long elapsed = System.nanoTime() - start;
+            assertEquals(GAMES * 2, accepted.get(), "The accept loop got blocked");
+
+            int concurrentGames = awaitActiveGames(pool, Math.max(1, maxGames == 0 ? GAMES : maxGames));
+            System.out.printf(
+                    "[%s] accepted %d connections/s, %d concurrent games%n",
+                    mode, accepted.get() * TimeUnit.SECONDS.toNanos(1) / elapsed, concurrentGames
+            );
+            return concurrentGames;
+        } finally {
+            endGames.countDown();
+            for (Socket client : clients) {
+                client.close();
+            }
+        }
+    }
+
+    private static int awaitActiveGames(ServerGamePool pool, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (pool.getActiveGames() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        return pool.getActiveGames();
+    }
+}
@@ -0,0 +1,288 @@
+package heig.dai.pw02.server;
+
+import heig.dai.pw02.socket.NioEventLoopGroup;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Soak test of the per-game teardown: hundreds of concurrent games end with players leaving at
+ * random points, or after a short game without a rematch. The server must keep accepting players,
+ * notify every opponent, close every connection and release every game and reader thread.
+ */
+public class ServerSoakTests {
+    private static final int GAMES = 200;
+    private static final int CLIENT_THREADS = 32;
+    private static final int TIMEOUT_SECONDS = 60;
+    private static final String DISCONNECTED = "ERROR 6";
+
+    private enum Scenario {
+        WHITE_LEAVES, BLACK_LEAVES, LEAVES_MID_GAME, FOOLS_MATE
+    }
+
+    @Test
+    public void blockingServerSurvivesRandomDisconnects() throws Exception {
+        soak(false, null);
+    }
+
+    @Test
+    public void nioServerSurvivesRandomDisconnects() throws Exception {
+        soak(true, null);
+    }
+
+    @Test
+    public void parkedGamesSurviveRandomDisconnects() throws Exception {
+        // Every idle player gets their game parked, most of them cold
+        try (var store = new GameStore<ServerGameManager>(Duration.ofMillis(1), 8, GAMES)) {
+            soak(false, store);
+            assertEquals(0, store.getHotGames() + store.getColdGames(), "Games are still parked");
+        }
+    }
+
+    private static void soak(boolean nio, GameStore<ServerGameManager> store) throws Exception {
+        Random random = new Random(42);
+        Scenario[] scenarios = new Scenario[GAMES];
+        Map<GameEndReason, Integer> expectedReasons = new EnumMap<>(GameEndReason.class);
+        for (int i = 0; i < GAMES; i++) {
+            scenarios[i] = Scenario.values()[random.nextInt(Scenario.values().length)];
+            expectedReasons.merge(
+                    scenarios[i] == Scenario.FOOLS_MATE
+                            ? GameEndReason.REPLAY_DECLINED
+                            : GameEndReason.PLAYER_DISCONNECTED,
+                    1, Integer::sum
+            );
+        }
+
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENT_THREADS);
+        try (ServerGamePool pool = new ServerGamePool(0, List.of(ServerGamePool.DEFAULT_QUEUE), store);
+             TestServer server = TestServer.start(pool, nio)) {
+            long start = System.nanoTime();
+            // Connections are opened in order so that consecutive connections are paired together
+            List<Future<?>> games = new ArrayList<>();
+            for (int i = 0; i < GAMES; i++) {
+                Socket first = server.connect();
+                Socket second = server.connect();
+                Scenario scenario = scenarios[i];
+                boolean blackLeaves = random.nextBoolean();
+                games.add(clients.submit(() -> {
+                    playScenario(first, second, scenario, blackLeaves);
+                    return null;
+                }));
+            }
+            for (Future<?> game : games) {
+                game.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            }
+
+            awaitCondition(() -> pool.getActiveGames() == 0, "games are still running");
+            long elapsed = System.nanoTime() - start;
+            for (GameEndReason reason : GameEndReason.values()) {
+                assertEquals(
+                        expectedReasons.getOrDefault(reason, 0), (int) pool.getEndedGames(reason),
+                        "Games ended with " + reason
+                );
+            }
+            awaitCondition(() -> busyServerThreads().isEmpty(), "threads are still serving the ended games");
+            System.out.printf(
+                    "[%s] %d games torn down in %d ms, %s%n",
+                    nio ? "nio" : null == store ? "blocking" : "parking", GAMES, TimeUnit.NANOSECONDS.toMillis(elapsed), expectedReasons
+            );
+
+            // The server is still up and pairs new players
+            try (Socket white = server.connect(); Socket black = server.connect()) {
+                assertEquals("COLOR WHITE", reader(white).readLine());
+                assertEquals("COLOR BLACK", reader(black).readLine());
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    private static void playScenario(Socket first, Socket second, Scenario scenario, boolean blackLeaves)
+            throws IOException {
+        try (first; second) {
+            BufferedReader firstReader = reader(first);
+            BufferedReader secondReader = reader(second);
+            assertEquals("COLOR WHITE", firstReader.readLine());
+            assertEquals("COLOR BLACK", secondReader.readLine());
+            Player white = new Player(first, firstReader);
+            Player black = new Player(second, secondReader);
+
+            switch (scenario) {
+                case WHITE_LEAVES -> {
+                    white.leave();
+                    black.expectDisconnectedOpponent();
+                }
+                case BLACK_LEAVES -> {
+                    black.leave();
+                    white.send("MOVE 4 1 4 3");
+                    white.expectDisconnectedOpponent();
+                }
+                case LEAVES_MID_GAME -> {
+                    white.play("MOVE 4 1 4 3", black);
+                    black.play("MOVE 4 6 4 4", white);
+                    if (blackLeaves) {
+                        black.leave();
+                        white.send("MOVE 3 1 3 3");
+                        white.expectDisconnectedOpponent();
+                    } else {
+                        white.leave();
+                        black.expectDisconnectedOpponent();
+                    }
+                }
+                case FOOLS_MATE -> {
+                    white.play("MOVE 5 1 5 2", black);
+                    black.play("MOVE 4 6 4 4", white);
+                    white.play("MOVE 6 1 6 3", black);
+                    black.play("MOVE 3 7 7 3", white);
+                    white.send("REPLAY No");
+                    black.send("REPLAY Yes");
+                    white.expect("REPLAY No");
+                    black.expect("REPLAY No");
+                    white.expectClosed();
+                    black.expectClosed();
+                }
+            }
+        }
+    }
+
+    private static BufferedReader reader(Socket socket) throws IOException {
+        socket.setSoTimeout(TIMEOUT_SECONDS * 1000);
+        return new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Names of the threads still playing a game or reading a connection for the server.
+     */
+    private static List<String> busyServerThreads() {
+        List<String> busy = new ArrayList<>();
+        Thread.getAllStackTraces().forEach((thread, stack) -> {
+            boolean serving = Arrays.stream(stack).anyMatch(frame ->
+                    frame.getClassName().equals(ServerGameManager.class.getName())
+                            || frame.getClassName().startsWith("heig.dai.pw02.socket.SocketManager")
+            );
+            if (serving) {
+                busy.add(thread.getName());
+            }
+        });
+        return busy;
+    }
+
+    private static void awaitCondition(BooleanSupplier condition, String message)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail(message);
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    private record Player(Socket socket, BufferedReader reader) {
+
+        void send(String line) throws IOException {
+            PrintWriter writer = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+            writer.println(line);
+        }
+
+        void play(String move, Player opponent) throws IOException {
+            send(move);
+            opponent.expect(move);
+        }
+
+        void expect(String line) throws IOException {
+            assertEquals(line, reader.readLine());
+        }
+
+        void leave() throws IOException {
+            socket.close();
+        }
+
+        void expectDisconnectedOpponent() throws IOException {
+            expect(DISCONNECTED);
+            expectClosed();
+        }
+
+        void expectClosed() throws IOException {
+            assertNull(reader.readLine(), "The server did not close the connection");
+        }
+    }
+
+    /**
+     * Accept loop in front of the pool, blocking or non-blocking like the server command.
+     */
+    private record TestServer(int port, Closeable listener, Closeable eventLoops) implements Closeable {
+
+        static TestServer start(ServerGamePool pool, boolean nio) throws IOException {
+            InetAddress loopback = InetAddress.getLoopbackAddress();
+            if (nio) {
+                NioEventLoopGroup eventLoops = new NioEventLoopGroup(2);
+                ServerSocketChannel channel = ServerSocketChannel.open();
+                channel.bind(new InetSocketAddress(loopback, 0), GAMES * 2);
+                startDaemon(() -> {
+                    while (channel.isOpen()) {
+                        pool.handleIncomingPlayer(eventLoops.register(channel.accept()));
+                    }
+                    return null;
+                });
+                return new TestServer(channel.socket().getLocalPort(), channel, eventLoops);
+            }
+
+            ServerSocket serverSocket = new ServerSocket(0, GAMES * 2, loopback);
+            startDaemon(() -> {
+                while (!serverSocket.isClosed()) {
+                    pool.handleIncomingPlayer(serverSocket.accept());
+                }
+                return null;
+            });
+            return new TestServer(serverSocket.getLocalPort(), serverSocket, () -> { });
+        }
+
+        private static void startDaemon(Callable<Void> acceptLoop) {
+            Thread thread = new Thread(() -> {
+                try {
+                    acceptLoop.call();
+                } catch (Exception e) {
+                    System.out.println("Accept loop stopped: " + e);
+                }
+            }, "accept-loop");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        Socket connect() throws IOException {
+            return new Socket(InetAddress.getLoopbackAddress(), port);
+        }
+
+        @Override
+        public void close() throws IOException {
+            listener.close();
+            eventLoops.close();
+        }
+    }
+}
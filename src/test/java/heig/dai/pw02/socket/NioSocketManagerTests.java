@@ -0,0 +1,113 @@
+package heig.dai.pw02.socket;
+
+import heig.dai.pw02.ccp.CCPError;
+import heig.dai.pw02.ccp.CCPMessage;
+import heig.dai.pw02.ccp.Message;
+import heig.dai.pw02.client.ServerHandler;
+import heig.dai.pw02.server.PlayerHandler;
+import heig.poo.chess.PlayerColor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NioSocketManagerTests {
+    private NioEventLoopGroup eventLoops;
+    private ServerSocketChannel serverChannel;
+    private Socket clientSocket;
+    private PlayerHandler player;
+    private ServerHandler server;
+
+    @BeforeEach
+    public void connect() throws IOException {
+        eventLoops = new NioEventLoopGroup(1);
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        clientSocket = new Socket(InetAddress.getLoopbackAddress(), serverChannel.socket().getLocalPort());
+        player = new PlayerHandler(eventLoops.register(serverChannel.accept()));
+        server = new ServerHandler(clientSocket);
+    }
+
+    @AfterEach
+    public void disconnect() throws IOException {
+        clientSocket.close();
+        serverChannel.close();
+        eventLoops.close();
+    }
+
+    @Test
+    public void messagesAreRelayedBothWays() {
+        player.sendColor(PlayerColor.BLACK);
+        assertEquals(PlayerColor.BLACK, server.awaitColor().join());
+
+        server.sendMove(4, 1, 4, 3);
+        Message move = player.awaitMove().join();
+        assertEquals(CCPMessage.MOVE, move.getType());
+        assertArrayEquals(new int[]{4, 1, 4, 3}, move.getNumericArguments());
+    }
+
+    @Test
+    public void linesSplitAcrossReadsAreFramed() throws IOException, InterruptedException {
+        OutputStream output = clientSocket.getOutputStream();
+        output.write("MOVE 1 0".getBytes(StandardCharsets.UTF_8));
+        output.flush();
+        Thread.sleep(50);
+        output.write(" 2 2\r\nMOVE 6 7 5 5\n".getBytes(StandardCharsets.UTF_8));
+        output.flush();
+
+        assertArrayEquals(new int[]{1, 0, 2, 2}, player.awaitMove().join().getNumericArguments());
+        assertArrayEquals(new int[]{6, 7, 5, 5}, player.awaitMove().join().getNumericArguments());
+    }
+
+    @Test
+    public void binaryFramingIsNegotiated() throws IOException {
+        try (Socket rawClient = new Socket(InetAddress.getLoopbackAddress(), serverChannel.socket().getLocalPort())) {
+            PlayerHandler binaryPlayer = new PlayerHandler(eventLoops.register(serverChannel.accept()));
+            OutputStream output = rawClient.getOutputStream();
+            InputStream input = rawClient.getInputStream();
+            output.write("HELLO 2\n".getBytes(StandardCharsets.US_ASCII));
+            output.flush();
+            assertEquals("HELLO 2\n", new String(input.readNBytes(8), StandardCharsets.US_ASCII));
+
+            binaryPlayer.sendMove(4, 6, 4, 4);
+            assertArrayEquals(new byte[]{(byte) (0x80 | CCPMessage.MOVE.ordinal()), 0x0D, 0x24}, input.readNBytes(3));
+
+            // The binary client may still send text
+            output.write("MOVE 4 1 4 3\n".getBytes(StandardCharsets.US_ASCII));
+            output.write(new byte[]{(byte) (0x80 | CCPMessage.MOVE.ordinal()), 0x0D, 0x24});
+            output.flush();
+            assertArrayEquals(new int[]{4, 1, 4, 3}, binaryPlayer.awaitMove().join().getNumericArguments());
+            assertArrayEquals(new int[]{4, 6, 4, 4}, binaryPlayer.awaitMove().join().getNumericArguments());
+        }
+    }
+
+    @Test
+    public void binaryClientsTalkToBinaryServers() {
+        server.requestBinaryFraming();
+        player.sendColor(PlayerColor.WHITE);
+        assertEquals(PlayerColor.WHITE, server.awaitColor().join());
+
+        server.sendMove(6, 0, 5, 2);
+        assertArrayEquals(new int[]{6, 0, 5, 2}, player.awaitMove().join().getNumericArguments());
+        player.sendMove(6, 7, 5, 5);
+        assertArrayEquals(new int[]{6, 7, 5, 5}, server.awaitMove().join().getNumericArguments());
+    }
+
+    @Test
+    public void disconnectionIsReported() throws IOException {
+        clientSocket.close();
+        Message message = player.awaitMove().join();
+        assertEquals(CCPMessage.ERROR, message.getType());
+        assertEquals(CCPError.DISCONNECTED, CCPError.values()[message.getNumericArguments()[0]]);
+    }
+}
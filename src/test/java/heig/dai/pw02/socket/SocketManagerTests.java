@@ -0,0 +1,78 @@
+package heig.dai.pw02.socket;
+
+import heig.dai.pw02.ccp.CCPMessage;
+import heig.dai.pw02.ccp.Message;
+import heig.dai.pw02.client.ServerHandler;
+import heig.dai.pw02.server.PlayerHandler;
+import heig.poo.chess.PieceType;
+import heig.poo.chess.PlayerColor;
+import heig.poo.chess.engine.piece.Queen;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SocketManagerTests {
+    private ServerSocket serverSocket;
+    private PlayerHandler player;
+    private ServerHandler server;
+
+    @BeforeEach
+    public void connect() throws IOException {
+        serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        server = new ServerHandler(new Socket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort()));
+        player = new PlayerHandler(serverSocket.accept());
+    }
+
+    @AfterEach
+    public void disconnect() throws IOException {
+        server.disconnect();
+        player.disconnect();
+        serverSocket.close();
+    }
+
+    @Test
+    public void moveAndPromotionAreSentInOneWrite() {
+        server.sendPromotion(new Queen(PlayerColor.WHITE, 4, 7));
+        server.sendMove(4, 6, 4, 7);
+
+        WriteStatistics statistics = server.getWriteStatistics();
+        assertEquals(2, statistics.getMessages());
+        assertEquals(1, statistics.getWrites());
+        assertEquals(1, statistics.getSavedWrites());
+
+        assertArrayEquals(new int[]{4, 6, 4, 7}, player.awaitMove().join().getNumericArguments());
+        Message promotion = player.awaitPromotion().join();
+        assertEquals(CCPMessage.PROMOTION, promotion.getType());
+        assertEquals(PieceType.QUEEN.ordinal(), promotion.getInt(0));
+    }
+
+    @Test
+    public void messagesAreOnlySentWhenFlushed() throws IOException, InterruptedException {
+        try (Socket client = new Socket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort());
+             Socket peer = serverSocket.accept()) {
+            SocketManager transport = new SocketManager(client);
+            transport.write(Message.move(1, 0, 2, 2));
+            transport.write(Message.move(6, 7, 5, 5));
+            Thread.sleep(50);
+            assertEquals(0, peer.getInputStream().available());
+            assertEquals(0, transport.getWriteStatistics().getWrites());
+
+            transport.flush();
+            byte[] expected = "MOVE 1 0 2 2\nMOVE 6 7 5 5\n".getBytes(StandardCharsets.US_ASCII);
+            assertArrayEquals(expected, peer.getInputStream().readNBytes(expected.length));
+            assertEquals(1, transport.getWriteStatistics().getWrites());
+
+            // Flushing an empty buffer is not a write
+            transport.flush();
+            assertEquals(1, transport.getWriteStatistics().getWrites());
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package heig.poo.chess.engine;
+
+import heig.poo.chess.PieceType;
+import heig.poo.chess.PlayerColor;
+import org.junit.jupiter.api.Test;
+
+import static heig.test.RetainedMemory.retainedBytes;
+import static heig.test.TestGames.play;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChessGameTests {
+    private static final int GAMES = 2_000;
+    // A game parked in the middle of its opening
+    private static final String[] OPENING = {"e2e4", "e7e5", "g1f3", "b8c6", "f1c4", "g8f6"};
+    // 2240 bytes, 9.9 KB before the undo stack, the generated moves and the destinations of every
+    // square were no longer kept by every game
+    private static final long MAX_RETAINED_BYTES = 2_400;
+
+    @Test
+    public void movesAreDescribedByTheirResult() {
+        ChessGame game = new ChessGame();
+        assertEquals(MoveResult.ILLEGAL, game.play("e2e5"));
+        int result = game.play("e2e4");
+        assertTrue(MoveResult.isLegal(result));
+        assertNull(MoveResult.capturedOf(result));
+        assertEquals(GameStatus.ONGOING, MoveResult.statusOf(result));
+
+        // Capture en passant
+        play(game, "a7a6", "e4e5", "d7d5");
+        result = game.play("e5d6");
+        assertTrue(MoveResult.isEnPassant(result));
+        assertEquals(PieceType.PAWN, MoveResult.capturedOf(result));
+        assertNull(game.board.getPiece(3, 4));
+
+        // Castling moves the rook too
+        game.newGame();
+        play(game, "e2e4", "e7e5", "g1f3", "b8c6", "f1c4", "g8f6");
+        result = game.play("e1g1");
+        assertTrue(MoveResult.isCastling(result));
+        assertEquals(PieceType.ROOK, game.board.getPiece(5, 0).getPieceType());
+        assertNull(game.board.getPiece(7, 0));
+    }
+
+    @Test
+    public void promotionsCompleteTheMove() {
+        ChessGame game = new ChessGame();
+        play(game, "e2e4", "d7d5", "e4d5", "c7c6", "d5c6", "g8f6", "c6b7", "b8d7");
+        int result = game.play("b7a8");
+        assertTrue(MoveResult.isPromotionNeeded(result));
+        assertEquals(PieceType.ROOK, MoveResult.capturedOf(result));
+        assertNotNull(game.getPendingPromotion());
+
+        // Nothing else can be played until the pawn is replaced
+        assertEquals(MoveResult.ILLEGAL, game.play("d7b6"));
+        assertEquals(0, game.legalDestinations(3, 6));
+        assertEquals(MoveResult.ILLEGAL, game.promote(PieceType.KING));
+
+        result = game.promote(PieceType.QUEEN);
+        assertFalse(MoveResult.isPromotionNeeded(result));
+        assertEquals(PieceType.QUEEN, MoveResult.promotionOf(result));
+        assertEquals(PieceType.ROOK, MoveResult.capturedOf(result));
+        assertEquals(GameStatus.ONGOING, MoveResult.statusOf(result));
+        assertEquals(PieceType.QUEEN, game.board.getPiece(0, 7).getPieceType());
+        assertEquals(PlayerColor.BLACK, game.playerTurn());
+        assertNull(game.getPendingPromotion());
+        assertEquals(MoveResult.ILLEGAL, game.promote(PieceType.QUEEN));
+    }
+
+    @Test
+    public void finishedGamesRejectMoves() {
+        ChessGame game = new ChessGame();
+        play(game, "f2f3", "e7e5", "g2g4");
+        int result = game.play("d8h4");
+        assertEquals(GameStatus.CHECKMATE, MoveResult.statusOf(result));
+        assertEquals(GameStatus.CHECKMATE, game.getStatus());
+        assertEquals(MoveResult.ILLEGAL, game.play("a2a3"));
+
+        game.newGame();
+        assertEquals(GameStatus.ONGOING, game.getStatus());
+        assertTrue(MoveResult.isLegal(game.play("a2a3")));
+    }
+
+    @Test
+    public void gamesRetainFewBytes() {
+        play(new ChessGame(), OPENING);
+        long retained = retainedBytes(GAMES, i -> play(new ChessGame(), OPENING));
+
+        System.out.printf("%d bytes retained per game%n", retained);
+        assertTrue(retained < MAX_RETAINED_BYTES, "Retained " + retained + " bytes per game");
+    }
+
+}
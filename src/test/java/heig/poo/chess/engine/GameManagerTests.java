@@ -0,0 +1,129 @@
+package heig.poo.chess.engine;
+
+import heig.poo.chess.ChessView.UserChoice;
+import heig.poo.chess.PlayerColor;
+import heig.poo.chess.engine.piece.Bishop;
+import heig.poo.chess.engine.piece.ChessPiece;
+import heig.poo.chess.engine.piece.King;
+import heig.poo.chess.engine.piece.Knight;
+import heig.poo.chess.engine.piece.Pawn;
+import heig.poo.chess.engine.util.ChessString;
+import heig.poo.chess.views.HeadlessView;
+import org.junit.jupiter.api.Test;
+
+import static heig.test.Allocations.allocatedBytes;
+import static heig.test.Allocations.assertNoAllocation;
+import static heig.test.TestGames.move;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameManagerTests {
+    private static final int GAMES = 1_000;
+    // The Opera Game up to the castling of white: captures, checks and a castling
+    private static final String[] OPENING = {
+            "e2e4", "e7e5", "g1f3", "d7d6", "d2d4", "c8g4", "d4e5", "g4f3", "d1f3", "d6e5",
+            "f1c4", "g8f6", "f3b3", "d8e7", "b1c3", "c7c6", "c1g5", "b7b5", "c3b5", "c6b5",
+            "c4b5", "b8d7", "e1c1"
+    };
+
+    @Test
+    public void movingDoesNotAllocate() {
+        SilentGame game = new SilentGame();
+        long moves = (long) GAMES * play(game);
+
+        long allocated = 0;
+        for (int i = 0; i < GAMES; i++) {
+            game.newGame();
+            allocated += allocatedBytes(() -> play(game));
+        }
+        assertNoAllocation(allocated, moves, "moves validated and played");
+    }
+
+    @Test
+    public void kingsAndMinorPiecesCannotCheckmate() {
+        SilentGame game = new SilentGame();
+        assertFalse(game.isInsufficientMaterial());
+        for (PlayerColor color : PlayerColor.values()) {
+            for (ChessPiece piece : game.board.getAllPieces(color)) {
+                if (!(piece instanceof King)) {
+                    game.board.removePiece(piece);
+                }
+            }
+        }
+        assertTrue(game.isInsufficientMaterial());
+
+        Knight knight = new Knight(PlayerColor.WHITE, 1, 0);
+        game.board.addPiece(knight);
+        assertTrue(game.isInsufficientMaterial());
+        game.board.addPiece(new Bishop(PlayerColor.BLACK, 2, 7));
+        assertFalse(game.isInsufficientMaterial());
+
+        // Bishops on squares of the same color cannot checkmate
+        game.board.removePiece(knight);
+        Bishop bishop = new Bishop(PlayerColor.WHITE, 2, 0);
+        game.board.addPiece(bishop);
+        assertFalse(game.isInsufficientMaterial());
+        game.board.removePiece(bishop);
+        game.board.addPiece(new Bishop(PlayerColor.WHITE, 5, 0));
+        assertTrue(game.isInsufficientMaterial());
+
+        game.board.addPiece(new Pawn(PlayerColor.BLACK, 0, 6));
+        assertFalse(game.isInsufficientMaterial());
+    }
+
+    @Test
+    public void statusIsEvaluatedAfterEachMove() {
+        SilentGame game = new SilentGame();
+        assertEquals(GameStatus.ONGOING, game.getStatus());
+        move(game, "e2e4", "f7f6");
+        assertEquals(GameStatus.ONGOING, game.getStatus());
+        assertEquals(ChessString.playerToMove(PlayerColor.WHITE), game.message);
+        move(game, "d1h5");
+        assertEquals(GameStatus.CHECK, game.getStatus());
+        assertEquals(ChessString.CHECK, game.message);
+
+        // Fool's mate: the game is over and the pieces can no longer move
+        game.newGame();
+        move(game, "f2f3", "e7e5", "g2g4", "d8h4");
+        assertEquals(GameStatus.CHECKMATE, game.getStatus());
+        assertEquals(ChessString.CHECKMATE, game.message);
+        assertTrue(game.getStatus().isOver());
+        assertEquals(0, game.legalDestinations(0, 1));
+    }
+
+    /**
+     * Play the opening, trying an illegal move before each move.
+     *
+     * @return The number of moves validated.
+     */
+    private static int play(SilentGame game) {
+        for (String move : OPENING) {
+            assertFalse(game.move(0, 0, 7, 7));
+            assertTrue(game.move(move), move);
+        }
+
+        return 2 * OPENING.length;
+    }
+
+    /**
+     * Game with a view that displays nothing, keeping the last message. The game is not played
+     * again once over.
+     */
+    private static final class SilentGame extends GameManager {
+
+        private String message;
+
+        SilentGame() {
+            start(new HeadlessView() {
+                @Override
+                public void displayMessage(String msg) {
+                    message = msg;
+                }
+            });
+        }
+
+        @Override
+        protected UserChoice askUserToPlayAgain(String header, String question, UserChoice[] choices) {
+            return null;
+        }
+    }
+}
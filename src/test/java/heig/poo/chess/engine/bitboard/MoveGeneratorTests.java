@@ -0,0 +1,120 @@
+package heig.poo.chess.engine.bitboard;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoveGeneratorTests {
+
+    // Positions and leaf counts published on https://www.chessprogramming.org/Perft_Results
+    private static final String KIWIPETE =
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+    private static final String ENDGAME = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+    private static final String PROMOTIONS =
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1";
+    private static final String BUGGY =
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8";
+    private static final String MIDDLE_GAME =
+            "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10";
+
+    @Test
+    public void startPosition() {
+        assertPerft(Fen.START_POSITION, 20, 400, 8_902, 197_281);
+    }
+
+    @Test
+    public void castlingAndPins() {
+        assertPerft(KIWIPETE, 48, 2_039, 97_862);
+    }
+
+    @Test
+    public void enPassantAndDiscoveredChecks() {
+        assertPerft(ENDGAME, 14, 191, 2_812, 43_238, 674_624);
+    }
+
+    @Test
+    public void promotions() {
+        assertPerft(PROMOTIONS, 6, 264, 9_467, 422_333);
+        assertPerft(BUGGY, 44, 1_486, 62_379);
+        assertPerft(MIDDLE_GAME, 46, 2_079, 89_890);
+    }
+
+    @Test
+    public void divisionsAddUpToTheCount() {
+        Position position = Fen.parse(KIWIPETE);
+        List<Perft.Division> divisions = new Perft(3).divide(position, 3);
+        assertEquals(48, divisions.size());
+        assertEquals(97_862, divisions.stream().mapToLong(Perft.Division::nodes).sum());
+
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            assertEquals(divisions, Perft.divide(position, 3, pool));
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(Fen.parse(KIWIPETE), position);
+    }
+
+    @Test
+    public void checkedKingsOnlyEscape() {
+        // Double check: only the king moves
+        Position doubleCheck = Fen.parse("4k3/8/8/8/8/5n2/8/r3K3 w - - 0 1");
+        MoveList moves = MoveGenerator.generateLegalMoves(doubleCheck, new MoveList());
+        assertEquals(2, Long.bitCount(MoveGenerator.checkers(doubleCheck)));
+        for (int i = 0; i < moves.size(); i++) {
+            assertEquals(Bitboards.square(4, 0), Move.from(moves.get(i)));
+        }
+
+        // The pawn taken en passant uncovers the rook: the capture is illegal
+        Position pinnedOnRank = Fen.parse("8/8/8/K2pP2r/8/8/8/7k w - d6 0 1");
+        moves = MoveGenerator.generateLegalMoves(pinnedOnRank, new MoveList());
+        assertFalse(moves.contains(Bitboards.square(4, 4), Bitboards.square(3, 5)));
+
+        // Mated and stalemated kings have no move
+        assertTrue(MoveGenerator.generateLegalMoves(
+                Fen.parse("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3"),
+                moves
+        ).isEmpty());
+        Position stalemate = Fen.parse("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1");
+        assertTrue(MoveGenerator.generateLegalMoves(stalemate, moves).isEmpty());
+        assertEquals(Bitboards.EMPTY, MoveGenerator.checkers(stalemate));
+    }
+
+    @Test
+    public void destinationsAreIndexedByOrigin() {
+        // The array is reused from position to position, as the game does
+        long[] destinations = new long[MoveList.MAX_ORIGINS];
+        Arrays.fill(destinations, -1L);
+        MoveList moves = new MoveList();
+        for (String fen : new String[]{Fen.START_POSITION, KIWIPETE, ENDGAME, PROMOTIONS}) {
+            MoveGenerator.generateLegalMoves(Fen.parse(fen), moves);
+            long origins = moves.indexDestinations(destinations);
+            for (int square = 0; square < Bitboards.SQUARES; square++) {
+                long expected = moves.destinationsOf(square);
+                assertEquals(expected != Bitboards.EMPTY, (origins & Bitboards.bit(square)) != 0);
+                if (expected != Bitboards.EMPTY) {
+                    assertEquals(expected, destinations[MoveList.indexOf(origins, square)], fen);
+                }
+            }
+        }
+
+        // A checkmated king leaves no piece to move
+        MoveGenerator.generateLegalMoves(
+                Fen.parse("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3"),
+                moves
+        );
+        assertEquals(Bitboards.EMPTY, moves.indexDestinations(destinations));
+    }
+
+    private static void assertPerft(String fen, long... expected) {
+        Position position = Fen.parse(fen);
+        Perft perft = new Perft(expected.length);
+        for (int depth = 1; depth <= expected.length; depth++) {
+            assertEquals(expected[depth - 1], perft.count(position, depth), "Perft " + depth + " of " + fen);
+        }
+    }
+}
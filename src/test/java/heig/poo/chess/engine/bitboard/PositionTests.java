@@ -0,0 +1,306 @@
+package heig.poo.chess.engine.bitboard;
+
+import heig.poo.chess.ChessView.UserChoice;
+import heig.poo.chess.PieceType;
+import heig.poo.chess.PlayerColor;
+import heig.poo.chess.engine.GameManager;
+import heig.poo.chess.engine.piece.Bishop;
+import heig.poo.chess.engine.piece.ChessPiece;
+import heig.poo.chess.engine.piece.King;
+import heig.poo.chess.engine.piece.Rook;
+import heig.poo.chess.engine.util.Board;
+import heig.poo.chess.engine.util.Point;
+import heig.poo.chess.views.HeadlessView;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static heig.test.Allocations.allocatedBytes;
+import static heig.test.Allocations.assertNoAllocation;
+import static heig.test.TestGames.move;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PositionTests {
+    private static final int GAMES = 20;
+    private static final int MAX_PLIES = 200;
+    private static final String KIWIPETE =
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+    @Test
+    public void attacksStopAtTheFirstOccupiedSquare() {
+        int a1 = Bitboards.square(0, 0);
+        int d4 = Bitboards.square(3, 3);
+        assertEquals(2, Long.bitCount(Bitboards.knightAttacks(a1)));
+        assertEquals(8, Long.bitCount(Bitboards.knightAttacks(d4)));
+        assertEquals(3, Long.bitCount(Bitboards.kingAttacks(a1)));
+        assertEquals(14, Long.bitCount(Bitboards.rookAttacks(d4, Bitboards.EMPTY)));
+        assertEquals(13, Long.bitCount(Bitboards.bishopAttacks(d4, Bitboards.EMPTY)));
+
+        long blockers = Bitboards.bit(Bitboards.square(0, 3)) | Bitboards.bit(Bitboards.square(2, 0));
+        long expected = Bitboards.bit(Bitboards.square(0, 1)) | Bitboards.bit(Bitboards.square(0, 2))
+                | Bitboards.bit(Bitboards.square(0, 3)) | Bitboards.bit(Bitboards.square(1, 0))
+                | Bitboards.bit(Bitboards.square(2, 0));
+        assertEquals(expected, Bitboards.rookAttacks(a1, blockers));
+        assertEquals(
+                Bitboards.bit(Bitboards.square(2, 4)) | Bitboards.bit(Bitboards.square(4, 4)),
+                Bitboards.pawnAttacks(PlayerColor.BLACK, Bitboards.square(3, 5))
+        );
+    }
+
+    @Test
+    public void positionFollowsThePiecesOfRandomGames() {
+        Random random = new Random(42);
+        for (int game = 0; game < GAMES; game++) {
+            RandomGame randomGame = new RandomGame(random);
+            for (int ply = 0; ply < MAX_PLIES && randomGame.playRandomMove(); ply++) {
+                assertInSync(randomGame.getBoard());
+                assertSameMovesAsThePieces(randomGame);
+            }
+        }
+    }
+
+    @Test
+    public void unmakingAMoveRestoresThePosition() {
+        String[] fens = {
+                Fen.START_POSITION,
+                KIWIPETE,
+                "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                "8/8/8/K2pP2r/8/8/8/7k w - d6 0 1"
+        };
+        for (String fen : fens) {
+            Position position = Fen.parse(fen);
+            walk(position, 3);
+            assertEquals(Fen.parse(fen), position, fen);
+            assertEquals(0, position.getPlies());
+        }
+    }
+
+    @Test
+    public void makingMovesDoesNotAllocate() {
+        Position position = Fen.parse(KIWIPETE);
+        Perft perft = new Perft(3);
+        long nodes = perft.count(position, 3);
+
+        long allocated = allocatedBytes(() -> perft.count(position, 3));
+        assertNoAllocation(allocated, nodes, "nodes walked");
+    }
+
+    @Test
+    public void kingsCannotBeLeftInCheck() {
+        Board board = new Board();
+        for (List<ChessPiece> pieces : board.getAllPieces()) {
+            for (ChessPiece piece : pieces) {
+                if (!(piece instanceof King)) {
+                    board.removePiece(piece);
+                }
+            }
+        }
+        assertInSync(board);
+        ChessPiece king = board.getKing(PlayerColor.WHITE);
+
+        // Checked along the first rank, the king cannot step back on the line of the rook
+        Rook rook = new Rook(PlayerColor.BLACK, 7, 0);
+        board.addPiece(rook);
+        assertTrue(board.getPosition().isAttacked(Bitboards.square(king.getPos()), PlayerColor.BLACK));
+        assertFalse(king.canMoveTo(board, new Point(3, 0)));
+        assertFalse(king.canMoveTo(board, new Point(5, 0)));
+        assertTrue(king.canMoveTo(board, new Point(4, 1)));
+
+        // A bishop pinned on the file of the king cannot leave it
+        board.removePiece(rook);
+        Bishop bishop = new Bishop(PlayerColor.WHITE, 4, 1);
+        board.addPiece(bishop);
+        board.addPiece(new Rook(PlayerColor.BLACK, 4, 4));
+        assertFalse(bishop.canMoveTo(board, new Point(3, 2)));
+        assertFalse(board.getPosition().isAttacked(Bitboards.square(king.getPos()), PlayerColor.BLACK));
+        assertTrue(board.getPosition().isAttacked(Bitboards.square(4, 2), PlayerColor.BLACK));
+
+        // Capturing a piece replaces it on the board and in the position
+        board.addPiece(new Rook(PlayerColor.WHITE, 4, 4));
+        assertInSync(board);
+        assertFalse(board.getPosition().isAttacked(Bitboards.square(4, 2), PlayerColor.BLACK));
+        assertTrue(bishop.canMoveTo(board, new Point(3, 2)));
+    }
+
+    @Test
+    public void repeatedPositionsEndTheGame() {
+        // Transpositions reach the same key, the side to move and the en passant square count
+        RandomGame game = new RandomGame(new Random(42));
+        long start = game.getPositionKey();
+        move(game, "g1f3", "g8f6", "b1c3");
+        RandomGame transposed = new RandomGame(new Random(42));
+        move(transposed, "b1c3", "g8f6", "g1f3");
+        assertEquals(game.getPositionKey(), transposed.getPositionKey());
+        assertEquals(Fen.parse("rnbqkb1r/pppppppp/5n2/8/8/2N2N2/PPPPPPPP/R1BQKB1R b KQkq - 1 2")
+                .getKey(), game.getPositionKey());
+        move(transposed, "e7e5");
+        assertNotEquals(game.getPositionKey(), transposed.getPositionKey());
+        assertEquals(Fen.parse("rnbqkb1r/pppp1ppp/5n2/4p3/8/2N2N2/PPPPPPPP/R1BQKB1R w KQkq - 0 3")
+                .getKey(), transposed.getPositionKey());
+
+        // The start position is reached a third time after the knights went back twice
+        game = new RandomGame(new Random(42));
+        move(game, "g1f3", "g8f6", "f3g1", "f6g8", "g1f3", "g8f6", "f3g1");
+        assertFalse(game.isOver());
+        move(game, "f6g8");
+        assertEquals(start, game.getPositionKey());
+        assertTrue(game.isOver());
+
+        // A pawn move in between makes the earlier positions unreachable
+        game = new RandomGame(new Random(42));
+        move(game, "g1f3", "g8f6", "f3g1", "f6g8", "e2e3", "g8f6", "g1f3", "f6g8", "f3g1",
+                "g8f6", "g1f3", "f6g8");
+        assertFalse(game.isOver());
+    }
+
+    private static void walk(Position position, int depth) {
+        if (depth == 0) {
+            return;
+        }
+
+        MoveList moves = MoveGenerator.generateLegalMoves(position, new MoveList());
+        for (int i = 0; i < moves.size(); i++) {
+            Position before = new Position(position);
+            position.makeMove(moves.get(i));
+            assertInSync(position);
+            walk(position, depth - 1);
+            position.unmakeMove();
+            assertEquals(before, position, "Unmaking " + Move.toString(moves.get(i)));
+        }
+    }
+
+    /**
+     * The generated moves are the moves allowed by the rules of each piece.
+     */
+    private static void assertSameMovesAsThePieces(RandomGame game) {
+        Board board = game.getBoard();
+        MoveList moves = game.generateLegalMoves();
+        PlayerColor color = board.getPosition().getSideToMove();
+        for (ChessPiece piece : board.getAllPieces(color)) {
+            long destinations = Bitboards.EMPTY;
+            for (int x = 0; x < Board.BOARD_SIZE; x++) {
+                for (int y = 0; y < Board.BOARD_SIZE; y++) {
+                    if (!piece.getPos().equals(new Point(x, y)) && piece.canMoveTo(board, new Point(x, y))) {
+                        destinations |= Bitboards.bit(Bitboards.square(x, y));
+                    }
+                }
+            }
+
+            assertEquals(
+                    destinations, moves.destinationsOf(Bitboards.square(piece.getPos())),
+                    piece + " at " + piece.getPos() + " in " + moves
+            );
+        }
+    }
+
+    private static void assertInSync(Position position) {
+        assertEquals(Zobrist.keyOf(position), position.getKey());
+        for (int square = 0; square < Bitboards.SQUARES; square++) {
+            int code = position.getPiece(square);
+            long bit = Bitboards.bit(square);
+            assertEquals(code != Position.NO_PIECE, (position.getOccupancy() & bit) != 0);
+            if (code != Position.NO_PIECE) {
+                PlayerColor color = Position.colorOf(code);
+                assertNotEquals(0, position.getPieces(color, Position.typeOf(code)) & bit);
+                assertEquals(0, position.getPieces(color.opposite()) & bit);
+            }
+        }
+
+        // The cached attack maps match the attackers looked up square by square
+        for (PlayerColor color : PlayerColor.values()) {
+            long occupancy = position.getOccupancy()
+                    & ~position.getPieces(color.opposite(), PieceType.KING);
+            long attacks = 0;
+            for (int square = 0; square < Bitboards.SQUARES; square++) {
+                if (position.attackersOf(square, color, occupancy) != 0) {
+                    attacks |= Bitboards.bit(square);
+                }
+            }
+            assertEquals(attacks, position.getAttacks(color));
+            int king = position.getKingSquare(color.opposite());
+            long checkers = king == Bitboards.SQUARES
+                    ? 0
+                    : position.attackersOf(king, color, position.getOccupancy());
+            assertEquals(checkers, position.getCheckers(color.opposite()));
+        }
+    }
+
+    private static void assertInSync(Board board) {
+        Position position = board.getPosition();
+        assertEquals(Zobrist.keyOf(position), board.getKey());
+        for (int x = 0; x < Board.BOARD_SIZE; x++) {
+            for (int y = 0; y < Board.BOARD_SIZE; y++) {
+                ChessPiece piece = board.getPiece(x, y);
+                int code = position.getPiece(Bitboards.square(x, y));
+                if (null == piece) {
+                    assertEquals(Position.NO_PIECE, code, "Square " + x + "," + y);
+                } else {
+                    assertEquals(piece.getPlayerColor(), Position.colorOf(code), "Square " + x + "," + y);
+                    assertEquals(piece.getPieceType(), Position.typeOf(code), "Square " + x + "," + y);
+                }
+            }
+        }
+
+        for (PlayerColor color : PlayerColor.values()) {
+            long pieces = position.getPieces(color);
+            assertEquals(Long.bitCount(pieces), board.getAllPieces(color).size());
+            int king = position.getKingSquare(color);
+            assertEquals(board.getKing(color).getPos(), new Point(Bitboards.xOf(king), Bitboards.yOf(king)));
+            for (PieceType type : PieceType.values()) {
+                assertEquals(position.getPieces(color, type), position.getPieces(color, type) & pieces);
+            }
+        }
+        assertEquals(
+                position.getOccupancy(),
+                position.getPieces(PlayerColor.WHITE) | position.getPieces(PlayerColor.BLACK)
+        );
+    }
+
+    /**
+     * Game playing random legal moves with a view that displays nothing.
+     */
+    private static final class RandomGame extends GameManager {
+        private final Random random;
+
+        RandomGame(Random random) {
+            this.random = random;
+            start(new HeadlessView(random));
+        }
+
+        Board getBoard() {
+            return board;
+        }
+
+        boolean isOver() {
+            return isEndGame();
+        }
+
+        boolean playRandomMove() {
+            if (isEndGame()) {
+                return false;
+            }
+
+            Point from = null;
+            Point to = null;
+            int candidates = 0;
+            for (ChessPiece piece : board.getAllPieces(playerTurn())) {
+                for (int x = 0; x < Board.BOARD_SIZE; x++) {
+                    for (int y = 0; y < Board.BOARD_SIZE; y++) {
+                        if (movePreconditions(piece, new Point(x, y)) && random.nextInt(++candidates) == 0) {
+                            from = piece.getPos();
+                            to = new Point(x, y);
+                        }
+                    }
+                }
+            }
+
+            return null != from && move(from.x(), from.y(), to.x(), to.y());
+        }
+
+        @Override
+        protected UserChoice askUserToPlayAgain(String header, String question, UserChoice[] choices) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package heig.poo.chess.engine.util;
+
+import heig.poo.chess.engine.bitboard.Bitboards;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DirectionTests {
+    private static final int MAX_OFFSET = Board.BOARD_SIZE - 1;
+
+    @Test
+    public void tablesAgreeWithTheOffsets() {
+        assertEquals(Direction.NORTH_EAST, Direction.offSetOf(3, 3));
+        assertEquals(Direction.L_NORTH_EAST, Direction.offSetOf(2, 4));
+        assertNull(Direction.offSetOf(0, 0));
+        assertNull(Direction.offSetOf(2, 3));
+        assertEquals(Direction.WEST, Direction.offSetOf(-20, 0));
+        assertEquals(Direction.SOUTH, Direction.NORTH.opposite());
+
+        // Every offset between two squares of the board
+        Point origin = new Point(MAX_OFFSET, MAX_OFFSET);
+        for (int x = -MAX_OFFSET; x <= MAX_OFFSET; x++) {
+            for (int y = -MAX_OFFSET; y <= MAX_OFFSET; y++) {
+                Point offset = new Point(origin.x() + x, origin.y() + y);
+                assertEquals(walkedDirection(x, y), Direction.offSetOf(x, y), x + ", " + y);
+                assertEquals(walkedDistance(x, y), Direction.moveDistance(origin, offset), x + ", " + y);
+            }
+        }
+
+        for (int from = 0; from < Bitboards.SQUARES; from++) {
+            for (int to = 0; to < Bitboards.SQUARES; to++) {
+                int x = Bitboards.xOf(to) - Bitboards.xOf(from);
+                int y = Bitboards.yOf(to) - Bitboards.yOf(from);
+                Direction direction = Direction.betweenSquares(from, to);
+                int distance = Direction.distanceBetweenSquares(from, to);
+                assertEquals(walkedDirection(x, y), direction, from + " to " + to);
+                assertEquals(walkedDistance(x, y), distance, from + " to " + to);
+
+                // Sliding directions pass over the squares between the two squares
+                if (null != direction && direction.ordinal() < Direction.L_EAST_NORTH.ordinal()) {
+                    assertEquals(distance - 1, Long.bitCount(Bitboards.between(from, to)));
+                } else {
+                    assertEquals(Bitboards.EMPTY, Bitboards.between(from, to));
+                }
+            }
+        }
+    }
+
+    /**
+     * Find the direction reaching an offset by repeating its step, without the tables.
+     */
+    private static Direction walkedDirection(int x, int y) {
+        for (Direction direction : Direction.values()) {
+            if (steps(direction, x, y) > 0) {
+                return direction;
+            }
+        }
+
+        return null;
+    }
+
+    private static int walkedDistance(int x, int y) {
+        Direction direction = walkedDirection(x, y);
+        return null == direction ? 0 : steps(direction, x, y);
+    }
+
+    /**
+     * Count the steps of a direction reaching an offset.
+     *
+     * @return the number of steps, 0 if the direction never reaches the offset
+     */
+    private static int steps(Direction direction, int x, int y) {
+        int stepX = 0, stepY = 0;
+        for (int steps = 1; steps <= MAX_OFFSET; steps++) {
+            stepX += direction.xOffset();
+            stepY += direction.yOffset();
+            if (stepX == x && stepY == y) {
+                return steps;
+            }
+        }
+
+        return 0;
+    }
+}
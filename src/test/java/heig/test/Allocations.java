@@ -0,0 +1,44 @@
+package heig.test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Measures the bytes allocated by the current thread, to check that hot paths do not allocate.
+ */
+public final class Allocations {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private Allocations() {
+    }
+
+    /**
+     * Get the bytes allocated by the current thread while running an action. The action should be
+     * run once before, so that class loading and compilation are not measured.
+     *
+     * @param action the action
+     * @return the allocated bytes
+     */
+    public static long allocatedBytes(Runnable action) {
+        long threadId = Thread.currentThread().getId();
+        long before = THREADS.getThreadAllocatedBytes(threadId);
+        action.run();
+        return THREADS.getThreadAllocatedBytes(threadId) - before;
+    }
+
+    /**
+     * Check that operations allocated no object. The measurement itself allocates a few bytes,
+     * far less than one object per operation: a tenth of a byte per operation is accepted.
+     *
+     * @param allocated  the bytes allocated by the operations
+     * @param operations the number of operations
+     * @param name       the name of the operations, for the report
+     */
+    public static void assertNoAllocation(long allocated, long operations, String name) {
+        System.out.printf("%d bytes allocated for %d %s%n", allocated, operations, name);
+        assertTrue(allocated < operations / 10, "Allocated " + allocated + " bytes");
+    }
+}
@@ -0,0 +1,60 @@
+package heig.test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.ref.Reference;
+import java.util.function.IntFunction;
+
+/**
+ * Measures the heap kept alive by objects, from the used heap after a full collection. The
+ * objects are created in numbers so that the few bytes allocated by the test itself in between
+ * do not show.
+ */
+public final class RetainedMemory {
+
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+    // The used heap is the lowest of a few collections: the objects waiting for their finalizer
+    // and the buffers of other threads make some of them higher
+    private static final int COLLECTIONS = 5;
+    private static final long COLLECTION_PAUSE_MILLIS = 50;
+
+    private RetainedMemory() {
+    }
+
+    /**
+     * Get the bytes retained by each of the objects created by a factory, holding all of them
+     * while the heap is measured. The factory should be called once before, so that the classes
+     * and the shared state it loads are not measured.
+     *
+     * @param count   the number of objects to create
+     * @param factory the factory creating the object of an index
+     * @return the retained bytes per object
+     */
+    public static long retainedBytes(int count, IntFunction<?> factory) {
+        Object[] objects = new Object[count];
+        long before = usedHeap();
+        for (int i = 0; i < count; i++) {
+            objects[i] = factory.apply(i);
+        }
+        long retained = usedHeap() - before;
+        Reference.reachabilityFence(objects);
+
+        return retained / count;
+    }
+
+    private static long usedHeap() {
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < COLLECTIONS; i++) {
+            System.gc();
+            used = Math.min(used, MEMORY.getHeapMemoryUsage().getUsed());
+            try {
+                Thread.sleep(COLLECTION_PAUSE_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        return used;
+    }
+}
@@ -0,0 +1,44 @@
+package heig.test;
+
+import heig.poo.chess.engine.ChessGame;
+import heig.poo.chess.engine.GameManager;
+import heig.poo.chess.engine.MoveResult;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Plays the moves of the tests, written in coordinate notation: {@code "e2e4"}, or
+ * {@code "b7a8q"} for a promotion.
+ */
+public final class TestGames {
+
+    private TestGames() {
+    }
+
+    /**
+     * Play moves, checking that each of them is legal.
+     *
+     * @param game  the game
+     * @param moves the moves
+     * @return the game
+     */
+    public static <T extends ChessGame> T play(T game, String... moves) {
+        for (String move : moves) {
+            assertTrue(MoveResult.isLegal(game.play(move)), "Illegal move " + move);
+        }
+
+        return game;
+    }
+
+    /**
+     * Play moves through the controller of a game, checking that each of them is played.
+     *
+     * @param game  the game
+     * @param moves the moves
+     */
+    public static void move(GameManager game, String... moves) {
+        for (String move : moves) {
+            assertTrue(game.move(move), "Illegal move " + move);
+        }
+    }
+}